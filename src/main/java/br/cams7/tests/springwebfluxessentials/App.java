@@ -2,8 +2,10 @@ package br.cams7.tests.springwebfluxessentials;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
 public class App {
 
   public static void main(String[] args) {
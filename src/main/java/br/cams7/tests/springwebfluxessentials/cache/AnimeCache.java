@@ -0,0 +1,101 @@
+package br.cams7.tests.springwebfluxessentials.cache;
+
+import br.cams7.tests.springwebfluxessentials.config.AnimeProperties;
+import br.cams7.tests.springwebfluxessentials.domain.Anime;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Bounded read-through cache of animes by id. Unknown ids are cached too (as empty), with their own
+ * time to live, so repeated lookups of missing animes don't reach the database either.
+ *
+ * <p>Metrics are published as {@code cache.*} meters tagged {@code cache=animes}. Lookups missing
+ * the cache are also counted by the {@code anime.queries} meters tagged {@code query=findById}:
+ * with an {@code outcome} of {@code executed} when they read the database, or of {@code coalesced}
+ * when they wait for a read of the same id already in flight.
+ */
+@Component
+public class AnimeCache {
+  private static final String CACHE_NAME = "animes";
+  private static final String QUERY = "findById";
+
+  private final Counter executed;
+  private final Counter coalesced;
+
+  private final AsyncCache<Long, Optional<Anime>> cache;
+
+  // bumped by every invalidation; a load that overlapped one may have read the old row
+  private final AtomicLong invalidations = new AtomicLong();
+
+  public AnimeCache(AnimeProperties properties, MeterRegistry registry) {
+    var settings = properties.getCache();
+    cache =
+        Caffeine.newBuilder()
+            .maximumSize(settings.getMaximumSize())
+            .expireAfter(
+                new PresenceExpiry<Long, Anime>(settings.getTtl(), settings.getNegativeTtl()))
+            .recordStats()
+            .buildAsync();
+
+    CaffeineCacheMetrics.monitor(registry, cache, CACHE_NAME);
+    Gauge.builder("cache.hit.ratio", cache, animes -> animes.synchronous().stats().hitRate())
+        .tag("cache", CACHE_NAME)
+        .description("The ratio of cache requests which were hits")
+        .register(registry);
+    executed = register(registry, "executed", "Queries run against the database");
+    coalesced = register(registry, "coalesced", "Queries answered by an identical one in flight");
+  }
+
+  private static Counter register(MeterRegistry registry, String outcome, String description) {
+    return Counter.builder("anime.queries")
+        .tag("query", QUERY)
+        .tag("outcome", outcome)
+        .description(description)
+        .register(registry);
+  }
+
+  public Mono<Anime> get(Long id, Function<Long, Mono<Anime>> loader) {
+    var invalidation = invalidations.get();
+    // the mapping function runs on this thread, and only when no load of the id is cached
+    var loaded = new boolean[1];
+    var future =
+        cache.get(
+            id,
+            (key, executor) -> {
+              loaded[0] = true;
+              return loader
+                  .apply(key)
+                  .map(Optional::of)
+                  .defaultIfEmpty(Optional.empty())
+                  .toFuture();
+            });
+    if (loaded[0]) executed.increment();
+    else if (!future.isDone()) coalesced.increment();
+    future.whenComplete(
+        (anime, error) -> {
+          if (invalidation != invalidations.get()) cache.asMap().remove(id, future);
+        });
+    // a dependent stage, so a cancelled subscriber doesn't cancel the load shared with others
+    return Mono.fromCompletionStage(future.thenApply(Function.identity()))
+        .flatMap(Mono::justOrEmpty);
+  }
+
+  public void invalidate(Long id) {
+    invalidations.incrementAndGet();
+    cache.synchronous().invalidate(id);
+  }
+
+  public CacheStats stats() {
+    return cache.synchronous().stats();
+  }
+}
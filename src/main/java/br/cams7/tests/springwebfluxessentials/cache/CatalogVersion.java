@@ -0,0 +1,70 @@
+package br.cams7.tests.springwebfluxessentials.cache;
+
+import static org.springframework.http.MediaType.APPLICATION_CBOR;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+/**
+ * Version of the whole catalog, incremented when a write starts and again after it succeeds: a
+ * cached total, a query result or an entity tag is only valid for the version it was read at.
+ *
+ * <p>The version lives in this process only, so its entity tags hold for a single instance serving
+ * the catalog: behind a load balancer every instance hands out and checks tags of its own.
+ */
+@Component
+public class CatalogVersion {
+  private static final String ANY_TAG = "*";
+  private static final List<MediaType> REPRESENTATIONS =
+      List.of(APPLICATION_JSON, APPLICATION_CBOR);
+
+  // differs on every start, so tags handed out before a restart never match
+  private final String epoch = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+  private final AtomicLong modifications = new AtomicLong();
+
+  public long get() {
+    return modifications.get();
+  }
+
+  public long increment() {
+    return modifications.incrementAndGet();
+  }
+
+  /**
+   * Strong entity tag of the whole catalog in the given representation. Every write changes it when
+   * it starts and again when it succeeds, so no tag handed out before or during a write matches
+   * once the write is done.
+   */
+  public String getETag(MediaType representation) {
+    return getETag(modifications.get(), representation);
+  }
+
+  /**
+   * Starts a write when {@code ifMatch} is empty, holds {@code *} or holds a current tag, in any
+   * representation. The tag is checked and the version incremented in one step, so of the writers
+   * holding the same tag only one starts.
+   *
+   * @return whether the write may start
+   */
+  public boolean startWrite(List<String> ifMatch) {
+    if (ifMatch.isEmpty() || ifMatch.contains(ANY_TAG)) {
+      modifications.incrementAndGet();
+      return true;
+    }
+    var current = modifications.get();
+    return ifMatch.stream().anyMatch(tag -> isTagOf(tag, current))
+        && modifications.compareAndSet(current, current + 1);
+  }
+
+  private boolean isTagOf(String tag, long version) {
+    return REPRESENTATIONS.stream()
+        .anyMatch(representation -> tag.equals(getETag(version, representation)));
+  }
+
+  private String getETag(long version, MediaType representation) {
+    return "\"" + epoch + "-" + version + "-" + representation.getSubtype() + "\"";
+  }
+}
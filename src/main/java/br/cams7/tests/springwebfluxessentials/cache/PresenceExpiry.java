@@ -0,0 +1,34 @@
+package br.cams7.tests.springwebfluxessentials.cache;
+
+import com.github.benmanes.caffeine.cache.Expiry;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Expires cached values after {@code ttl} and cached misses (empty values) after {@code
+ * negativeTtl}.
+ */
+public class PresenceExpiry<K, V> implements Expiry<K, Optional<V>> {
+  private final long ttl;
+  private final long negativeTtl;
+
+  public PresenceExpiry(Duration ttl, Duration negativeTtl) {
+    this.ttl = ttl.toNanos();
+    this.negativeTtl = negativeTtl.toNanos();
+  }
+
+  @Override
+  public long expireAfterCreate(K key, Optional<V> value, long currentTime) {
+    return value.isPresent() ? ttl : negativeTtl;
+  }
+
+  @Override
+  public long expireAfterUpdate(K key, Optional<V> value, long currentTime, long currentDuration) {
+    return expireAfterCreate(key, value, currentTime);
+  }
+
+  @Override
+  public long expireAfterRead(K key, Optional<V> value, long currentTime, long currentDuration) {
+    return currentDuration;
+  }
+}
@@ -0,0 +1,248 @@
+package br.cams7.tests.springwebfluxessentials.codec;
+
+import br.cams7.tests.springwebfluxessentials.domain.Anime;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.AbstractDataBufferDecoder;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+
+/**
+ * Reads {@link Anime}s, and lists or sets of them, token by token without Jackson's bean
+ * introspection. Unknown fields are skipped, as the default decoders do. Subclasses choose the
+ * format through the {@link JsonFactory}.
+ *
+ * <p>A stream of animes is read from the whole body by default; subclasses whose format has a
+ * non-blocking parser emit every anime as soon as it is read.
+ */
+public abstract class AbstractAnimeDecoder extends AbstractDataBufferDecoder<Object> {
+  private final JsonFactory jsonFactory;
+
+  protected AbstractAnimeDecoder(JsonFactory jsonFactory, MimeType... mimeTypes) {
+    super(mimeTypes);
+    this.jsonFactory = jsonFactory;
+  }
+
+  @Override
+  public boolean canDecode(ResolvableType elementType, MimeType mimeType) {
+    // the JSON parser only detects UTF encodings
+    return super.canDecode(elementType, mimeType)
+        && (mimeType == null
+            || mimeType.getCharset() == null
+            || StandardCharsets.UTF_8.equals(mimeType.getCharset()))
+        && (isAnime(elementType) || isCollectionOfAnimes(elementType));
+  }
+
+  @Override
+  public Flux<Object> decode(
+      Publisher<DataBuffer> input,
+      ResolvableType elementType,
+      MimeType mimeType,
+      Map<String, Object> hints) {
+    if (!isAnime(elementType)) return Flux.from(decodeToMono(input, elementType, mimeType, hints));
+    return decodeAnimes(input, mimeType, hints).cast(Object.class);
+  }
+
+  /** Reads a stream of animes; by default from the whole body, once it was received. */
+  protected Flux<Anime> decodeAnimes(
+      Publisher<DataBuffer> input, MimeType mimeType, Map<String, Object> hints) {
+    return DataBufferUtils.join(input, getMaxInMemorySize())
+        .flatMapIterable(buffer -> read(buffer, Mode.STREAM));
+  }
+
+  @Override
+  public Object decode(
+      DataBuffer buffer, ResolvableType targetType, MimeType mimeType, Map<String, Object> hints) {
+    if (isAnime(targetType)) {
+      var animes = read(buffer, Mode.SINGLE);
+      if (animes.size() != 1) throw decodingError("expected exactly one anime", null);
+      return animes.get(0);
+    }
+
+    var animes = read(buffer, Mode.ARRAY);
+    Collection<Anime> collection =
+        targetType.toClass().isAssignableFrom(ArrayList.class)
+            ? new ArrayList<>(animes.size())
+            : new LinkedHashSet<>(animes.size());
+    collection.addAll(animes);
+    return collection;
+  }
+
+  protected JsonFactory getJsonFactory() {
+    return jsonFactory;
+  }
+
+  protected DecodingException decodingError(String message, Throwable cause) {
+    return new DecodingException(
+        jsonFactory.getFormatName() + " decoding error: " + message, cause);
+  }
+
+  private List<Anime> read(DataBuffer buffer, Mode mode) {
+    try (var parser = jsonFactory.createParser(buffer.asInputStream())) {
+      var reader = new AnimeReader(mode);
+      var animes = reader.read(parser);
+      reader.finish();
+      return animes;
+    } catch (IOException e) {
+      throw decodingError(e.getMessage(), e);
+    } finally {
+      DataBufferUtils.release(buffer);
+    }
+  }
+
+  private static boolean isAnime(ResolvableType type) {
+    return Anime.class.equals(type.toClass());
+  }
+
+  private static boolean isCollectionOfAnimes(ResolvableType type) {
+    var target = type.toClass();
+    return (target.isAssignableFrom(ArrayList.class)
+            || target.isAssignableFrom(LinkedHashSet.class))
+        && Collection.class.isAssignableFrom(target)
+        && Anime.class.equals(type.asCollection().getGeneric(0).toClass());
+  }
+
+  /** Turns the tokens read so far into animes, keeping the partial one for the next call. */
+  static class AnimeReader {
+    private final Mode mode;
+
+    private boolean inArray;
+    private int depth;
+    private String field;
+    private Anime anime;
+
+    private boolean arrayRead;
+
+    AnimeReader(Mode mode) {
+      this.mode = mode;
+    }
+
+    List<Anime> read(JsonParser parser) throws IOException {
+      var animes = new ArrayList<Anime>(1);
+      JsonToken token;
+      while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+        if (depth == 0) {
+          readRoot(parser, token);
+        } else if (depth == 1) {
+          if (readField(parser, token)) animes.add(anime);
+        } else {
+          // inside a value of an unknown field
+          if (token.isStructStart()) depth++;
+          else if (token.isStructEnd()) depth--;
+        }
+      }
+      return animes;
+    }
+
+    /** Fails unless the input had the structure of the mode, e.g. an array for {@code ARRAY}. */
+    void finish() {
+      if (mode == Mode.ARRAY && !arrayRead)
+        throw new DecodingException("Expected an array of animes");
+    }
+
+    private void readRoot(JsonParser parser, JsonToken token) throws IOException {
+      if (token == JsonToken.START_OBJECT && (inArray || mode != Mode.ARRAY)) {
+        anime = new Anime();
+        depth = 1;
+      } else if (token == JsonToken.START_ARRAY
+          && !inArray
+          && (mode == Mode.STREAM || (mode == Mode.ARRAY && !arrayRead))) {
+        inArray = true;
+        arrayRead = true;
+      } else if (inArray && token == JsonToken.END_ARRAY) inArray = false;
+      else throw new DecodingException("Expected an anime but found " + describe(parser, token));
+    }
+
+    /** Returns {@code true} once the anime is complete. */
+    private boolean readField(JsonParser parser, JsonToken token) throws IOException {
+      if (token == JsonToken.END_OBJECT) {
+        depth = 0;
+        field = null;
+        return true;
+      }
+      if (token == JsonToken.FIELD_NAME) {
+        field = parser.getCurrentName();
+        return false;
+      }
+      if (token.isStructStart()) {
+        if (isKnownField()) throw invalidValue(parser, token);
+        depth++;
+        return false;
+      }
+
+      if (field == null) return false;
+      switch (field) {
+        case "id":
+          anime.setId(token == JsonToken.VALUE_NULL ? null : readLong(parser, token));
+          break;
+        case "name":
+          anime.setName(readString(parser, token));
+          break;
+        case "publicationYear":
+          anime.setPublicationYear(token == JsonToken.VALUE_NULL ? null : readShort(parser, token));
+          break;
+        default:
+          break;
+      }
+      return false;
+    }
+
+    private boolean isKnownField() {
+      return "id".equals(field) || "name".equals(field) || "publicationYear".equals(field);
+    }
+
+    private static long readLong(JsonParser parser, JsonToken token) throws IOException {
+      try {
+        if (token == JsonToken.VALUE_NUMBER_INT) return parser.getLongValue();
+        if (token == JsonToken.VALUE_STRING) return Long.parseLong(parser.getText().trim());
+      } catch (IOException | NumberFormatException e) {
+        throw invalidValue(parser, token);
+      }
+      throw invalidValue(parser, token);
+    }
+
+    private static short readShort(JsonParser parser, JsonToken token) throws IOException {
+      var value = readLong(parser, token);
+      if (value < Short.MIN_VALUE || value > Short.MAX_VALUE) throw invalidValue(parser, token);
+      return (short) value;
+    }
+
+    private static String readString(JsonParser parser, JsonToken token) throws IOException {
+      if (token == JsonToken.VALUE_NULL) return null;
+      if (token.isScalarValue()) return parser.getText();
+      throw invalidValue(parser, token);
+    }
+
+    private static DecodingException invalidValue(JsonParser parser, JsonToken token)
+        throws IOException {
+      return new DecodingException(
+          "Invalid value for " + parser.getCurrentName() + ": " + describe(parser, token));
+    }
+
+    private static String describe(JsonParser parser, JsonToken token) throws IOException {
+      return token.isScalarValue() ? parser.getText() : token.asString();
+    }
+  }
+
+  enum Mode {
+    /** Exactly one anime. */
+    SINGLE,
+    /** One array of animes. */
+    ARRAY,
+    /** Any sequence of animes and arrays of animes, e.g. one anime per line. */
+    STREAM
+  }
+}
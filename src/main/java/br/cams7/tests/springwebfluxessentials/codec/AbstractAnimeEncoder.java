@@ -0,0 +1,195 @@
+package br.cams7.tests.springwebfluxessentials.codec;
+
+import br.cams7.tests.springwebfluxessentials.domain.Anime;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.AbstractEncoder;
+import org.springframework.core.codec.EncodingException;
+import org.springframework.core.codec.Hints;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.log.LogFormatUtils;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Writes {@link Anime}s and slices or pages of them straight to the response buffers, field by
+ * field in a fixed order, without Jackson's bean introspection. Subclasses choose the format
+ * through the {@link JsonFactory} and how a stream of animes is framed.
+ *
+ * <p>Pages keep the fields the default serialization had, except {@code sort}, and their {@code
+ * pageable} only has the offset, the page number and the page size.
+ */
+public abstract class AbstractAnimeEncoder extends AbstractEncoder<Object> {
+  private final JsonFactory jsonFactory;
+  private final byte[] arrayStart;
+  private final byte[] separator;
+  private final byte[] arrayEnd;
+  private final byte[] emptyArray;
+
+  /**
+   * @param arrayStart written before the first anime of a stream
+   * @param separator written between two animes of a stream
+   * @param arrayEnd written after the last anime of a stream
+   * @param emptyArray written for a stream without animes
+   */
+  protected AbstractAnimeEncoder(
+      JsonFactory jsonFactory,
+      byte[] arrayStart,
+      byte[] separator,
+      byte[] arrayEnd,
+      byte[] emptyArray,
+      MimeType... mimeTypes) {
+    super(mimeTypes);
+    this.jsonFactory = jsonFactory;
+    this.arrayStart = arrayStart;
+    this.separator = separator;
+    this.arrayEnd = arrayEnd;
+    this.emptyArray = emptyArray;
+  }
+
+  /**
+   * The bytes written after every anime when a stream of them is sent as separate values instead of
+   * an array, or {@code null} to always send an array.
+   */
+  protected byte[] getStreamingDelimiter(MimeType mimeType) {
+    return null;
+  }
+
+  @Override
+  public boolean canEncode(ResolvableType elementType, MimeType mimeType) {
+    // the JSON generator always writes UTF-8
+    return super.canEncode(elementType, mimeType)
+        && (mimeType == null
+            || mimeType.getCharset() == null
+            || StandardCharsets.UTF_8.equals(mimeType.getCharset()))
+        && (isAnime(elementType) || isSliceOfAnimes(elementType));
+  }
+
+  @Override
+  public Flux<DataBuffer> encode(
+      Publisher<?> input,
+      DataBufferFactory bufferFactory,
+      ResolvableType elementType,
+      MimeType mimeType,
+      Map<String, Object> hints) {
+    if (input instanceof Mono)
+      return Mono.from(input)
+          .map(value -> encodeValue(value, bufferFactory, elementType, mimeType, hints))
+          .flux();
+
+    var delimiter = getStreamingDelimiter(mimeType);
+    if (delimiter != null)
+      return Flux.from(input)
+          .map(value -> encodeValue(value, bufferFactory, null, hints).write(delimiter));
+
+    return Flux.defer(
+        () -> {
+          var first = new boolean[] {true};
+          return Flux.from(input)
+              .map(
+                  value -> {
+                    var prefix = first[0] ? arrayStart : separator;
+                    first[0] = false;
+                    return encodeValue(value, bufferFactory, prefix, hints);
+                  })
+              .concatWith(
+                  Mono.fromSupplier(() -> bufferFactory.wrap(first[0] ? emptyArray : arrayEnd)));
+        });
+  }
+
+  @Override
+  public DataBuffer encodeValue(
+      Object value,
+      DataBufferFactory bufferFactory,
+      ResolvableType valueType,
+      MimeType mimeType,
+      Map<String, Object> hints) {
+    return encodeValue(value, bufferFactory, null, hints);
+  }
+
+  private DataBuffer encodeValue(
+      Object value, DataBufferFactory bufferFactory, byte[] prefix, Map<String, Object> hints) {
+    if (!Hints.isLoggingSuppressed(hints))
+      LogFormatUtils.traceDebug(
+          logger,
+          traceOn -> {
+            var formatted = LogFormatUtils.formatValue(value, !traceOn);
+            return Hints.getLogPrefix(hints) + "Encoding [" + formatted + "]";
+          });
+
+    var buffer = bufferFactory.allocateBuffer();
+    var release = true;
+    try {
+      if (prefix != null && prefix.length > 0) buffer.write(prefix);
+      try (var generator = jsonFactory.createGenerator(buffer.asOutputStream())) {
+        if (value instanceof Anime) writeAnime(generator, (Anime) value);
+        else writeSlice(generator, (Slice<?>) value);
+      }
+      release = false;
+      return buffer;
+    } catch (IOException e) {
+      throw new EncodingException("JSON encoding error: " + e.getMessage(), e);
+    } finally {
+      if (release) DataBufferUtils.release(buffer);
+    }
+  }
+
+  static void writeAnime(JsonGenerator generator, Anime anime) throws IOException {
+    generator.writeStartObject();
+    generator.writeFieldName("id");
+    if (anime.getId() != null) generator.writeNumber(anime.getId());
+    else generator.writeNull();
+    generator.writeStringField("name", anime.getName());
+    generator.writeFieldName("publicationYear");
+    if (anime.getPublicationYear() != null) generator.writeNumber(anime.getPublicationYear());
+    else generator.writeNull();
+    generator.writeEndObject();
+  }
+
+  private static void writeSlice(JsonGenerator generator, Slice<?> slice) throws IOException {
+    generator.writeStartObject();
+    generator.writeArrayFieldStart("content");
+    for (var anime : slice.getContent()) writeAnime(generator, (Anime) anime);
+    generator.writeEndArray();
+
+    var pageable = slice.getPageable();
+    if (pageable.isPaged()) {
+      generator.writeObjectFieldStart("pageable");
+      generator.writeNumberField("offset", pageable.getOffset());
+      generator.writeNumberField("pageNumber", pageable.getPageNumber());
+      generator.writeNumberField("pageSize", pageable.getPageSize());
+      generator.writeEndObject();
+    }
+    if (slice instanceof Page) {
+      var page = (Page<?>) slice;
+      generator.writeNumberField("totalElements", page.getTotalElements());
+      generator.writeNumberField("totalPages", page.getTotalPages());
+    }
+    generator.writeNumberField("number", slice.getNumber());
+    generator.writeNumberField("size", slice.getSize());
+    generator.writeNumberField("numberOfElements", slice.getNumberOfElements());
+    generator.writeBooleanField("first", slice.isFirst());
+    generator.writeBooleanField("last", slice.isLast());
+    generator.writeBooleanField("empty", slice.isEmpty());
+    generator.writeEndObject();
+  }
+
+  private static boolean isAnime(ResolvableType type) {
+    return Anime.class.isAssignableFrom(type.toClass());
+  }
+
+  private static boolean isSliceOfAnimes(ResolvableType type) {
+    return Slice.class.isAssignableFrom(type.toClass())
+        && Anime.class.isAssignableFrom(type.as(Slice.class).getGeneric(0).toClass());
+  }
+}
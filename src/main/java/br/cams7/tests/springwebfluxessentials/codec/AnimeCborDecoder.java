@@ -0,0 +1,15 @@
+package br.cams7.tests.springwebfluxessentials.codec;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.http.MediaType;
+
+/**
+ * CBOR version of {@link AbstractAnimeDecoder}. Jackson has no non-blocking CBOR parser, so a
+ * stream of animes is read once the whole body was received, within the in-memory limit.
+ */
+public class AnimeCborDecoder extends AbstractAnimeDecoder {
+
+  public AnimeCborDecoder(CBORFactory cborFactory) {
+    super(cborFactory, MediaType.APPLICATION_CBOR);
+  }
+}
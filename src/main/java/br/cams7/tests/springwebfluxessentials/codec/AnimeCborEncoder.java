@@ -0,0 +1,20 @@
+package br.cams7.tests.springwebfluxessentials.codec;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.springframework.http.MediaType;
+
+/**
+ * CBOR version of {@link AbstractAnimeEncoder}. A stream of animes is written as an
+ * indefinite-length array, so it can be sent before its size is known.
+ */
+public class AnimeCborEncoder extends AbstractAnimeEncoder {
+  // major type 4 (array): 0x9f starts one of indefinite length, 0xff ends it, 0x80 is empty
+  private static final byte[] ARRAY_START = {(byte) 0x9f};
+  private static final byte[] ARRAY_END = {(byte) 0xff};
+  private static final byte[] EMPTY_ARRAY = {(byte) 0x80};
+
+  public AnimeCborEncoder(CBORFactory cborFactory) {
+    super(
+        cborFactory, ARRAY_START, new byte[0], ARRAY_END, EMPTY_ARRAY, MediaType.APPLICATION_CBOR);
+  }
+}
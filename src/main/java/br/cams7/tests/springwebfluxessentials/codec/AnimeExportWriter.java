@@ -0,0 +1,180 @@
+package br.cams7.tests.springwebfluxessentials.codec;
+
+import br.cams7.tests.springwebfluxessentials.domain.Anime;
+import br.cams7.tests.springwebfluxessentials.utils.ExportFormat;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Writes a stream of animes as CSV or NDJSON, optionally gzipped, straight into data buffers. Rows
+ * are grouped so each buffer holds many of them, and only the rows of the buffer being written are
+ * held in memory, whatever the size of the catalog.
+ */
+public class AnimeExportWriter {
+  private static final String CSV_HEADER = "id,name,publication_year\r\n";
+
+  private final JsonFactory jsonFactory;
+  private final int rowsPerBuffer;
+
+  /**
+   * @param rowsPerBuffer how many animes are written into each emitted buffer.
+   */
+  public AnimeExportWriter(JsonFactory jsonFactory, int rowsPerBuffer) {
+    this.jsonFactory = jsonFactory;
+    this.rowsPerBuffer = rowsPerBuffer;
+  }
+
+  public Flux<DataBuffer> write(
+      Flux<Anime> animes, ExportFormat format, boolean gzip, DataBufferFactory bufferFactory) {
+    return Flux.using(
+        () -> new Export(format, gzip, bufferFactory),
+        export ->
+            Flux.concat(
+                    Mono.fromCallable(export::start),
+                    animes.buffer(rowsPerBuffer).map(export::write),
+                    Mono.fromCallable(export::finish))
+                .filter(
+                    buffer -> {
+                      if (buffer.readableByteCount() > 0) return true;
+                      DataBufferUtils.release(buffer);
+                      return false;
+                    }),
+        Export::close);
+  }
+
+  private static void writeCsv(Writer writer, Anime anime) throws IOException {
+    writer.write(String.valueOf(anime.getId()));
+    writer.write(',');
+    var name = anime.getName();
+    if (name != null) {
+      if (name.indexOf(',') >= 0
+          || name.indexOf('"') >= 0
+          || name.indexOf('\n') >= 0
+          || name.indexOf('\r') >= 0) {
+        writer.write('"');
+        writer.write(name.replace("\"", "\"\""));
+        writer.write('"');
+      } else writer.write(name);
+    }
+    writer.write(',');
+    if (anime.getPublicationYear() != null) writer.write(anime.getPublicationYear().toString());
+    writer.write("\r\n");
+  }
+
+  /** The state of one export; every write goes to the buffer currently being filled. */
+  private class Export {
+    private final ExportFormat format;
+    private final boolean gzip;
+    private final DataBufferFactory bufferFactory;
+    private final int bufferSize;
+    private final BufferOutputStream target = new BufferOutputStream();
+    private OutputStream output;
+    private Writer writer;
+    private JsonGenerator generator;
+
+    Export(ExportFormat format, boolean gzip, DataBufferFactory bufferFactory) {
+      this.format = format;
+      this.gzip = gzip;
+      this.bufferFactory = bufferFactory;
+      // about the size of a row, or of a compressed row
+      this.bufferSize = rowsPerBuffer * (gzip ? 16 : 48);
+    }
+
+    /** Opens the streams, which writes the gzip header, and the CSV header. */
+    DataBuffer start() {
+      return fill(
+          () -> {
+            output = gzip ? new GZIPOutputStream(target) : target;
+            if (ExportFormat.CSV.equals(format)) {
+              writer = new OutputStreamWriter(output, StandardCharsets.UTF_8);
+              writer.write(CSV_HEADER);
+            } else {
+              generator = jsonFactory.createGenerator(output);
+              generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+              // lines are separated by the new line alone
+              generator.setRootValueSeparator(null);
+            }
+          });
+    }
+
+    DataBuffer write(List<Anime> animes) {
+      return fill(
+          () -> {
+            for (var anime : animes)
+              if (writer != null) writeCsv(writer, anime);
+              else {
+                AbstractAnimeEncoder.writeAnime(generator, anime);
+                generator.writeRaw('\n');
+              }
+          });
+    }
+
+    DataBuffer finish() {
+      return fill(
+          () -> {
+            if (output instanceof GZIPOutputStream) ((GZIPOutputStream) output).finish();
+          });
+    }
+
+    void close() {
+      try {
+        if (generator != null) generator.close();
+        if (output != null) output.close();
+      } catch (IOException e) {
+        // nothing is written anymore
+      }
+    }
+
+    private DataBuffer fill(Content content) {
+      var buffer = bufferFactory.allocateBuffer(bufferSize);
+      target.buffer = buffer;
+      try {
+        content.write();
+        if (writer != null) writer.flush();
+        if (generator != null) generator.flush();
+        return buffer;
+      } catch (IOException e) {
+        DataBufferUtils.release(buffer);
+        throw new UncheckedIOException("Could not export the animes as " + format, e);
+      } finally {
+        target.buffer = null;
+      }
+    }
+  }
+
+  @FunctionalInterface
+  private interface Content {
+    void write() throws IOException;
+  }
+
+  /**
+   * Writes into whichever buffer is being filled, so one gzip stream can span many buffers. Bytes
+   * written between buffers, i.e. while closing a cancelled export, are dropped.
+   */
+  private static class BufferOutputStream extends OutputStream {
+    private DataBuffer buffer;
+
+    @Override
+    public void write(int b) {
+      if (buffer != null) buffer.write((byte) b);
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) {
+      if (buffer != null) buffer.write(bytes, offset, length);
+    }
+  }
+}
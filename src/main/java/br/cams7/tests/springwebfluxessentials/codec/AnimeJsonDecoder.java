@@ -0,0 +1,85 @@
+package br.cams7.tests.springwebfluxessentials.codec;
+
+import br.cams7.tests.springwebfluxessentials.domain.Anime;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import java.io.IOException;
+import java.util.Map;
+import org.reactivestreams.Publisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+
+/**
+ * JSON version of {@link AbstractAnimeDecoder}. A stream of animes, either a JSON array or one
+ * anime per line, is parsed as its buffers arrive, and every anime is emitted as soon as its
+ * closing brace is read. Only a single anime is limited by {@link #getMaxInMemorySize()}, not the
+ * whole stream.
+ */
+public class AnimeJsonDecoder extends AbstractAnimeDecoder {
+
+  public AnimeJsonDecoder(JsonFactory jsonFactory) {
+    super(jsonFactory, AnimeJsonEncoder.MIME_TYPES.toArray(MimeType[]::new));
+  }
+
+  @Override
+  protected Flux<Anime> decodeAnimes(
+      Publisher<DataBuffer> input, MimeType mimeType, Map<String, Object> hints) {
+    return Flux.defer(
+        () -> {
+          JsonParser parser;
+          try {
+            parser = getJsonFactory().createNonBlockingByteArrayParser();
+          } catch (IOException e) {
+            return Flux.error(decodingError("could not create the parser", e));
+          }
+          var reader = new AnimeReader(Mode.STREAM);
+          var feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+          // bytes fed since an anime was last emitted, so a single endless anime can't fill the
+          // heap
+          var pending = new long[1];
+          return Flux.from(input)
+              .concatMapIterable(
+                  buffer -> {
+                    try {
+                      var bytes = new byte[buffer.readableByteCount()];
+                      buffer.read(bytes);
+                      feeder.feedInput(bytes, 0, bytes.length);
+                      var animes = reader.read(parser);
+                      pending[0] = animes.isEmpty() ? pending[0] + bytes.length : 0;
+                      var limit = getMaxInMemorySize();
+                      if (limit >= 0 && pending[0] > limit)
+                        throw new DataBufferLimitException(
+                            "Exceeded limit on max bytes per anime: " + limit);
+                      return animes;
+                    } catch (IOException e) {
+                      throw decodingError(e.getMessage(), e);
+                    } finally {
+                      DataBufferUtils.release(buffer);
+                    }
+                  })
+              .concatWith(
+                  Flux.defer(
+                      () -> {
+                        try {
+                          feeder.endOfInput();
+                          return Flux.fromIterable(reader.read(parser));
+                        } catch (IOException e) {
+                          return Flux.error(decodingError(e.getMessage(), e));
+                        }
+                      }))
+              .doFinally(signal -> closeQuietly(parser));
+        });
+  }
+
+  private static void closeQuietly(JsonParser parser) {
+    try {
+      parser.close();
+    } catch (IOException e) {
+      // nothing left to read
+    }
+  }
+}
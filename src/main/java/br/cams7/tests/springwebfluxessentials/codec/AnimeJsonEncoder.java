@@ -0,0 +1,32 @@
+package br.cams7.tests.springwebfluxessentials.codec;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import java.util.List;
+import org.springframework.http.MediaType;
+import org.springframework.util.MimeType;
+
+/**
+ * JSON version of {@link AbstractAnimeEncoder}. A stream of animes is written as a JSON array, or
+ * as one anime per line for {@code application/x-ndjson}.
+ */
+public class AnimeJsonEncoder extends AbstractAnimeEncoder {
+  static final List<MimeType> MIME_TYPES =
+      List.of(MediaType.APPLICATION_JSON, MediaType.APPLICATION_NDJSON);
+
+  private static final byte[] NEW_LINE = {'\n'};
+
+  public AnimeJsonEncoder(JsonFactory jsonFactory) {
+    super(
+        jsonFactory,
+        new byte[] {'['},
+        new byte[] {','},
+        new byte[] {']'},
+        new byte[] {'[', ']'},
+        MIME_TYPES.toArray(MimeType[]::new));
+  }
+
+  @Override
+  protected byte[] getStreamingDelimiter(MimeType mimeType) {
+    return MediaType.APPLICATION_NDJSON.isCompatibleWith(mimeType) ? NEW_LINE : null;
+  }
+}
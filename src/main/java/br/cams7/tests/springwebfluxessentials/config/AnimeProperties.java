@@ -0,0 +1,94 @@
+package br.cams7.tests.springwebfluxessentials.config;
+
+import br.cams7.tests.springwebfluxessentials.utils.CountStrategy;
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "animes")
+public class AnimeProperties {
+
+  private final Pagination pagination = new Pagination();
+
+  private final Streaming streaming = new Streaming();
+
+  private final Cache cache = new Cache();
+
+  private final Batch batch = new Batch();
+
+  private final Export export = new Export();
+
+  private final Loader loader = new Loader();
+
+  private final Updates updates = new Updates();
+
+  @Data
+  public static class Pagination {
+    /** Strategy used when the request doesn't choose one. */
+    private CountStrategy countStrategy = CountStrategy.EXACT;
+
+    /** How long a cached total is trusted, so writes made by other nodes are picked up. */
+    private Duration countCacheTtl = Duration.ofMinutes(1);
+  }
+
+  @Data
+  public static class Streaming {
+    /** Rows the database cursor sends per round trip. */
+    private int fetchSize = 100;
+
+    /** Rows requested ahead from the cursor while the client is still reading. */
+    private int prefetch = 256;
+  }
+
+  @Data
+  public static class Cache {
+    /** Maximum number of ids kept by the findById cache; 0 disables caching. */
+    private long maximumSize = 10_000;
+
+    /** How long a found anime is served from the cache. */
+    private Duration ttl = Duration.ofMinutes(10);
+
+    /** How long an unknown id keeps answering 404 from the cache. */
+    private Duration negativeTtl = Duration.ofSeconds(30);
+  }
+
+  @Data
+  public static class Batch {
+    /** Animes written by each multi-row INSERT of the batch and import endpoints. */
+    private int chunkSize = 500;
+  }
+
+  @Data
+  public static class Export {
+    /** Rows the database cursor sends per round trip while exporting. */
+    private int fetchSize = 1000;
+
+    /** Animes written into each buffer of the response. */
+    private int rowsPerBuffer = 500;
+  }
+
+  @Data
+  public static class Loader {
+    /**
+     * Most ids bound into one IN query, whether batched or requested by GET and DELETE
+     * /animes?ids=.
+     */
+    private int maxBatchSize = 100;
+
+    /**
+     * How long a findById waits for others to be read in the same query; 0 reads every id on its
+     * own.
+     */
+    private Duration maxWait = Duration.ZERO;
+  }
+
+  @Data
+  public static class Updates {
+    /**
+     * How long an update waits for others of the same anime, of which only the last one is written;
+     * 0 writes every update on its own.
+     */
+    private Duration coalesceWindow = Duration.ZERO;
+  }
+}
@@ -0,0 +1,38 @@
+package br.cams7.tests.springwebfluxessentials.config;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "authentication")
+public class AuthenticationProperties {
+
+  private final Cache cache = new Cache();
+
+  private final Token token = new Token();
+
+  @Data
+  public static class Cache {
+    /** Maximum number of usernames kept by the user details cache; 0 disables caching. */
+    private long maximumSize = 1_000;
+
+    /** How long a user is authenticated without reading tb_user, so changes may take this long. */
+    private Duration ttl = Duration.ofMinutes(5);
+
+    /** How long an unknown username is rejected from the cache. */
+    private Duration negativeTtl = Duration.ofSeconds(30);
+  }
+
+  @Data
+  public static class Token {
+    /**
+     * Key used to sign bearer tokens. When empty a random key is generated at startup, so tokens
+     * don't survive a restart and aren't accepted by other nodes.
+     */
+    private String secret;
+
+    /** How long an issued token is valid; authorities changed meanwhile only apply afterwards. */
+    private Duration ttl = Duration.ofMinutes(15);
+  }
+}
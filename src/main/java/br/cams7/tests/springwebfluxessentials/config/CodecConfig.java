@@ -0,0 +1,70 @@
+package br.cams7.tests.springwebfluxessentials.config;
+
+import br.cams7.tests.springwebfluxessentials.codec.AnimeCborDecoder;
+import br.cams7.tests.springwebfluxessentials.codec.AnimeCborEncoder;
+import br.cams7.tests.springwebfluxessentials.codec.AnimeExportWriter;
+import br.cams7.tests.springwebfluxessentials.codec.AnimeJsonDecoder;
+import br.cams7.tests.springwebfluxessentials.codec.AnimeJsonEncoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.rsocket.messaging.RSocketStrategiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.reactive.config.WebFluxConfigurer;
+
+/**
+ * Registers the anime codecs ahead of the Jackson ones, so the anime endpoints skip the reflective
+ * serialization and can also exchange CBOR, a compact binary alternative to JSON. Every other type
+ * still goes through Jackson, as JSON only over HTTP. RSocket payloads get the same codecs.
+ */
+@Configuration
+@RequiredArgsConstructor
+public class CodecConfig implements WebFluxConfigurer {
+  private final ObjectMapper objectMapper;
+  private final Jackson2ObjectMapperBuilder objectMapperBuilder;
+
+  @Override
+  public void configureHttpMessageCodecs(ServerCodecConfigurer configurer) {
+    // the factory of Spring Boot's mapper, so generator and parser features stay the same
+    var jsonFactory = objectMapper.getFactory();
+    var cborFactory = getCborFactory();
+
+    var codecs = configurer.customCodecs();
+    codecs.registerWithDefaultConfig(new AnimeJsonEncoder(jsonFactory));
+    codecs.registerWithDefaultConfig(new AnimeJsonDecoder(jsonFactory));
+    codecs.registerWithDefaultConfig(new AnimeCborEncoder(cborFactory));
+    codecs.registerWithDefaultConfig(new AnimeCborDecoder(cborFactory));
+  }
+
+  /** CBOR first, since it is the default data format of RSocket requesters. */
+  @Bean
+  public RSocketStrategiesCustomizer animeRSocketStrategiesCustomizer() {
+    return strategies -> {
+      var jsonFactory = objectMapper.getFactory();
+      var cborFactory = getCborFactory();
+      strategies.encoders(
+          encoders -> {
+            encoders.add(0, new AnimeJsonEncoder(jsonFactory));
+            encoders.add(0, new AnimeCborEncoder(cborFactory));
+          });
+      strategies.decoders(
+          decoders -> {
+            decoders.add(0, new AnimeJsonDecoder(jsonFactory));
+            decoders.add(0, new AnimeCborDecoder(cborFactory));
+          });
+    };
+  }
+
+  @Bean
+  public AnimeExportWriter animeExportWriter(AnimeProperties properties) {
+    return new AnimeExportWriter(
+        objectMapper.getFactory(), properties.getExport().getRowsPerBuffer());
+  }
+
+  private CBORFactory getCborFactory() {
+    return (CBORFactory) objectMapperBuilder.factory(new CBORFactory()).build().getFactory();
+  }
+}
@@ -0,0 +1,82 @@
+package br.cams7.tests.springwebfluxessentials.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.Option;
+import io.r2dbc.spi.ValidationDepth;
+import java.time.Duration;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcProperties;
+import org.springframework.boot.r2dbc.ConnectionFactoryBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+
+/**
+ * Replaces the pool Spring Boot would create from {@code spring.r2dbc.*}, adding a warm-up,
+ * background eviction of idle connections, a bounded queue of waiting requests and acquire latency
+ * metrics. The driver options of {@code spring.r2dbc.properties} are passed on, and with {@code
+ * spring.r2dbc.pool.enabled=false} it backs off, leaving Spring Boot's unpooled connection factory.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(
+    prefix = "spring.r2dbc.pool",
+    name = "enabled",
+    havingValue = "true",
+    matchIfMissing = true)
+public class ConnectionPoolConfig {
+  private static final String POOL_NAME = "connectionFactory";
+
+  // nobody should wait for a connection forever
+  private static final Duration DEFAULT_MAX_ACQUIRE_TIME = Duration.ofSeconds(5);
+
+  @Bean(destroyMethod = "dispose")
+  public MeteredConnectionFactory connectionFactory(
+      R2dbcProperties properties, ConnectionPoolProperties poolProperties, MeterRegistry registry) {
+    var connectionFactory =
+        ConnectionFactoryBuilder.withUrl(properties.getUrl())
+            .username(properties.getUsername())
+            .password(properties.getPassword())
+            .configure(
+                options ->
+                    properties
+                        .getProperties()
+                        .forEach((key, value) -> options.option(Option.valueOf(key), value)))
+            .build();
+
+    var settings = properties.getPool();
+    var configuration =
+        ConnectionPoolConfiguration.builder(connectionFactory)
+            .name(POOL_NAME)
+            .initialSize(settings.getInitialSize())
+            .maxSize(settings.getMaxSize())
+            .maxIdleTime(settings.getMaxIdleTime())
+            .maxAcquireTime(
+                settings.getMaxAcquireTime() != null
+                    ? settings.getMaxAcquireTime()
+                    : DEFAULT_MAX_ACQUIRE_TIME)
+            .backgroundEvictionInterval(poolProperties.getBackgroundEvictionInterval())
+            .customizer(pool -> pool.maxPendingAcquire(poolProperties.getMaxPendingAcquire()));
+    if (settings.getMaxLifeTime() != null) configuration.maxLifeTime(settings.getMaxLifeTime());
+    if (settings.getMaxCreateConnectionTime() != null)
+      configuration.maxCreateConnectionTime(settings.getMaxCreateConnectionTime());
+    // connections are validated when they are taken from the idle set
+    if (StringUtils.hasText(settings.getValidationQuery()))
+      configuration.validationQuery(settings.getValidationQuery());
+    configuration.validationDepth(
+        settings.getValidationDepth() != null
+            ? settings.getValidationDepth()
+            : ValidationDepth.LOCAL);
+
+    var pool = new ConnectionPool(configuration.build());
+    if (poolProperties.isWarmup())
+      pool.warmup()
+          .subscribe(
+              connections -> log.info("Warmed up {} with {} connections", POOL_NAME, connections),
+              error -> log.warn("Couldn't warm up {}", POOL_NAME, error));
+    return new MeteredConnectionFactory(pool, POOL_NAME, registry);
+  }
+}
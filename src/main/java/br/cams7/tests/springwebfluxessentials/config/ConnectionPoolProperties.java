@@ -0,0 +1,20 @@
+package br.cams7.tests.springwebfluxessentials.config;
+
+import java.time.Duration;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/** Pool settings not covered by {@code spring.r2dbc.pool}. */
+@Data
+@ConfigurationProperties(prefix = "connection-pool")
+public class ConnectionPoolProperties {
+
+  /** Requests allowed to wait for a connection; further ones fail at once. */
+  private int maxPendingAcquire = 1_000;
+
+  /** How often idle connections past {@code spring.r2dbc.pool.max-idle-time} are closed. */
+  private Duration backgroundEvictionInterval = Duration.ofMinutes(1);
+
+  /** Opens {@code spring.r2dbc.pool.initial-size} connections at startup. */
+  private boolean warmup = true;
+}
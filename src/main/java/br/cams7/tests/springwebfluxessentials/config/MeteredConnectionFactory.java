@@ -0,0 +1,80 @@
+package br.cams7.tests.springwebfluxessentials.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import io.r2dbc.spi.Wrapped;
+import java.util.concurrent.TimeUnit;
+import org.springframework.boot.actuate.metrics.r2dbc.ConnectionPoolMetrics;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+/**
+ * Times how long callers wait to get a connection from the pool, as the {@code r2dbc.pool.acquire}
+ * timer tagged with the pool name and {@code outcome} (success or failure, e.g. an acquire
+ * timeout), and binds the {@code r2dbc.pool.*} gauges of acquired, idle and pending connections.
+ */
+public class MeteredConnectionFactory
+    implements ConnectionFactory, Wrapped<ConnectionFactory>, Disposable {
+  private static final String ACQUIRE_METRIC = "r2dbc.pool.acquire";
+
+  private final ConnectionPool pool;
+  private final Timer acquired;
+  private final Timer failed;
+
+  public MeteredConnectionFactory(ConnectionPool pool, String name, MeterRegistry registry) {
+    this.pool = pool;
+    this.acquired = acquireTimer(name, "success", registry);
+    this.failed = acquireTimer(name, "failure", registry);
+    // Spring Boot only binds them for pools that are beans themselves
+    new ConnectionPoolMetrics(pool, name, Tags.empty()).bindTo(registry);
+  }
+
+  @Override
+  public Mono<Connection> create() {
+    return Mono.defer(
+        () -> {
+          var start = System.nanoTime();
+          return pool.create()
+              .doOnSuccess(connection -> record(acquired, start))
+              .doOnError(error -> record(failed, start));
+        });
+  }
+
+  @Override
+  public ConnectionFactoryMetadata getMetadata() {
+    return pool.getMetadata();
+  }
+
+  @Override
+  public ConnectionFactory unwrap() {
+    return pool;
+  }
+
+  @Override
+  public void dispose() {
+    pool.dispose();
+  }
+
+  @Override
+  public boolean isDisposed() {
+    return pool.isDisposed();
+  }
+
+  private static void record(Timer timer, long start) {
+    timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+  }
+
+  private static Timer acquireTimer(String name, String outcome, MeterRegistry registry) {
+    return Timer.builder(ACQUIRE_METRIC)
+        .description("Time waited for a pooled connection")
+        .tag("name", name)
+        .tag("outcome", outcome)
+        .publishPercentileHistogram()
+        .register(registry);
+  }
+}
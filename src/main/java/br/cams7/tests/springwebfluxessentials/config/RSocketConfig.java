@@ -0,0 +1,17 @@
+package br.cams7.tests.springwebfluxessentials.config;
+
+import javax.validation.Validator;
+import org.springframework.boot.autoconfigure.rsocket.RSocketMessageHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.validation.beanvalidation.SpringValidatorAdapter;
+
+@Configuration
+public class RSocketConfig {
+
+  /** Validates {@code @Valid} payloads, element by element for streams, like the HTTP bodies. */
+  @Bean
+  public RSocketMessageHandlerCustomizer validatingMessageHandlerCustomizer(Validator validator) {
+    return messageHandler -> messageHandler.setValidator(new SpringValidatorAdapter(validator));
+  }
+}
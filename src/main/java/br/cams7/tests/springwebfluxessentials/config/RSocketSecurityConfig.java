@@ -0,0 +1,143 @@
+package br.cams7.tests.springwebfluxessentials.config;
+
+import br.cams7.tests.springwebfluxessentials.security.TokenService;
+import io.netty.buffer.ByteBuf;
+import io.rsocket.ConnectionSetupPayload;
+import io.rsocket.Payload;
+import io.rsocket.RSocket;
+import io.rsocket.exceptions.RejectedSetupException;
+import io.rsocket.metadata.AuthMetadataCodec;
+import io.rsocket.metadata.CompositeMetadata;
+import io.rsocket.metadata.WellKnownAuthType;
+import io.rsocket.metadata.WellKnownMimeType;
+import io.rsocket.util.RSocketProxy;
+import lombok.RequiredArgsConstructor;
+import org.reactivestreams.Publisher;
+import org.springframework.boot.rsocket.server.RSocketServerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.authentication.ReactiveAuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+/**
+ * Authenticates every RSocket connection with the {@code message/x.rsocket.authentication.v0}
+ * metadata of its setup frame: either a username and password or a token issued by {@code
+ * /auth/token}. Connections without valid credentials are rejected.
+ *
+ * <p>Requests then run with that authentication, so the {@code @PreAuthorize} roles of the RSocket
+ * handlers are checked like the HTTP ones. Tokens are only verified at setup, so a connection may
+ * outlive the token it was opened with.
+ */
+@Configuration
+@RequiredArgsConstructor
+public class RSocketSecurityConfig {
+  private static final String AUTHENTICATION_MIME_TYPE =
+      WellKnownMimeType.MESSAGE_RSOCKET_AUTHENTICATION.getString();
+  private static final String COMPOSITE_MIME_TYPE =
+      WellKnownMimeType.MESSAGE_RSOCKET_COMPOSITE_METADATA.getString();
+
+  private final ReactiveAuthenticationManager authenticationManager;
+  private final TokenService tokenService;
+
+  @Bean
+  public RSocketServerCustomizer authenticatingServerCustomizer() {
+    return server ->
+        server.interceptors(
+            registry ->
+                registry.forSocketAcceptor(
+                    acceptor ->
+                        (setup, sendingSocket) ->
+                            authenticate(setup)
+                                .flatMap(
+                                    authentication ->
+                                        acceptor
+                                            .accept(setup, sendingSocket)
+                                            .map(
+                                                rsocket ->
+                                                    new AuthenticatedRSocket(
+                                                        rsocket, authentication)))));
+  }
+
+  private Mono<Authentication> authenticate(ConnectionSetupPayload setup) {
+    Mono<Authentication> authentication;
+    try {
+      authentication = authenticate(getCredentials(setup));
+    } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+      authentication = Mono.error(new RejectedSetupException("Malformed credentials"));
+    }
+    return authentication
+        .switchIfEmpty(Mono.error(() -> new RejectedSetupException("Missing credentials")))
+        .onErrorMap(AuthenticationException.class, e -> new RejectedSetupException(e.getMessage()));
+  }
+
+  private Mono<Authentication> authenticate(ByteBuf credentials) {
+    if (credentials == null || !AuthMetadataCodec.isWellKnownAuthType(credentials))
+      return Mono.empty();
+
+    var authType = AuthMetadataCodec.readWellKnownAuthType(credentials);
+    if (WellKnownAuthType.SIMPLE.equals(authType)) {
+      var username = new String(AuthMetadataCodec.readUsernameAsCharArray(credentials));
+      var password = new String(AuthMetadataCodec.readPasswordAsCharArray(credentials));
+      return authenticationManager.authenticate(
+          new UsernamePasswordAuthenticationToken(username, password));
+    }
+    if (WellKnownAuthType.BEARER.equals(authType)) {
+      var token = new String(AuthMetadataCodec.readBearerTokenAsCharArray(credentials));
+      return Mono.fromCallable(() -> tokenService.verify(token));
+    }
+    return Mono.empty();
+  }
+
+  /** The authentication entry of the setup metadata, or {@code null} when there is none. */
+  private static ByteBuf getCredentials(ConnectionSetupPayload setup) {
+    if (!setup.hasMetadata()) return null;
+    var metadata = setup.sliceMetadata();
+    if (AUTHENTICATION_MIME_TYPE.equals(setup.metadataMimeType())) return metadata;
+    if (!COMPOSITE_MIME_TYPE.equals(setup.metadataMimeType())) return null;
+
+    for (var entry : new CompositeMetadata(metadata, false))
+      if (AUTHENTICATION_MIME_TYPE.equals(entry.getMimeType())) return entry.getContent();
+    return null;
+  }
+
+  /** Runs every request of the connection with the authentication of its setup. */
+  private static class AuthenticatedRSocket extends RSocketProxy {
+    private final Context context;
+
+    AuthenticatedRSocket(RSocket source, Authentication authentication) {
+      super(source);
+      this.context = ReactiveSecurityContextHolder.withAuthentication(authentication);
+    }
+
+    @Override
+    public Mono<Void> fireAndForget(Payload payload) {
+      return super.fireAndForget(payload).contextWrite(context);
+    }
+
+    @Override
+    public Mono<Payload> requestResponse(Payload payload) {
+      return super.requestResponse(payload).contextWrite(context);
+    }
+
+    @Override
+    public Flux<Payload> requestStream(Payload payload) {
+      return super.requestStream(payload).contextWrite(context);
+    }
+
+    @Override
+    public Flux<Payload> requestChannel(Publisher<Payload> payloads) {
+      return super.requestChannel(payloads).contextWrite(context);
+    }
+
+    @Override
+    public Mono<Void> metadataPush(Payload payload) {
+      return super.metadataPush(payload).contextWrite(context);
+    }
+  }
+}
@@ -0,0 +1,48 @@
+package br.cams7.tests.springwebfluxessentials.config;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.http.HttpMethod;
+
+@Data
+@ConfigurationProperties(prefix = "rate-limit")
+public class RateLimitProperties {
+
+  /**
+   * Maximum number of buckets kept, one per user and route. The least recently used are dropped
+   * first, which only forgets how many requests their user made lately.
+   */
+  private long maximumBuckets = 100_000;
+
+  /** Limited routes; a request is counted by the first one it matches, or by none. */
+  private final List<Route> routes = new ArrayList<>();
+
+  @Data
+  public static class Route {
+    /** Path pattern, e.g. /animes/** or /animes/{id}. */
+    private String path;
+
+    /** Method the route is limited to; every method when empty. */
+    private HttpMethod method;
+
+    /**
+     * Limits by role, without the ROLE_ prefix, e.g. user or admin. A user with many roles gets the
+     * highest limit among them, and one without any of them isn't limited.
+     */
+    private final Map<String, Limit> limits = new LinkedHashMap<>();
+  }
+
+  @Data
+  public static class Limit {
+    /** Requests allowed per period, all of which may be made at once. */
+    private long capacity;
+
+    /** How long an emptied bucket takes to be full again. */
+    private Duration period = Duration.ofSeconds(1);
+  }
+}
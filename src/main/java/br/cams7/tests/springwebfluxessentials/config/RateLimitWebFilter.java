@@ -0,0 +1,52 @@
+package br.cams7.tests.springwebfluxessentials.config;
+
+import static br.cams7.tests.springwebfluxessentials.utils.CommonExceptions.responseTooManyRequestsException;
+
+import br.cams7.tests.springwebfluxessentials.ratelimit.RateLimiter;
+import java.util.concurrent.TimeUnit;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Rejects requests of users who exceeded the limit of their route with 429 and a {@code
+ * Retry-After} header. It runs after authorization, so anonymous requests were already turned away
+ * and requests to routes without limits don't even look the user up.
+ */
+@RequiredArgsConstructor
+public class RateLimitWebFilter implements WebFilter {
+  private final RateLimiter rateLimiter;
+
+  @Override
+  public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+    var request = exchange.getRequest();
+    var route =
+        rateLimiter.getRoute(request.getMethod(), request.getPath().pathWithinApplication());
+    if (route == null) return chain.filter(exchange);
+
+    return exchange
+        .getPrincipal()
+        .map(
+            principal -> {
+              if (!(principal instanceof Authentication)) return 0L;
+              var authentication = (Authentication) principal;
+              return route.acquire(authentication.getName(), authentication.getAuthorities());
+            })
+        .defaultIfEmpty(0L)
+        .flatMap(
+            wait -> {
+              if (wait == 0) return chain.filter(exchange);
+              var seconds = (wait + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1);
+              exchange
+                  .getResponse()
+                  .getHeaders()
+                  .set(HttpHeaders.RETRY_AFTER, Long.toString(seconds));
+              return responseTooManyRequestsException(
+                  "Too many requests, retry in " + seconds + " seconds");
+            });
+  }
+}
@@ -1,21 +1,33 @@
 package br.cams7.tests.springwebfluxessentials.config;
 
+import br.cams7.tests.springwebfluxessentials.ratelimit.RateLimiter;
+import br.cams7.tests.springwebfluxessentials.security.TokenService;
 import br.cams7.tests.springwebfluxessentials.service.UserDetailsService;
 import org.springframework.context.annotation.Bean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.security.authentication.ReactiveAuthenticationManager;
 import org.springframework.security.authentication.UserDetailsRepositoryReactiveAuthenticationManager;
 import org.springframework.security.config.annotation.method.configuration.EnableReactiveMethodSecurity;
 import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
+import org.springframework.security.config.web.server.SecurityWebFiltersOrder;
 import org.springframework.security.config.web.server.ServerHttpSecurity;
+import org.springframework.security.web.authentication.preauth.PreAuthenticatedAuthenticationToken;
 import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.authentication.AuthenticationWebFilter;
+import org.springframework.security.web.server.util.matcher.NegatedServerWebExchangeMatcher;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatchers;
+import reactor.core.publisher.Mono;
 
 @EnableWebFluxSecurity
 @EnableReactiveMethodSecurity
 public class SecurityConfig {
+  private static final String BEARER_PREFIX = TokenService.TOKEN_TYPE + " ";
+  private static final String TOKEN_PATH = "/auth/token";
 
   @Bean
-  public SecurityWebFilterChain securityWebFilterChain(ServerHttpSecurity http) {
+  public SecurityWebFilterChain securityWebFilterChain(
+      ServerHttpSecurity http, TokenService tokenService, RateLimiter rateLimiter) {
     // @formatter:off
     return http.csrf()
         .disable()
@@ -33,6 +45,8 @@ public class SecurityConfig {
         .and()
         .httpBasic()
         .and()
+        .addFilterAt(bearerTokenFilter(tokenService), SecurityWebFiltersOrder.AUTHENTICATION)
+        .addFilterAfter(new RateLimitWebFilter(rateLimiter), SecurityWebFiltersOrder.AUTHORIZATION)
         .build();
     // @formatter:on
   }
@@ -41,4 +55,28 @@ public class SecurityConfig {
   public ReactiveAuthenticationManager authenticationManager(UserDetailsService service) {
     return new UserDetailsRepositoryReactiveAuthenticationManager(service);
   }
+
+  /**
+   * Authenticates {@code Authorization: Bearer} requests from the token alone. Tokens can't be
+   * exchanged for new ones, so {@value #TOKEN_PATH} always needs the password.
+   */
+  private static AuthenticationWebFilter bearerTokenFilter(TokenService tokenService) {
+    ReactiveAuthenticationManager manager =
+        authentication ->
+            Mono.fromCallable(() -> tokenService.verify((String) authentication.getCredentials()));
+    var filter = new AuthenticationWebFilter(manager);
+    filter.setServerAuthenticationConverter(
+        exchange -> {
+          var authorization =
+              exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+          if (authorization == null || !authorization.startsWith(BEARER_PREFIX))
+            return Mono.empty();
+          var token = authorization.substring(BEARER_PREFIX.length()).trim();
+          return Mono.just(new PreAuthenticatedAuthenticationToken(token, token));
+        });
+    filter.setRequiresAuthenticationMatcher(
+        new NegatedServerWebExchangeMatcher(
+            ServerWebExchangeMatchers.pathMatchers(HttpMethod.POST, TOKEN_PATH)));
+    return filter;
+  }
 }
@@ -1,21 +1,44 @@
 package br.cams7.tests.springwebfluxessentials.controller;
 
+import static br.cams7.tests.springwebfluxessentials.utils.CommonExceptions.responseBadRequestException;
+import static org.springframework.http.MediaType.ALL_VALUE;
+import static org.springframework.http.MediaType.APPLICATION_CBOR;
+import static org.springframework.http.MediaType.APPLICATION_CBOR_VALUE;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON_VALUE;
+import static org.springframework.http.MediaType.TEXT_EVENT_STREAM_VALUE;
 
+import br.cams7.tests.springwebfluxessentials.cache.CatalogVersion;
+import br.cams7.tests.springwebfluxessentials.codec.AnimeExportWriter;
 import br.cams7.tests.springwebfluxessentials.domain.Anime;
+import br.cams7.tests.springwebfluxessentials.domain.CatalogStatistics;
+import br.cams7.tests.springwebfluxessentials.domain.ChunkResult;
+import br.cams7.tests.springwebfluxessentials.domain.CursorPage;
 import br.cams7.tests.springwebfluxessentials.service.AnimeService;
+import br.cams7.tests.springwebfluxessentials.utils.CountStrategy;
+import br.cams7.tests.springwebfluxessentials.utils.ExportFormat;
 import br.cams7.tests.springwebfluxessentials.utils.Pagination;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.enums.SecuritySchemeType;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.security.SecurityScheme;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 import java.util.Set;
+import java.util.function.Supplier;
 import javax.validation.Valid;
 import javax.validation.constraints.NotEmpty;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.DeleteMapping;
@@ -28,6 +51,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -46,44 +70,167 @@ public class AnimeController {
   public static final String SECURITY_SCHEME_SCHEME = "basic";
   public static final String OPERATION_TAGS = "anime";
 
+  private static final String GZIP = "gzip";
+  private static final String ANY_ENCODING = "*";
+  private static final String QUALITY = "q=";
+
   private final AnimeService service;
+  private final AnimeExportWriter exportWriter;
+  private final CatalogVersion version;
 
-  @GetMapping("all")
-  @ResponseStatus(HttpStatus.OK)
+  @GetMapping(
+      path = "all",
+      produces = {APPLICATION_JSON_VALUE, APPLICATION_CBOR_VALUE})
   @Operation(
       summary = "List all animes",
       tags = {OPERATION_TAGS},
       security = @SecurityRequirement(name = SECURITY_SCHEME_NAME))
-  public Flux<Anime> listAll() {
-    return service.findAll();
+  public Mono<ResponseEntity<Flux<Anime>>> listAll(ServerWebExchange exchange) {
+    var etag = getETag(exchange);
+    // a 304 without a body: the encoders of anime streams write an empty array for no anime
+    return Mono.fromSupplier(
+        () ->
+            exchange.checkNotModified(etag)
+                ? ResponseEntity.status(HttpStatus.NOT_MODIFIED).<Flux<Anime>>build()
+                : ResponseEntity.ok(service.findAll()));
   }
 
-  @GetMapping
+  @GetMapping(
+      path = "all",
+      produces = {APPLICATION_NDJSON_VALUE, TEXT_EVENT_STREAM_VALUE})
+  @ResponseStatus(HttpStatus.OK)
+  @Operation(
+      summary = "Stream all animes",
+      tags = {OPERATION_TAGS},
+      security = @SecurityRequirement(name = SECURITY_SCHEME_NAME))
+  public Flux<Anime> streamAll() {
+    return service.streamAll();
+  }
+
+  /**
+   * Streams the whole catalog from one database cursor, gzipped when the client accepts it, so a
+   * full export takes a single pass and a single connection.
+   */
+  @GetMapping(path = "export", produces = ALL_VALUE)
+  @ResponseStatus(HttpStatus.OK)
+  @Operation(
+      summary = "Export all animes as CSV or NDJSON",
+      tags = {OPERATION_TAGS},
+      security = @SecurityRequirement(name = SECURITY_SCHEME_NAME))
+  public Mono<Void> export(
+      ServerWebExchange exchange,
+      @RequestParam(name = "format", defaultValue = "ndjson") String format) {
+    var exportFormat = ExportFormat.getFormat(format);
+    if (exportFormat == null) return responseBadRequestException("Unknown format " + format);
+
+    var gzip =
+        acceptsGzip(exchange.getRequest().getHeaders().getOrEmpty(HttpHeaders.ACCEPT_ENCODING));
+    var response = exchange.getResponse();
+    var headers = response.getHeaders();
+    headers.setContentType(exportFormat.getMediaType());
+    headers.setContentDisposition(
+        ContentDisposition.attachment().filename("animes." + exportFormat.getExtension()).build());
+    headers.setVary(List.of(HttpHeaders.ACCEPT_ENCODING));
+    if (gzip) headers.set(HttpHeaders.CONTENT_ENCODING, GZIP);
+    return response.writeWith(
+        exportWriter.write(service.exportAll(), exportFormat, gzip, response.bufferFactory()));
+  }
+
+  @GetMapping(produces = {APPLICATION_JSON_VALUE, APPLICATION_CBOR_VALUE})
   @ResponseStatus(HttpStatus.OK)
   @Operation(
       summary = "List animes",
       tags = {OPERATION_TAGS},
       security = @SecurityRequirement(name = SECURITY_SCHEME_NAME))
-  public Mono<Page<Anime>> listByPageable(
+  public Mono<Slice<Anime>> listByPageable(
+      ServerWebExchange exchange,
+      @RequestParam(name = "page", defaultValue = "0") int page,
+      @RequestParam(name = "size", defaultValue = "10") int size,
+      @RequestParam(name = "sort", defaultValue = "id") String sortField,
+      @RequestParam(name = "dir", defaultValue = "asc") String sortDirection,
+      @RequestParam(name = "count", required = false) String countStrategy,
+      @RequestParam(name = "yearFrom", required = false) Short yearFrom,
+      @RequestParam(name = "yearTo", required = false) Short yearTo) {
+    var sort = Pagination.getSort(sortField, sortDirection);
+    var pageable = PageRequest.of(page, size).withSort(sort);
+    var strategy = CountStrategy.getStrategy(countStrategy);
+    return unlessNotModified(
+        exchange,
+        () ->
+            yearFrom == null && yearTo == null
+                ? service.findByPageable(pageable, strategy)
+                : service.findByPublicationYear(yearFrom, yearTo, pageable, strategy));
+  }
+
+  @GetMapping("stats")
+  @ResponseStatus(HttpStatus.OK)
+  @Operation(
+      summary = "Count the animes per publication year and per decade",
+      tags = {OPERATION_TAGS},
+      security = @SecurityRequirement(name = SECURITY_SCHEME_NAME))
+  public Mono<CatalogStatistics> getStatistics(ServerWebExchange exchange) {
+    return unlessNotModified(exchange, service::getStatistics);
+  }
+
+  @GetMapping(
+      path = "search",
+      produces = {APPLICATION_JSON_VALUE, APPLICATION_CBOR_VALUE})
+  @ResponseStatus(HttpStatus.OK)
+  @Operation(
+      summary = "Search animes whose name contains the query, ignoring case and accents",
+      tags = {OPERATION_TAGS},
+      security = @SecurityRequirement(name = SECURITY_SCHEME_NAME))
+  public Mono<Page<Anime>> search(
+      @RequestParam(name = "q") String query,
       @RequestParam(name = "page", defaultValue = "0") int page,
+      @RequestParam(name = "size", defaultValue = "10") int size) {
+    return service.search(query, PageRequest.of(page, size));
+  }
+
+  @GetMapping(params = {"after", "!ids"})
+  @ResponseStatus(HttpStatus.OK)
+  @Operation(
+      summary = "List animes after a cursor (keyset pagination)",
+      tags = {OPERATION_TAGS},
+      security = @SecurityRequirement(name = SECURITY_SCHEME_NAME))
+  public Mono<CursorPage<Anime>> listByCursor(
+      @RequestParam(name = "after") String after,
       @RequestParam(name = "size", defaultValue = "10") int size,
       @RequestParam(name = "sort", defaultValue = "id") String sortField,
       @RequestParam(name = "dir", defaultValue = "asc") String sortDirection) {
     var sort = Pagination.getSort(sortField, sortDirection);
-    return service.findByPageable(PageRequest.of(page, size).withSort(sort));
+    return service.findByCursor(sort, after, size);
+  }
+
+  @GetMapping(
+      params = "ids",
+      produces = {APPLICATION_JSON_VALUE, APPLICATION_CBOR_VALUE})
+  @ResponseStatus(HttpStatus.OK)
+  @Operation(
+      summary = "Get the animes with the given ids in a single query, e.g. ids=1,2,3",
+      tags = {OPERATION_TAGS},
+      security = @SecurityRequirement(name = SECURITY_SCHEME_NAME))
+  public Flux<Anime> listByIds(
+      @RequestParam List<Long> ids, @RequestParam(name = "after", required = false) String after) {
+    // listByCursor excludes ids, so requests with both land here
+    if (after != null)
+      return Flux.from(responseBadRequestException("The ids can't be combined with a cursor"));
+    return service.findAllById(ids);
   }
 
-  @GetMapping(path = "{id}")
+  @GetMapping(
+      path = "{id}",
+      produces = {APPLICATION_JSON_VALUE, APPLICATION_CBOR_VALUE})
   @ResponseStatus(HttpStatus.OK)
   @Operation(
       summary = "Get the anime by id",
       tags = {OPERATION_TAGS},
       security = @SecurityRequirement(name = SECURITY_SCHEME_NAME))
-  public Mono<Anime> getById(@PathVariable Long id) {
-    return service.findById(id);
+  public Mono<Anime> getById(ServerWebExchange exchange, @PathVariable Long id) {
+    return unlessNotModified(exchange, () -> service.findById(id));
   }
 
-  @PostMapping
+  @PostMapping(produces = {APPLICATION_JSON_VALUE, APPLICATION_CBOR_VALUE})
   @ResponseStatus(HttpStatus.CREATED)
   @Operation(
       summary = "Create a new anime",
@@ -93,7 +240,9 @@ public class AnimeController {
     return service.save(anime);
   }
 
-  @PostMapping("batch")
+  @PostMapping(
+      path = "batch",
+      produces = {APPLICATION_JSON_VALUE, APPLICATION_CBOR_VALUE})
   @ResponseStatus(HttpStatus.CREATED)
   @Operation(
       summary = "Create new animes",
@@ -105,14 +254,28 @@ public class AnimeController {
     return service.saveAll(animes);
   }
 
+  @PostMapping(
+      path = "batch",
+      consumes = APPLICATION_NDJSON_VALUE,
+      produces = APPLICATION_NDJSON_VALUE)
+  @ResponseStatus(HttpStatus.OK)
+  @Operation(
+      summary = "Import animes sent one per line, reporting the outcome of every chunk",
+      tags = {OPERATION_TAGS},
+      security = @SecurityRequirement(name = SECURITY_SCHEME_NAME))
+  public Flux<ChunkResult> importBatch(@RequestBody Flux<Anime> animes) {
+    return service.importAll(animes);
+  }
+
   @PutMapping(path = "{id}")
   @ResponseStatus(HttpStatus.NO_CONTENT)
   @Operation(
       summary = "Update the anime by id",
       tags = {OPERATION_TAGS},
       security = @SecurityRequirement(name = SECURITY_SCHEME_NAME))
-  public Mono<Void> update(@PathVariable Long id, @Valid @RequestBody Anime anime) {
-    return service.update(anime.withId(id));
+  public Mono<Void> update(
+      ServerWebExchange exchange, @PathVariable Long id, @Valid @RequestBody Anime anime) {
+    return service.update(anime.withId(id), getIfMatch(exchange));
   }
 
   @DeleteMapping(path = "{id}")
@@ -122,7 +285,89 @@ public class AnimeController {
       summary = "Remove the anime by id",
       tags = {OPERATION_TAGS},
       security = @SecurityRequirement(name = SECURITY_SCHEME_NAME))
-  public Mono<Void> delete(@PathVariable Long id) {
-    return service.delete(id);
+  public Mono<Void> delete(ServerWebExchange exchange, @PathVariable Long id) {
+    return service.delete(id, getIfMatch(exchange));
+  }
+
+  @DeleteMapping(params = "ids")
+  @ResponseStatus(HttpStatus.NO_CONTENT)
+  @PreAuthorize("hasRole('ADMIN')")
+  @Operation(
+      summary = "Remove the animes with the given ids in a single statement",
+      tags = {OPERATION_TAGS},
+      security = @SecurityRequirement(name = SECURITY_SCHEME_NAME))
+  public Mono<Void> deleteAll(ServerWebExchange exchange, @RequestParam Set<Long> ids) {
+    return service.deleteAll(ids, getIfMatch(exchange)).then();
+  }
+
+  /**
+   * Whether {@code Accept-Encoding} gives gzip a quality above 0, either by name or, when it isn't
+   * named, through {@code *}.
+   */
+  private static boolean acceptsGzip(List<String> acceptEncoding) {
+    Double gzip = null;
+    Double any = null;
+    for (var value : acceptEncoding)
+      for (var coding : value.split(",")) {
+        var parts = coding.split(";");
+        var name = parts[0].trim().toLowerCase(Locale.ROOT);
+        if (GZIP.equals(name)) gzip = getQuality(parts);
+        else if (ANY_ENCODING.equals(name)) any = getQuality(parts);
+      }
+    var quality = gzip != null ? gzip : any;
+    return quality != null && quality > 0;
+  }
+
+  /** The {@code q} parameter among the parts of a coding, 1 when absent and 0 when invalid. */
+  private static double getQuality(String[] parts) {
+    for (int i = 1; i < parts.length; i++) {
+      var parameter = parts[i].trim();
+      if (parameter.regionMatches(true, 0, QUALITY, 0, QUALITY.length()))
+        try {
+          return Double.parseDouble(parameter.substring(QUALITY.length()).trim());
+        } catch (NumberFormatException e) {
+          return 0;
+        }
+    }
+    return 1;
+  }
+
+  /**
+   * Answers 304 without calling {@code read} when {@code If-None-Match} holds the current catalog
+   * tag. The tag is taken before reading, so it never claims newer data than the body has.
+   */
+  private <T> Mono<T> unlessNotModified(ServerWebExchange exchange, Supplier<Mono<T>> read) {
+    var etag = getETag(exchange);
+    // deferred, since the status of @ResponseStatus is set after this method returns
+    return Mono.defer(() -> exchange.checkNotModified(etag) ? Mono.empty() : read.get());
+  }
+
+  /**
+   * Catalog tag of the representation negotiated for the request. Each representation has a tag of
+   * its own, and caches are told to key the response on {@code Accept}.
+   */
+  private String getETag(ServerWebExchange exchange) {
+    exchange.getResponse().getHeaders().add(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+    return version.getETag(getRepresentation(exchange.getRequest().getHeaders().getAccept()));
+  }
+
+  /**
+   * The representation content negotiation picks among those of the catalog: the first type
+   * accepted, by specificity and quality, that JSON or CBOR match, JSON first as among the types
+   * produced.
+   */
+  private static MediaType getRepresentation(List<MediaType> accept) {
+    var accepted = new ArrayList<>(accept);
+    MediaType.sortBySpecificityAndQuality(accepted);
+    for (var mediaType : accepted) {
+      if (mediaType.isCompatibleWith(APPLICATION_JSON)) return APPLICATION_JSON;
+      if (mediaType.isCompatibleWith(APPLICATION_CBOR)) return APPLICATION_CBOR;
+    }
+    return APPLICATION_JSON;
+  }
+
+  /** The tags of {@code If-Match}, which the service checks as part of the write. */
+  private static List<String> getIfMatch(ServerWebExchange exchange) {
+    return exchange.getRequest().getHeaders().getIfMatch();
   }
 }
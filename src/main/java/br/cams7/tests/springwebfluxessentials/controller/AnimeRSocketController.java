@@ -0,0 +1,43 @@
+package br.cams7.tests.springwebfluxessentials.controller;
+
+import br.cams7.tests.springwebfluxessentials.domain.Anime;
+import br.cams7.tests.springwebfluxessentials.service.AnimeService;
+import javax.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.messaging.handler.annotation.DestinationVariable;
+import org.springframework.messaging.handler.annotation.MessageMapping;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.stereotype.Controller;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * RSocket routes for the sync jobs, mirroring the HTTP ones: {@code animes.{id}}
+ * (request-response), {@code animes.all} (request-stream) and {@code animes.batch}
+ * (request-channel). Each route is paced by the demand of its requester.
+ */
+@Controller
+@MessageMapping("animes")
+@RequiredArgsConstructor
+public class AnimeRSocketController {
+  private final AnimeService service;
+
+  @MessageMapping("{id}")
+  @PreAuthorize("hasRole('USER')")
+  public Mono<Anime> getById(@DestinationVariable Long id) {
+    return service.findById(id);
+  }
+
+  @MessageMapping("all")
+  @PreAuthorize("hasRole('USER')")
+  public Flux<Anime> streamAll() {
+    return service.streamAll();
+  }
+
+  /** Emits every anime with its id once it is inserted; an invalid anime ends the channel. */
+  @MessageMapping("batch")
+  @PreAuthorize("hasRole('ADMIN')")
+  public Flux<Anime> saveBatch(@Valid Flux<Anime> animes) {
+    return service.ingest(animes);
+  }
+}
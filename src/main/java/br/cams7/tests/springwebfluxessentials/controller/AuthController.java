@@ -0,0 +1,36 @@
+package br.cams7.tests.springwebfluxessentials.controller;
+
+import static br.cams7.tests.springwebfluxessentials.controller.AnimeController.SECURITY_SCHEME_NAME;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+
+import br.cams7.tests.springwebfluxessentials.domain.AccessToken;
+import br.cams7.tests.springwebfluxessentials.security.TokenService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+@RequiredArgsConstructor
+@RestController
+@RequestMapping(value = "auth", produces = APPLICATION_JSON_VALUE)
+public class AuthController {
+
+  public static final String OPERATION_TAGS = "auth";
+
+  private final TokenService service;
+
+  @PostMapping("token")
+  @ResponseStatus(HttpStatus.OK)
+  @Operation(
+      summary = "Issue a bearer token for the user authenticated with HTTP Basic",
+      tags = {OPERATION_TAGS},
+      security = @SecurityRequirement(name = SECURITY_SCHEME_NAME))
+  public AccessToken createToken(Authentication authentication) {
+    return service.issue(authentication);
+  }
+}
@@ -0,0 +1,17 @@
+package br.cams7.tests.springwebfluxessentials.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AccessToken {
+  private String accessToken;
+
+  private String tokenType;
+
+  /** Seconds until the token expires. */
+  private long expiresIn;
+}
@@ -0,0 +1,19 @@
+package br.cams7.tests.springwebfluxessentials.domain;
+
+import java.util.Map;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CatalogStatistics {
+  private long total;
+
+  /** Number of animes by publication year, in ascending order of year. */
+  private Map<Short, Integer> years;
+
+  /** Number of animes by decade, keyed by its first year (e.g. 1990 for 1990 to 1999). */
+  private Map<Integer, Integer> decades;
+}
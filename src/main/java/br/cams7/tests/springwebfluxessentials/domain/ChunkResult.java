@@ -0,0 +1,37 @@
+package br.cams7.tests.springwebfluxessentials.domain;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/** Outcome of one chunk of a streaming import. Positions count the uploaded animes from 0. */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ChunkResult {
+  private long chunk;
+
+  /** Position of the first anime of the chunk. */
+  private long offset;
+
+  private int size;
+
+  /** Ids of the inserted animes, in upload order. */
+  private List<Long> ids;
+
+  /** Animes that failed validation and were skipped. */
+  private List<Rejection> rejected;
+
+  /** Why nothing of the chunk was inserted, e.g. a name already in use; {@code null} otherwise. */
+  private String error;
+
+  @Data
+  @AllArgsConstructor
+  @NoArgsConstructor
+  public static class Rejection {
+    private long position;
+
+    private String message;
+  }
+}
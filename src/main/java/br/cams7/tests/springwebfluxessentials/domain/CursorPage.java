@@ -0,0 +1,20 @@
+package br.cams7.tests.springwebfluxessentials.domain;
+
+import java.util.List;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class CursorPage<T> {
+  private List<T> content;
+
+  private int size;
+
+  private boolean last;
+
+  /** Token to pass as {@code after} to fetch the next page, {@code null} on the last page. */
+  private String next;
+}
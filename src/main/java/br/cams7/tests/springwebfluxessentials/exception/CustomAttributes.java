@@ -4,7 +4,9 @@ import java.util.Map;
 import javax.validation.ConstraintViolationException;
 import org.springframework.boot.web.error.ErrorAttributeOptions;
 import org.springframework.boot.web.reactive.error.DefaultErrorAttributes;
+import org.springframework.dao.DataAccessResourceFailureException;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.server.ResponseStatusException;
@@ -13,6 +15,8 @@ import org.springframework.web.server.ResponseStatusException;
 public class CustomAttributes extends DefaultErrorAttributes {
   private static final String MESSAGE_ATTRIBUTE = "message";
   private static final String DEVELOPER_MESSAGE_ATTRIBUTE = "developerMessage";
+  private static final String STATUS_ATTRIBUTE = "status";
+  private static final String ERROR_ATTRIBUTE = "error";
 
   @Override
   public Map<String, Object> getErrorAttributes(
@@ -32,6 +36,14 @@ public class CustomAttributes extends DefaultErrorAttributes {
       errorAttributes.put(MESSAGE_ATTRIBUTE, exception.getLocalizedMessage());
       errorAttributes.put(
           DEVELOPER_MESSAGE_ATTRIBUTE, "A DataIntegrityViolationException happened");
+    } else if (throwable instanceof DataAccessResourceFailureException) {
+      // e.g. no pooled connection became available in time; the request may be retried
+      var exception = (DataAccessResourceFailureException) throwable;
+      errorAttributes.put(STATUS_ATTRIBUTE, HttpStatus.SERVICE_UNAVAILABLE.value());
+      errorAttributes.put(ERROR_ATTRIBUTE, HttpStatus.SERVICE_UNAVAILABLE.getReasonPhrase());
+      errorAttributes.put(MESSAGE_ATTRIBUTE, exception.getLocalizedMessage());
+      errorAttributes.put(
+          DEVELOPER_MESSAGE_ATTRIBUTE, "A DataAccessResourceFailureException happened");
     }
     return errorAttributes;
   }
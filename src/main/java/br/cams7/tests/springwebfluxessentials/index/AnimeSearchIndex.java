@@ -0,0 +1,197 @@
+package br.cams7.tests.springwebfluxessentials.index;
+
+import br.cams7.tests.springwebfluxessentials.domain.Anime;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import lombok.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory n-gram index of anime names, for case- and accent-insensitive substring search.
+ *
+ * <p>Every name is indexed by all its substrings of up to {@value #GRAM_SIZE} characters. Shorter
+ * queries are answered by a single posting list; longer ones intersect the lists of their trigrams
+ * and then check the candidates. Reads don't lock; writes are serialized.
+ */
+@Component
+public class AnimeSearchIndex {
+  static final int GRAM_SIZE = 3;
+
+  private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+  private static final Comparator<Match> RANKING =
+      Comparator.comparingInt(Match::getRank)
+          .thenComparingInt(match -> match.document.normalized.length())
+          .thenComparing(match -> match.document.normalized)
+          .thenComparing(match -> match.document.anime.getId());
+
+  private final Map<Long, Document> documents = new ConcurrentHashMap<>();
+  private final Map<String, Set<Long>> postings = new ConcurrentHashMap<>();
+  // ids removed while the index is being loaded, which the load mustn't add back
+  private Set<Long> removedWhileLoading;
+
+  /**
+   * Lower case, without accents and with blanks collapsed, e.g. "Última Missão" to "ultima missao".
+   */
+  static String normalize(String text) {
+    var decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+    return MARKS
+        .matcher(decomposed)
+        .replaceAll("")
+        .toLowerCase(Locale.ROOT)
+        .trim()
+        .replaceAll("\\s+", " ");
+  }
+
+  /** Adds or replaces the anime and returns the version it replaced, if any. */
+  public synchronized Anime put(Anime anime) {
+    var document = new Document(anime, normalize(anime.getName()));
+    var previous = documents.put(anime.getId(), document);
+    if (previous != null && !previous.normalized.equals(document.normalized)) unindex(previous);
+    index(document);
+    return previous != null ? previous.anime : null;
+  }
+
+  /**
+   * Adds the anime unless it is already indexed, e.g. by a write made while loading, and tells
+   * whether it was added.
+   */
+  public synchronized boolean putIfAbsent(Anime anime) {
+    if (documents.containsKey(anime.getId())) return false;
+    put(anime);
+    return true;
+  }
+
+  /**
+   * Adds the animes not indexed yet under a single lock, and returns those added. Animes removed
+   * since {@link #startLoading()} aren't added, as they were read before being deleted.
+   */
+  public synchronized List<Anime> putAllIfAbsent(List<Anime> animes) {
+    var added = new ArrayList<Anime>(animes.size());
+    for (var anime : animes)
+      if (!isRemovedWhileLoading(anime.getId()) && putIfAbsent(anime)) added.add(anime);
+    return added;
+  }
+
+  /** Starts remembering the removed ids, until {@link #finishLoading()}. */
+  public synchronized void startLoading() {
+    removedWhileLoading = new HashSet<>();
+  }
+
+  public synchronized void finishLoading() {
+    removedWhileLoading = null;
+  }
+
+  /** Removes the anime and returns it, or {@code null} when it wasn't indexed. */
+  public synchronized Anime remove(Long id) {
+    if (removedWhileLoading != null) removedWhileLoading.add(id);
+    var previous = documents.remove(id);
+    if (previous == null) return null;
+    unindex(previous);
+    return previous.anime;
+  }
+
+  private boolean isRemovedWhileLoading(Long id) {
+    return removedWhileLoading != null && removedWhileLoading.contains(id);
+  }
+
+  public int size() {
+    return documents.size();
+  }
+
+  /**
+   * Animes whose name contains the query, best matches first: the whole name, then names starting
+   * with the query, then names with a word starting with it, then any other match. Ties go to the
+   * shorter name.
+   */
+  public Page<Anime> search(String query, Pageable pageable) {
+    var normalized = normalize(query);
+    var matches = new ArrayList<Match>();
+    for (var id : getCandidates(normalized)) {
+      var document = documents.get(id);
+      if (document == null) continue;
+      var index = document.normalized.indexOf(normalized);
+      if (index >= 0)
+        matches.add(new Match(document, getRank(document.normalized, normalized, index)));
+    }
+    matches.sort(RANKING);
+
+    var from = (int) Math.min(pageable.getOffset(), matches.size());
+    var to = Math.min(from + pageable.getPageSize(), matches.size());
+    var content = new ArrayList<Anime>(to - from);
+    for (var match : matches.subList(from, to)) content.add(match.document.anime);
+    return new PageImpl<>(content, pageable, matches.size());
+  }
+
+  private Set<Long> getCandidates(String query) {
+    if (query.length() <= GRAM_SIZE) return postings.getOrDefault(query, Set.of());
+
+    List<Set<Long>> lists = new ArrayList<>();
+    for (int i = 0; i + GRAM_SIZE <= query.length(); i++) {
+      var list = postings.get(query.substring(i, i + GRAM_SIZE));
+      if (list == null) return Set.of();
+      lists.add(list);
+    }
+    lists.sort(Comparator.comparingInt(Set::size));
+    var candidates = new HashSet<>(lists.get(0));
+    for (int i = 1; i < lists.size() && !candidates.isEmpty(); i++)
+      candidates.retainAll(lists.get(i));
+    return candidates;
+  }
+
+  private static int getRank(String name, String query, int index) {
+    if (name.length() == query.length()) return 0;
+    if (index == 0) return 1;
+    for (int i = index; i >= 0; i = name.indexOf(query, i + 1))
+      if (!Character.isLetterOrDigit(name.charAt(i - 1))) return 2;
+    return 3;
+  }
+
+  private void index(Document document) {
+    var id = document.anime.getId();
+    for (var gram : getGrams(document.normalized))
+      postings.computeIfAbsent(gram, key -> ConcurrentHashMap.newKeySet()).add(id);
+  }
+
+  private void unindex(Document document) {
+    var id = document.anime.getId();
+    for (var gram : getGrams(document.normalized))
+      postings.computeIfPresent(
+          gram,
+          (key, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+          });
+  }
+
+  private static Set<String> getGrams(String name) {
+    var grams = new HashSet<String>();
+    for (int i = 0; i < name.length(); i++)
+      for (int size = 1; size <= GRAM_SIZE && i + size <= name.length(); size++)
+        grams.add(name.substring(i, i + size));
+    return grams;
+  }
+
+  @Value
+  private static class Document {
+    Anime anime;
+    String normalized;
+  }
+
+  @Value
+  private static class Match {
+    Document document;
+    int rank;
+  }
+}
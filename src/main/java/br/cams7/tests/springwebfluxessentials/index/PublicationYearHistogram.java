@@ -0,0 +1,83 @@
+package br.cams7.tests.springwebfluxessentials.index;
+
+import br.cams7.tests.springwebfluxessentials.domain.Anime;
+import br.cams7.tests.springwebfluxessentials.domain.CatalogStatistics;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Number of animes per publication year, kept up to date by the service writes so the catalog
+ * statistics never need a {@code GROUP BY}.
+ *
+ * <p>There is one {@code int} counter for every possible {@code short} year (256 KiB). The last
+ * statistics built are reused until the next change.
+ */
+@Component
+public class PublicationYearHistogram {
+  private static final int DECADE = 10;
+
+  private final AtomicIntegerArray counts = new AtomicIntegerArray(1 << Short.SIZE);
+
+  // incremented after every change; the cached statistics are only valid for the value they read
+  private final AtomicLong changes = new AtomicLong();
+  private volatile Snapshot snapshot;
+
+  public void add(Anime anime) {
+    if (anime == null) return;
+    counts.incrementAndGet(index(anime.getPublicationYear()));
+    changes.incrementAndGet();
+  }
+
+  public void remove(Anime anime) {
+    if (anime == null) return;
+    counts.decrementAndGet(index(anime.getPublicationYear()));
+    changes.incrementAndGet();
+  }
+
+  /** Moves an anime from the year of its previous version, if any, to its current year. */
+  public void replace(Anime previous, Anime current) {
+    if (previous != null && previous.getPublicationYear().equals(current.getPublicationYear()))
+      return;
+    remove(previous);
+    add(current);
+  }
+
+  /** Number of animes published from {@code from} to {@code to}, both inclusive. */
+  public long count(short from, short to) {
+    long count = 0;
+    for (int i = index(from), last = index(to); i <= last; i++) count += counts.get(i);
+    return count;
+  }
+
+  public CatalogStatistics getStatistics() {
+    var version = changes.get();
+    var cached = snapshot;
+    if (cached != null && cached.version == version) return cached.statistics;
+
+    var statistics = new CatalogStatistics(0, new LinkedHashMap<>(), new LinkedHashMap<>());
+    for (int i = 0; i < counts.length(); i++) {
+      var count = counts.get(i);
+      if (count <= 0) continue;
+      var year = (short) (i + Short.MIN_VALUE);
+      statistics.setTotal(statistics.getTotal() + count);
+      statistics.getYears().put(year, count);
+      statistics.getDecades().merge(Math.floorDiv(year, DECADE) * DECADE, count, Integer::sum);
+    }
+    // a change that happened while reading makes these statistics stale already
+    if (changes.get() == version) snapshot = new Snapshot(version, statistics);
+    return statistics;
+  }
+
+  private static int index(short year) {
+    return year - Short.MIN_VALUE;
+  }
+
+  @RequiredArgsConstructor
+  private static class Snapshot {
+    private final long version;
+    private final CatalogStatistics statistics;
+  }
+}
@@ -1,21 +1,27 @@
 package br.cams7.tests.springwebfluxessentials.logging;
 
 import java.lang.reflect.Method;
-import java.time.Instant;
 import java.time.temporal.ChronoUnit;
-import java.util.HashMap;
-import java.util.Objects;
-import java.util.StringJoiner;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
-import org.aspectj.lang.reflect.CodeSignature;
 import org.aspectj.lang.reflect.MethodSignature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.logging.LogLevel;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
+/**
+ * Logs the entry and exit of service methods and of methods annotated with {@link LogEntryExit}.
+ *
+ * <p>For {@link Mono} and {@link Flux} results the exit is logged when the publisher completes,
+ * fails or is cancelled, and the execution time is measured from the subscription, so it includes
+ * the time the database took to answer. Nothing is built when the level is disabled.
+ */
 @Aspect
 @Component
 public class LoggingAspect {
@@ -29,99 +35,185 @@ public class LoggingAspect {
   private static final boolean SHOW_RESULT = false;
   private static final boolean SHOW_EXECUTION_TIME = true;
 
+  private final Map<Method, MethodLog> annotatedMethods = new ConcurrentHashMap<>();
+  private final Map<Method, MethodLog> serviceMethods = new ConcurrentHashMap<>();
+
   @Around("@annotation(" + LOGGING_PATH + ".LogEntryExit)")
   public Object logMethodByAnnotation(ProceedingJoinPoint point) throws Throwable {
-    var methodSignature = (MethodSignature) point.getSignature();
-    Method method = methodSignature.getMethod();
-    var annotation = method.getAnnotation(LogEntryExit.class);
-
-    return log(
-        point,
-        annotation.value(),
-        annotation.unit(),
-        annotation.showArgs(),
-        annotation.showResult(),
-        annotation.showExecutionTime());
+    var method = ((MethodSignature) point.getSignature()).getMethod();
+    var methodLog =
+        annotatedMethods.computeIfAbsent(
+            method,
+            key -> {
+              var annotation = key.getAnnotation(LogEntryExit.class);
+              return new MethodLog(
+                  point,
+                  annotation.value(),
+                  annotation.unit(),
+                  annotation.showArgs(),
+                  annotation.showResult(),
+                  annotation.showExecutionTime());
+            });
+    return log(point, methodLog);
   }
 
   @Around("execution(* " + SERVICE_PATH + "..*(..)))")
   public Object logMethod(ProceedingJoinPoint point) throws Throwable {
-    return log(point, LEVEL, UNIT, SHOW_ARGS, SHOW_RESULT, SHOW_EXECUTION_TIME);
+    var method = ((MethodSignature) point.getSignature()).getMethod();
+    var methodLog =
+        serviceMethods.computeIfAbsent(
+            method,
+            key -> new MethodLog(point, LEVEL, UNIT, SHOW_ARGS, SHOW_RESULT, SHOW_EXECUTION_TIME));
+    return log(point, methodLog);
   }
 
-  private static Object log(
-      ProceedingJoinPoint point,
-      LogLevel level,
-      ChronoUnit unit,
-      boolean showArgs,
-      boolean showResult,
-      boolean showExecutionTime)
-      throws Throwable {
-    var codeSignature = (CodeSignature) point.getSignature();
-    var methodSignature = (MethodSignature) point.getSignature();
-    Method method = methodSignature.getMethod();
-    Logger logger = LoggerFactory.getLogger(method.getDeclaringClass());
-    String methodName = method.getName();
-    Object[] methodArgs = point.getArgs();
-    String[] methodParams = codeSignature.getParameterNames();
-    log(logger, level, entry(methodName, showArgs, methodParams, methodArgs));
-    var start = Instant.now();
+  private static Object log(ProceedingJoinPoint point, MethodLog methodLog) throws Throwable {
+    if (!methodLog.isEnabled()) return point.proceed();
+
+    methodLog.log(methodLog.entry(point.getArgs()));
+    var start = System.nanoTime();
     var response = point.proceed();
-    var end = Instant.now();
-    var duration = String.format("%s %s", unit.between(start, end), unit.name().toLowerCase());
-    log(logger, level, exit(methodName, duration, response, showResult, showExecutionTime));
+    if (response instanceof Mono) return timed((Mono<?>) response, methodLog);
+    if (response instanceof Flux) return timed((Flux<?>) response, methodLog);
+
+    methodLog.log(methodLog.exit("Finished", System.nanoTime() - start, response));
     return response;
   }
 
-  private static String entry(String methodName, boolean showArgs, String[] params, Object[] args) {
-    var message = new StringJoiner(" ").add("Started").add(methodName).add("method");
-    if (showArgs
-        && Objects.nonNull(params)
-        && Objects.nonNull(args)
-        && params.length == args.length) {
-      var values = new HashMap<>(params.length);
-      for (int i = 0; i < params.length; i++) {
-        values.put(params[i], args[i]);
+  private static Mono<?> timed(Mono<?> mono, MethodLog methodLog) {
+    return Mono.defer(
+        () -> {
+          var start = System.nanoTime();
+          return mono.doOnSuccess(
+                  value -> methodLog.log(methodLog.exit("Finished", elapsed(start), value)))
+              .doOnError(error -> methodLog.log(methodLog.exit("Failed", elapsed(start), error)))
+              .doOnCancel(() -> methodLog.log(methodLog.exit("Cancelled", elapsed(start), null)));
+        });
+  }
+
+  private static Flux<?> timed(Flux<?> flux, MethodLog methodLog) {
+    return Flux.defer(
+        () -> {
+          var start = System.nanoTime();
+          var count = new long[1];
+          return flux.doOnNext(value -> count[0]++)
+              .doOnComplete(
+                  () -> methodLog.log(methodLog.exit("Finished", elapsed(start), count[0])))
+              .doOnError(error -> methodLog.log(methodLog.exit("Failed", elapsed(start), error)))
+              .doOnCancel(
+                  () -> methodLog.log(methodLog.exit("Cancelled", elapsed(start), count[0])));
+        });
+  }
+
+  private static long elapsed(long start) {
+    return System.nanoTime() - start;
+  }
+
+  /** What is logged for one method, resolved on its first call. */
+  private static class MethodLog {
+    private final Logger logger;
+    private final LogLevel level;
+    private final String methodName;
+    private final String[] params;
+    private final long unitNanos;
+    private final String unitName;
+    private final boolean showArgs;
+    private final boolean showResult;
+    private final boolean showExecutionTime;
+
+    MethodLog(
+        ProceedingJoinPoint point,
+        LogLevel level,
+        ChronoUnit unit,
+        boolean showArgs,
+        boolean showResult,
+        boolean showExecutionTime) {
+      var signature = (MethodSignature) point.getSignature();
+      var method = signature.getMethod();
+      this.logger = LoggerFactory.getLogger(method.getDeclaringClass());
+      this.level = level;
+      this.methodName = method.getName();
+      this.params = signature.getParameterNames();
+      this.unitNanos = unit.getDuration().toNanos();
+      this.unitName = unit.name().toLowerCase();
+      this.showArgs = showArgs;
+      this.showResult = showResult;
+      this.showExecutionTime = showExecutionTime;
+    }
+
+    boolean isEnabled() {
+      switch (level) {
+        case DEBUG:
+          return logger.isDebugEnabled();
+        case TRACE:
+          return logger.isTraceEnabled();
+        case WARN:
+          return logger.isWarnEnabled();
+        case ERROR:
+        case FATAL:
+          return logger.isErrorEnabled();
+        case OFF:
+          return false;
+        default:
+          return logger.isInfoEnabled();
       }
-      message.add("with args:").add(values.toString());
     }
-    return message.toString();
-  }
 
-  private static String exit(
-      String methodName,
-      String duration,
-      Object result,
-      boolean showResult,
-      boolean showExecutionTime) {
-    var message = new StringJoiner(" ").add("Finished").add(methodName).add("method");
-    if (showExecutionTime) {
-      message.add("in").add(duration);
+    String entry(Object[] args) {
+      var message = new StringBuilder("Started ").append(methodName).append(" method");
+      if (showArgs && params != null && args != null && params.length == args.length) {
+        message.append(" with args: {");
+        for (int i = 0; i < params.length; i++) {
+          if (i > 0) message.append(", ");
+          message.append(params[i]).append('=').append(args[i]);
+        }
+        message.append('}');
+      }
+      return message.toString();
     }
-    if (showResult) {
-      message.add("with return:").add(result.toString());
+
+    String exit(String event, long elapsedNanos, Object result) {
+      var message = exit(event, elapsedNanos);
+      if (result instanceof Throwable) message.append(" with error: ").append(result);
+      else if (showResult) message.append(" with return: ").append(result);
+      return message.toString();
     }
-    return message.toString();
-  }
 
-  private static void log(Logger logger, LogLevel level, String message) {
-    switch (level) {
-      case DEBUG:
-        logger.debug(message);
-        break;
-      case TRACE:
-        logger.trace(message);
-        break;
-      case WARN:
-        logger.warn(message);
-        break;
-      case ERROR:
-      case FATAL:
-        logger.error(message);
-        break;
-      default:
-        logger.info(message);
-        break;
+    /** Exit of a {@link Flux}, which tells how many elements it emitted whatever showResult is. */
+    String exit(String event, long elapsedNanos, long elements) {
+      return exit(event, elapsedNanos)
+          .append(" with ")
+          .append(elements)
+          .append(" elements")
+          .toString();
+    }
+
+    private StringBuilder exit(String event, long elapsedNanos) {
+      var message = new StringBuilder(event).append(' ').append(methodName).append(" method");
+      if (showExecutionTime)
+        message.append(" in ").append(elapsedNanos / unitNanos).append(' ').append(unitName);
+      return message;
+    }
+
+    void log(String message) {
+      switch (level) {
+        case DEBUG:
+          logger.debug(message);
+          break;
+        case TRACE:
+          logger.trace(message);
+          break;
+        case WARN:
+          logger.warn(message);
+          break;
+        case ERROR:
+        case FATAL:
+          logger.error(message);
+          break;
+        default:
+          logger.info(message);
+          break;
+      }
     }
   }
 }
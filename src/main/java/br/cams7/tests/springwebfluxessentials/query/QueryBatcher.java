@@ -0,0 +1,119 @@
+package br.cams7.tests.springwebfluxessentials.query;
+
+import br.cams7.tests.springwebfluxessentials.config.AnimeProperties;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Merges loads of single keys into batch queries, like a DataLoader: the first key of a batch waits
+ * up to {@code animes.loader.max-wait} for others, and the batch is read at once when it reaches
+ * {@code animes.loader.max-batch-size} keys. Each load then gets the value of its own key, or
+ * completes empty when the batch didn't find it.
+ *
+ * <p>A load that is cancelled stays in its batch, whose query isn't worth cancelling for one key.
+ */
+@Component
+public class QueryBatcher {
+  private final int maxBatchSize;
+  private final Duration maxWait;
+  private final Scheduler scheduler;
+  private final Map<String, Batches<?, ?>> batches = new ConcurrentHashMap<>();
+
+  @Autowired
+  public QueryBatcher(AnimeProperties properties) {
+    this(properties.getLoader(), Schedulers.parallel());
+  }
+
+  QueryBatcher(AnimeProperties.Loader settings, Scheduler scheduler) {
+    this.maxBatchSize = settings.getMaxBatchSize();
+    this.maxWait = settings.getMaxWait();
+    this.scheduler = scheduler;
+  }
+
+  /** Whether loads are batched at all; otherwise callers better read keys on their own. */
+  public boolean isEnabled() {
+    return !maxWait.isZero() && maxBatchSize > 1;
+  }
+
+  /**
+   * @param query names the batches; every load of the same query must pass the same functions.
+   * @param source reads the values of a batch of keys.
+   * @param keyOf tells the key of a value read by {@code source}.
+   */
+  public <K, V> Mono<V> load(
+      String query, K key, Function<Set<K>, Flux<V>> source, Function<V, K> keyOf) {
+    return Mono.defer(
+        () -> {
+          @SuppressWarnings("unchecked")
+          var batches =
+              (Batches<K, V>)
+                  this.batches.computeIfAbsent(query, name -> new Batches<>(source, keyOf));
+          return batches.add(key);
+        });
+  }
+
+  /** The pending batch of a query; every batch is read by one call to its source. */
+  private class Batches<K, V> {
+    private final Function<Set<K>, Flux<V>> source;
+    private final Function<V, K> keyOf;
+    private Map<K, Sinks.One<V>> pending;
+
+    Batches(Function<Set<K>, Flux<V>> source, Function<V, K> keyOf) {
+      this.source = source;
+      this.keyOf = keyOf;
+    }
+
+    Mono<V> add(K key) {
+      Sinks.One<V> value;
+      Map<K, Sinks.One<V>> full = null;
+      synchronized (this) {
+        if (pending == null) {
+          var batch = new LinkedHashMap<K, Sinks.One<V>>();
+          pending = batch;
+          scheduler.schedule(() -> flush(batch), maxWait.toNanos(), TimeUnit.NANOSECONDS);
+        }
+        value = pending.computeIfAbsent(key, k -> Sinks.one());
+        if (pending.size() >= maxBatchSize) {
+          full = pending;
+          pending = null;
+        }
+      }
+      if (full != null) read(full);
+      return value.asMono();
+    }
+
+    private void flush(Map<K, Sinks.One<V>> batch) {
+      synchronized (this) {
+        // already read because it was full
+        if (pending != batch) return;
+        pending = null;
+      }
+      read(batch);
+    }
+
+    private void read(Map<K, Sinks.One<V>> batch) {
+      Mono.defer(() -> source.apply(batch.keySet()).collectList())
+          .subscribe(
+              values -> {
+                for (var value : values) {
+                  var sink = batch.get(keyOf.apply(value));
+                  if (sink != null) sink.tryEmitValue(value);
+                }
+                batch.values().forEach(Sinks.One::tryEmitEmpty);
+              },
+              error -> batch.values().forEach(sink -> sink.tryEmitError(error)));
+    }
+  }
+}
@@ -0,0 +1,143 @@
+package br.cams7.tests.springwebfluxessentials.query;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import lombok.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+/**
+ * Runs identical queries only once while they are in flight: a subscriber arriving while a query
+ * with the same name, key and generation is running gets its result instead of running another one.
+ * Queries aren't joined across generations, so callers pass e.g. a counter bumped by every write to
+ * never get a result read before their own write.
+ *
+ * <p>A query is cancelled only when all its subscribers cancelled; later subscribers then start a
+ * new one. Executed and coalesced queries are counted by the {@code anime.queries} meters, tagged
+ * with the query name and an {@code outcome} of {@code executed} or {@code coalesced}.
+ */
+@Component
+public class QueryCoalescer {
+  private static final String EXECUTED = "executed";
+  private static final String COALESCED = "coalesced";
+
+  private final MeterRegistry registry;
+  private final Map<Key, Flight<?>> flights = new ConcurrentHashMap<>();
+  private final Map<String, Counters> counters = new ConcurrentHashMap<>();
+
+  public QueryCoalescer(MeterRegistry registry) {
+    this.registry = registry;
+  }
+
+  public <V> Mono<V> execute(String query, Object key, long generation, Supplier<Mono<V>> source) {
+    return Mono.deferContextual(
+        context -> {
+          var flightKey = new Key(query, key, generation);
+          var counters = this.counters.computeIfAbsent(query, Counters::new);
+          while (true) {
+            @SuppressWarnings("unchecked")
+            var flight = (Flight<V>) flights.get(flightKey);
+            if (flight == null) {
+              var started = new Flight<V>(flightKey);
+              if (flights.putIfAbsent(flightKey, started) == null) {
+                counters.executed.increment();
+                var result = started.subscribe();
+                started.start(source, context);
+                return result;
+              }
+            } else if (flight.join()) {
+              counters.coalesced.increment();
+              return flight.subscribe();
+            } else flights.remove(flightKey, flight);
+          }
+        });
+  }
+
+  /** Queries in flight, for tests. */
+  int size() {
+    return flights.size();
+  }
+
+  @Value
+  private static class Key {
+    String query;
+    Object key;
+    long generation;
+  }
+
+  private class Counters {
+    private final Counter executed;
+    private final Counter coalesced;
+
+    Counters(String query) {
+      executed = register(query, EXECUTED, "Queries run against the database");
+      coalesced = register(query, COALESCED, "Queries answered by an identical one in flight");
+    }
+
+    private Counter register(String query, String outcome, String description) {
+      return Counter.builder("anime.queries")
+          .tag("query", query)
+          .tag("outcome", outcome)
+          .description(description)
+          .register(registry);
+    }
+  }
+
+  /** One running query and the number of its subscribers still waiting for it. */
+  private class Flight<V> {
+    private final Key key;
+    private final Sinks.One<V> result = Sinks.one();
+    private Disposable upstream;
+    private int subscribers = 1;
+    private boolean cancelled;
+
+    Flight(Key key) {
+      this.key = key;
+    }
+
+    /** Runs the query with the context of the subscriber who started it. */
+    void start(Supplier<Mono<V>> source, ContextView context) {
+      var subscription =
+          Mono.defer(source)
+              // a subscriber who joined meanwhile still gets the result, which the sink keeps
+              .doFinally(signal -> flights.remove(key, this))
+              .subscribe(
+                  result::tryEmitValue,
+                  result::tryEmitError,
+                  result::tryEmitEmpty,
+                  Context.of(context));
+      synchronized (this) {
+        if (cancelled) subscription.dispose();
+        else upstream = subscription;
+      }
+    }
+
+    synchronized boolean join() {
+      if (cancelled) return false;
+      subscribers++;
+      return true;
+    }
+
+    Mono<V> subscribe() {
+      return result.asMono().doOnCancel(this::leave);
+    }
+
+    private void leave() {
+      Disposable subscription;
+      synchronized (this) {
+        if (--subscribers > 0 || cancelled) return;
+        cancelled = true;
+        subscription = upstream;
+      }
+      flights.remove(key, this);
+      if (subscription != null) subscription.dispose();
+    }
+  }
+}
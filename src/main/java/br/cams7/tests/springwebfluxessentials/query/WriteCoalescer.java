@@ -0,0 +1,201 @@
+package br.cams7.tests.springwebfluxessentials.query;
+
+import br.cams7.tests.springwebfluxessentials.config.AnimeProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import lombok.Value;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Merges writes of the same row, last writer wins: the first write of a command and key waits
+ * {@code animes.updates.coalesce-window} for others, and only the last one arrived meanwhile is
+ * applied. Every merged write then gets its result, so none of them completes before the row holds
+ * the last value.
+ *
+ * <p>Writes of a key are never applied concurrently: a window ending while the previous write is
+ * still running keeps merging writes until that one is done. A write that is cancelled stays
+ * merged, since the others depend on it. Applied and merged writes are counted by the {@code
+ * anime.writes} meters, tagged with the command and an {@code outcome} of {@code written} or {@code
+ * merged}.
+ */
+@Component
+public class WriteCoalescer {
+  private static final String WRITTEN = "written";
+  private static final String MERGED = "merged";
+
+  private final Duration window;
+  private final Scheduler scheduler;
+  private final MeterRegistry registry;
+  private final Map<Key, Row<?>> rows = new ConcurrentHashMap<>();
+  private final Map<String, Counters> counters = new ConcurrentHashMap<>();
+
+  @Autowired
+  public WriteCoalescer(AnimeProperties properties, MeterRegistry registry) {
+    this(properties.getUpdates().getCoalesceWindow(), Schedulers.parallel(), registry);
+  }
+
+  /**
+   * @param scheduler times the windows.
+   */
+  public WriteCoalescer(Duration window, Scheduler scheduler, MeterRegistry registry) {
+    this.window = window;
+    this.scheduler = scheduler;
+    this.registry = registry;
+  }
+
+  /** Whether writes are merged at all; otherwise callers better apply them on their own. */
+  public boolean isEnabled() {
+    return !window.isZero();
+  }
+
+  /**
+   * @param write applies this write; it isn't called when a later write of the same command and key
+   *     is merged with it.
+   */
+  public <R> Mono<R> write(String command, Object key, Supplier<Mono<R>> write) {
+    return Mono.defer(
+        () -> {
+          var rowKey = new Key(command, key);
+          var counters = this.counters.computeIfAbsent(command, Counters::new);
+          while (true) {
+            @SuppressWarnings("unchecked")
+            var row = (Row<R>) rows.computeIfAbsent(rowKey, Row::new);
+            var result = row.add(write, counters);
+            if (result != null) return result;
+            // the row was done with meanwhile
+            rows.remove(rowKey, row);
+          }
+        });
+  }
+
+  /** Rows with writes waiting or running, for tests. */
+  int size() {
+    return rows.size();
+  }
+
+  @Value
+  private static class Key {
+    String command;
+    Object key;
+  }
+
+  private class Counters {
+    private final Counter written;
+    private final Counter merged;
+
+    Counters(String command) {
+      written = register(command, WRITTEN, "Writes applied to the database");
+      merged = register(command, MERGED, "Writes replaced by a later one of the same row");
+    }
+
+    private Counter register(String command, String outcome, String description) {
+      return Counter.builder("anime.writes")
+          .tag("command", command)
+          .tag("outcome", outcome)
+          .description(description)
+          .register(registry);
+    }
+  }
+
+  /** The writes of one row: the one running, if any, and those merged to be applied next. */
+  private class Row<R> {
+    private final Key key;
+    private Merged<R> next;
+    private boolean writing;
+    private boolean done;
+
+    Row(Key key) {
+      this.key = key;
+    }
+
+    /** Merges the write into the next one, or returns {@code null} when the row is done with. */
+    Mono<R> add(Supplier<Mono<R>> write, Counters counters) {
+      Merged<R> opened = null;
+      Mono<R> result;
+      synchronized (this) {
+        if (done) return null;
+        if (next == null) {
+          opened = next = new Merged<>();
+          counters.written.increment();
+        } else counters.merged.increment();
+        next.write = write;
+        result = next.result.asMono();
+      }
+      // outside the lock, since the scheduler may close the window right away
+      if (opened != null) {
+        var merged = opened;
+        scheduler.schedule(() -> close(merged), window.toNanos(), TimeUnit.NANOSECONDS);
+      }
+      return result;
+    }
+
+    private void close(Merged<R> merged) {
+      synchronized (this) {
+        merged.closed = true;
+        // applied once the running write is done
+        if (writing) return;
+        next = null;
+        writing = true;
+      }
+      apply(merged);
+    }
+
+    private void apply(Merged<R> merged) {
+      // done with the row before completing the writes, whose callers may resume writing it
+      Mono.defer(merged.write)
+          .map(Optional::of)
+          .defaultIfEmpty(Optional.empty())
+          .subscribe(
+              value -> {
+                var closed = written();
+                if (value.isPresent()) merged.result.tryEmitValue(value.get());
+                else merged.result.tryEmitEmpty();
+                if (closed != null) apply(closed);
+              },
+              error -> {
+                var closed = written();
+                merged.result.tryEmitError(error);
+                if (closed != null) apply(closed);
+              });
+    }
+
+    /**
+     * Returns the merged write whose window closed while the last one ran, which is then running,
+     * or {@code null} after removing the row when no write is waiting.
+     */
+    private Merged<R> written() {
+      Merged<R> closed = null;
+      boolean removed;
+      synchronized (this) {
+        writing = false;
+        if (next == null) done = true;
+        else if (next.closed) {
+          closed = next;
+          next = null;
+          writing = true;
+        }
+        removed = done;
+      }
+      if (removed) rows.remove(key, this);
+      return closed;
+    }
+  }
+
+  /** Writes merged into one, of which the last is applied. */
+  private static class Merged<R> {
+    private final Sinks.One<R> result = Sinks.one();
+    private Supplier<Mono<R>> write;
+    private boolean closed;
+  }
+}
@@ -0,0 +1,150 @@
+package br.cams7.tests.springwebfluxessentials.ratelimit;
+
+import br.cams7.tests.springwebfluxessentials.config.RateLimitProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import lombok.Value;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.PathContainer;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+/**
+ * Token buckets per user and route, as configured by {@code rate-limit.routes}.
+ *
+ * <p>Each bucket is a single {@link AtomicLong} holding the time at which it will be full again
+ * (the generic cell rate algorithm): a request is admitted when that time, pushed one request
+ * later, is at most a period away, and the bucket is updated by compare-and-set, so concurrent
+ * requests never lock. Buckets are kept by a cache bounded by {@code rate-limit.maximum-buckets}.
+ * Rejections are counted by the {@code rate.limit.rejections} meter tagged with the route.
+ */
+@Component
+public class RateLimiter {
+  private static final String ROLE_PREFIX = "ROLE_";
+
+  private final List<Route> routes = new ArrayList<>();
+  private final Cache<Bucket, AtomicLong> buckets;
+  private final LongSupplier clock;
+
+  @Autowired
+  public RateLimiter(RateLimitProperties properties, MeterRegistry registry) {
+    this(properties, registry, System::nanoTime);
+  }
+
+  RateLimiter(RateLimitProperties properties, MeterRegistry registry, LongSupplier clock) {
+    this.clock = clock;
+    for (var route : properties.getRoutes()) routes.add(new Route(routes.size(), route, registry));
+    // bounded by size only: an expiry would read the clock once more on every request, and
+    // maintenance runs on the requesting thread rather than being handed over every few requests
+    buckets =
+        Caffeine.newBuilder()
+            .maximumSize(properties.getMaximumBuckets())
+            .executor(Runnable::run)
+            .build();
+  }
+
+  /** The first route matching the request, or {@code null} when it isn't limited. */
+  public Route getRoute(HttpMethod method, PathContainer path) {
+    for (var route : routes) if (route.matches(method, path)) return route;
+    return null;
+  }
+
+  long size() {
+    buckets.cleanUp();
+    return buckets.estimatedSize();
+  }
+
+  /** A limited route, whose requests are counted per user. */
+  public class Route {
+    private final int index;
+    private final HttpMethod method;
+    private final PathPattern pattern;
+    private final Map<String, Rate> rates = new HashMap<>();
+    private final Counter rejections;
+
+    private Route(int index, RateLimitProperties.Route route, MeterRegistry registry) {
+      this.index = index;
+      this.method = route.getMethod();
+      this.pattern = PathPatternParser.defaultInstance.parse(route.getPath());
+      route
+          .getLimits()
+          .forEach(
+              (role, limit) -> {
+                var authority = role.toUpperCase(Locale.ROOT);
+                if (!authority.startsWith(ROLE_PREFIX)) authority = ROLE_PREFIX + authority;
+                rates.put(authority, new Rate(limit));
+              });
+      this.rejections =
+          Counter.builder("rate.limit.rejections")
+              .tag("route", (method != null ? method + " " : "") + pattern.getPatternString())
+              .description("Requests rejected for exceeding the rate limit of their user")
+              .register(registry);
+    }
+
+    private boolean matches(HttpMethod method, PathContainer path) {
+      return (this.method == null || this.method.equals(method)) && pattern.matches(path);
+    }
+
+    /**
+     * Takes a request from the bucket of the user and tells how many nanoseconds it must wait
+     * before retrying, or 0 when the request is admitted.
+     */
+    public long acquire(String name, Collection<? extends GrantedAuthority> authorities) {
+      var rate = getRate(authorities);
+      if (rate == null) return 0;
+
+      var now = clock.getAsLong();
+      var bucket = buckets.get(new Bucket(name, index), key -> new AtomicLong(now));
+      while (true) {
+        var full = bucket.get();
+        var next = (full - now > 0 ? full : now) + rate.interval;
+        var wait = next - now - rate.period;
+        if (wait > 0) {
+          rejections.increment();
+          return wait;
+        }
+        if (bucket.compareAndSet(full, next)) return 0;
+      }
+    }
+
+    /** The highest rate among the roles, or {@code null} when none of them is limited. */
+    private Rate getRate(Collection<? extends GrantedAuthority> authorities) {
+      Rate highest = null;
+      for (var authority : authorities) {
+        var rate = rates.get(authority.getAuthority());
+        if (rate != null && (highest == null || rate.interval < highest.interval)) highest = rate;
+      }
+      return highest;
+    }
+  }
+
+  @Value
+  private static class Bucket {
+    String name;
+    int route;
+  }
+
+  /** A limit in nanoseconds: the period and the time it takes to regain one request. */
+  private static class Rate {
+    private final long period;
+    private final long interval;
+
+    Rate(RateLimitProperties.Limit limit) {
+      period = limit.getPeriod().toNanos();
+      interval = Math.max(1, period / Math.max(1, limit.getCapacity()));
+    }
+  }
+}
@@ -1,15 +1,70 @@
 package br.cams7.tests.springwebfluxessentials.repository;
 
 import br.cams7.tests.springwebfluxessentials.domain.Anime;
+import java.util.Collection;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 @Repository
-public interface AnimeRepository extends ReactiveCrudRepository<Anime, Long> {
+public interface AnimeRepository
+    extends ReactiveCrudRepository<Anime, Long>, AnimeRepositoryCustom {
   Mono<Anime> findById(Long id);
 
   Flux<Anime> findAllBy(Pageable pageable);
+
+  /** Both years are inclusive. */
+  Mono<Long> countByPublicationYearBetween(Short from, Short to);
+
+  /** Returns the number of updated rows, 0 when there is no anime with this id. */
+  @Modifying
+  @Query(
+      "UPDATE tb_anime SET name = :name, publication_year = :publicationYear"
+          + " WHERE id_anime = :id")
+  Mono<Integer> updateById(Long id, String name, Short publicationYear);
+
+  /** Returns the number of deleted rows, 0 when there is no anime with this id. */
+  @Modifying
+  @Query("DELETE FROM tb_anime WHERE id_anime = :id")
+  Mono<Integer> removeById(Long id);
+
+  /** Returns the number of deleted rows; unknown ids are ignored. */
+  @Modifying
+  @Query("DELETE FROM tb_anime WHERE id_anime IN (:ids)")
+  Mono<Integer> removeAllById(Collection<Long> ids);
+
+  // Keyset (seek) queries: each one continues right after the (sort key, id_anime) of the last
+  // row already read, so the cost depends on the page size and not on how deep the page is.
+
+  @Query("SELECT * FROM tb_anime WHERE id_anime > :id ORDER BY id_anime LIMIT :limit")
+  Flux<Anime> seekByIdAsc(Long id, int limit);
+
+  @Query("SELECT * FROM tb_anime WHERE id_anime < :id ORDER BY id_anime DESC LIMIT :limit")
+  Flux<Anime> seekByIdDesc(Long id, int limit);
+
+  @Query(
+      "SELECT * FROM tb_anime WHERE name > :name OR (name = :name AND id_anime > :id)"
+          + " ORDER BY name, id_anime LIMIT :limit")
+  Flux<Anime> seekByNameAsc(String name, Long id, int limit);
+
+  @Query(
+      "SELECT * FROM tb_anime WHERE name < :name OR (name = :name AND id_anime < :id)"
+          + " ORDER BY name DESC, id_anime DESC LIMIT :limit")
+  Flux<Anime> seekByNameDesc(String name, Long id, int limit);
+
+  @Query(
+      "SELECT * FROM tb_anime WHERE publication_year > :year"
+          + " OR (publication_year = :year AND id_anime > :id)"
+          + " ORDER BY publication_year, id_anime LIMIT :limit")
+  Flux<Anime> seekByPublicationYearAsc(Short year, Long id, int limit);
+
+  @Query(
+      "SELECT * FROM tb_anime WHERE publication_year < :year"
+          + " OR (publication_year = :year AND id_anime < :id)"
+          + " ORDER BY publication_year DESC, id_anime DESC LIMIT :limit")
+  Flux<Anime> seekByPublicationYearDesc(Short year, Long id, int limit);
 }
@@ -0,0 +1,33 @@
+package br.cams7.tests.springwebfluxessentials.repository;
+
+import br.cams7.tests.springwebfluxessentials.domain.Anime;
+import java.util.List;
+import org.springframework.data.domain.Pageable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface AnimeRepositoryCustom {
+  /** Same offset and sort as {@code pageable}, but reads up to {@code limit} rows. */
+  Flux<Anime> findAllBy(Pageable pageable, int limit);
+
+  /**
+   * Like {@link #findAllBy(Pageable, int)}, for the animes published from {@code from} to {@code
+   * to}, both inclusive. The {@code (publication_year, id_anime)} index serves the range.
+   */
+  Flux<Anime> findAllByPublicationYear(short from, short to, Pageable pageable, int limit);
+
+  /**
+   * Reads the whole table through one cursor, pulling {@code fetchSize} rows at a time as the
+   * subscriber asks for them.
+   */
+  Flux<Anime> streamAll(int fetchSize);
+
+  /**
+   * Inserts all animes with one multi-row INSERT and returns them with the generated ids, in the
+   * same order. Callers split large inputs in chunks, since every anime takes two bind parameters.
+   */
+  Flux<Anime> insertAll(List<Anime> animes);
+
+  /** Row count kept by the database statistics, empty when the database has none. */
+  Mono<Long> estimateCount();
+}
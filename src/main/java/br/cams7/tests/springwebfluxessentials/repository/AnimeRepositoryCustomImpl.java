@@ -0,0 +1,98 @@
+package br.cams7.tests.springwebfluxessentials.repository;
+
+import br.cams7.tests.springwebfluxessentials.domain.Anime;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.relational.core.query.Criteria;
+import org.springframework.data.relational.core.query.Query;
+import org.springframework.r2dbc.core.DatabaseClient.GenericExecuteSpec;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+@RequiredArgsConstructor
+public class AnimeRepositoryCustomImpl implements AnimeRepositoryCustom {
+  private static final String POSTGRESQL_ESTIMATE_COUNT =
+      "SELECT reltuples::bigint FROM pg_class WHERE oid = 'tb_anime'::regclass";
+  private static final String H2_ESTIMATE_COUNT =
+      "SELECT ROW_COUNT_ESTIMATE FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_NAME = 'TB_ANIME'";
+
+  private static final String STREAM_ALL =
+      "SELECT id_anime, name, publication_year FROM tb_anime ORDER BY id_anime";
+
+  private static final String PUBLICATION_YEAR = "publicationYear";
+
+  private static final String INSERT_ALL = "INSERT INTO tb_anime (name, publication_year) VALUES ";
+
+  private final R2dbcEntityTemplate template;
+
+  @Override
+  public Flux<Anime> findAllBy(Pageable pageable, int limit) {
+    var query = Query.empty().sort(pageable.getSort()).offset(pageable.getOffset()).limit(limit);
+    return template.select(Anime.class).matching(query).all();
+  }
+
+  @Override
+  public Flux<Anime> findAllByPublicationYear(short from, short to, Pageable pageable, int limit) {
+    var query =
+        Query.query(Criteria.where(PUBLICATION_YEAR).between(from, to))
+            .sort(pageable.getSort())
+            .offset(pageable.getOffset())
+            .limit(limit);
+    return template.select(Anime.class).matching(query).all();
+  }
+
+  @Override
+  public Flux<Anime> streamAll(int fetchSize) {
+    return template
+        .getDatabaseClient()
+        .sql(STREAM_ALL)
+        .filter(statement -> statement.fetchSize(fetchSize))
+        .map((row, metadata) -> template.getConverter().read(Anime.class, row, metadata))
+        .all();
+  }
+
+  @Override
+  public Flux<Anime> insertAll(List<Anime> animes) {
+    if (animes.isEmpty()) return Flux.empty();
+
+    var sql = new StringBuilder(INSERT_ALL.length() + animes.size() * 24).append(INSERT_ALL);
+    for (int i = 0; i < animes.size(); i++) {
+      if (i > 0) sql.append(", ");
+      sql.append("(:name").append(i).append(", :year").append(i).append(')');
+    }
+    var spec = template.getDatabaseClient().sql(sql.toString());
+    for (int i = 0; i < animes.size(); i++) {
+      var anime = animes.get(i);
+      spec = bind(spec, "name" + i, anime.getName(), String.class);
+      spec = bind(spec, "year" + i, anime.getPublicationYear(), Short.class);
+    }
+    return spec.filter(statement -> statement.returnGeneratedValues("id_anime"))
+        .map(row -> row.get(0, Long.class))
+        .all()
+        .zipWithIterable(animes, (id, anime) -> anime.withId(id));
+  }
+
+  @Override
+  public Mono<Long> estimateCount() {
+    var client = template.getDatabaseClient();
+    var database = client.getConnectionFactory().getMetadata().getName();
+    String sql;
+    if (database.startsWith("PostgreSQL")) sql = POSTGRESQL_ESTIMATE_COUNT;
+    else if (database.startsWith("H2")) sql = H2_ESTIMATE_COUNT;
+    else return Mono.empty();
+
+    return client
+        .sql(sql)
+        .map(row -> row.get(0, Long.class))
+        .one()
+        // PostgreSQL reports -1 for tables that were never analyzed
+        .filter(count -> count >= 0);
+  }
+
+  private static GenericExecuteSpec bind(
+      GenericExecuteSpec spec, String name, Object value, Class<?> type) {
+    return value != null ? spec.bind(name, value) : spec.bindNull(name, type);
+  }
+}
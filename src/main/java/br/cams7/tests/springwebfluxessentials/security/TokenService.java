@@ -0,0 +1,123 @@
+package br.cams7.tests.springwebfluxessentials.security;
+
+import br.cams7.tests.springwebfluxessentials.config.AuthenticationProperties;
+import br.cams7.tests.springwebfluxessentials.domain.AccessToken;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.stream.Collectors;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.CredentialsExpiredException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+/**
+ * Issues and verifies stateless bearer tokens, {@code payload.signature} where the payload holds
+ * the expiry, authorities and username and the signature is its HMAC-SHA256. Verifying a token
+ * needs neither the database nor the password encoder.
+ */
+@Service
+public class TokenService {
+  public static final String TOKEN_TYPE = "Bearer";
+
+  private static final String ALGORITHM = "HmacSHA256";
+  private static final String SEPARATOR = ":";
+  private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+  private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+  private final SecretKeySpec key;
+  private final Duration ttl;
+  private final Clock clock;
+
+  // Mac instances aren't thread safe
+  private final ThreadLocal<Mac> macs = ThreadLocal.withInitial(this::createMac);
+
+  @Autowired
+  public TokenService(AuthenticationProperties properties) {
+    this(properties, Clock.systemUTC());
+  }
+
+  TokenService(AuthenticationProperties properties, Clock clock) {
+    var settings = properties.getToken();
+    this.key = new SecretKeySpec(getSecret(settings.getSecret()), ALGORITHM);
+    this.ttl = settings.getTtl();
+    this.clock = clock;
+  }
+
+  public AccessToken issue(Authentication authentication) {
+    var expiresAt = clock.instant().plus(ttl).getEpochSecond();
+    var authorities =
+        authentication.getAuthorities().stream()
+            .map(GrantedAuthority::getAuthority)
+            .collect(Collectors.joining(","));
+    // the username goes last, so it may contain the separator
+    var payload =
+        ENCODER.encodeToString(
+            String.join(SEPARATOR, String.valueOf(expiresAt), authorities, authentication.getName())
+                .getBytes(StandardCharsets.UTF_8));
+    return new AccessToken(payload + "." + sign(payload), TOKEN_TYPE, ttl.toSeconds());
+  }
+
+  /**
+   * Returns an authenticated {@link Authentication} whose principal is the username.
+   *
+   * @throws BadCredentialsException when the token is malformed or its signature doesn't match.
+   * @throws CredentialsExpiredException when the token has expired.
+   */
+  public Authentication verify(String token) {
+    var index = token.indexOf('.');
+    if (index < 0) throw new BadCredentialsException("Invalid token");
+    var payload = token.substring(0, index);
+    var signature = token.substring(index + 1).getBytes(StandardCharsets.US_ASCII);
+    if (!MessageDigest.isEqual(sign(payload).getBytes(StandardCharsets.US_ASCII), signature))
+      throw new BadCredentialsException("Invalid token");
+
+    String[] parts;
+    long expiresAt;
+    try {
+      parts = new String(DECODER.decode(payload), StandardCharsets.UTF_8).split(SEPARATOR, 3);
+      expiresAt = Long.parseLong(parts[0]);
+    } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+      throw new BadCredentialsException("Invalid token", e);
+    }
+    if (parts.length != 3) throw new BadCredentialsException("Invalid token");
+    if (clock.instant().getEpochSecond() >= expiresAt)
+      throw new CredentialsExpiredException("Expired token");
+
+    return new UsernamePasswordAuthenticationToken(
+        parts[2], null, AuthorityUtils.commaSeparatedStringToAuthorityList(parts[1]));
+  }
+
+  private String sign(String payload) {
+    return ENCODER.encodeToString(macs.get().doFinal(payload.getBytes(StandardCharsets.US_ASCII)));
+  }
+
+  private Mac createMac() {
+    try {
+      var mac = Mac.getInstance(ALGORITHM);
+      mac.init(key);
+      return mac;
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static byte[] getSecret(String secret) {
+    if (StringUtils.hasText(secret)) return secret.getBytes(StandardCharsets.UTF_8);
+
+    var random = new byte[32];
+    new SecureRandom().nextBytes(random);
+    return random;
+  }
+}
@@ -1,57 +1,529 @@
 package br.cams7.tests.springwebfluxessentials.service;
 
+import static br.cams7.tests.springwebfluxessentials.utils.CommonExceptions.responseBadRequestException;
 import static br.cams7.tests.springwebfluxessentials.utils.CommonExceptions.responseNotFoundException;
+import static br.cams7.tests.springwebfluxessentials.utils.CommonExceptions.responsePreconditionFailedException;
 
+import br.cams7.tests.springwebfluxessentials.cache.AnimeCache;
+import br.cams7.tests.springwebfluxessentials.cache.CatalogVersion;
+import br.cams7.tests.springwebfluxessentials.config.AnimeProperties;
 import br.cams7.tests.springwebfluxessentials.domain.Anime;
+import br.cams7.tests.springwebfluxessentials.domain.CatalogStatistics;
+import br.cams7.tests.springwebfluxessentials.domain.ChunkResult;
+import br.cams7.tests.springwebfluxessentials.domain.CursorPage;
+import br.cams7.tests.springwebfluxessentials.index.AnimeSearchIndex;
+import br.cams7.tests.springwebfluxessentials.index.PublicationYearHistogram;
+import br.cams7.tests.springwebfluxessentials.query.QueryBatcher;
+import br.cams7.tests.springwebfluxessentials.query.QueryCoalescer;
+import br.cams7.tests.springwebfluxessentials.query.WriteCoalescer;
 import br.cams7.tests.springwebfluxessentials.repository.AnimeRepository;
+import br.cams7.tests.springwebfluxessentials.utils.CountStrategy;
+import br.cams7.tests.springwebfluxessentials.utils.Cursor;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
 import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.function.Tuple2;
 
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class AnimeService {
+  private static final String ID_PROPERTY = "id";
+  private static final String NAME_PROPERTY = "name";
+  private static final String PUBLICATION_YEAR_PROPERTY = "publicationYear";
+  private static final String FIND_BY_ID_QUERY = "findById";
+  private static final String FIND_BY_PAGEABLE_QUERY = "findByPageable";
+  private static final String UPDATE_COMMAND = "update";
+  private static final Set<String> SEEK_PROPERTIES =
+      Set.of(ID_PROPERTY, NAME_PROPERTY, PUBLICATION_YEAR_PROPERTY);
+
   private final AnimeRepository repository;
+  private final AnimeProperties properties;
+  private final AnimeCache cache;
+  private final AnimeSearchIndex searchIndex;
+  private final PublicationYearHistogram histogram;
+  private final Validator validator;
+  private final QueryCoalescer coalescer;
+  private final QueryBatcher batcher;
+  private final WriteCoalescer writeCoalescer;
+  private final CatalogVersion version;
+  private volatile CachedCount cachedCount;
+
+  // completed once the search index and the histogram hold the whole catalog
+  private final Sinks.Empty<Void> indexesLoaded = Sinks.empty();
 
   public Flux<Anime> findAll() {
     return repository.findAll();
   }
 
-  public Mono<Page<Anime>> findByPageable(Pageable pageable) {
+  /** Emits the catalog row by row, only reading from the cursor as fast as it is consumed. */
+  public Flux<Anime> streamAll() {
+    var streaming = properties.getStreaming();
+    return repository.streamAll(streaming.getFetchSize()).limitRate(streaming.getPrefetch());
+  }
+
+  /** Reads the whole catalog, in id order, from one cursor sized for a single full pass. */
+  public Flux<Anime> exportAll() {
+    return repository.streamAll(properties.getExport().getFetchSize());
+  }
+
+  public Mono<Slice<Anime>> findByPageable(Pageable pageable) {
+    return findByPageable(pageable, null);
+  }
+
+  /**
+   * @param countStrategy how the total is obtained; {@code null} uses the configured strategy. With
+   *     {@link CountStrategy#NONE} the result is a {@link Slice} without totals, otherwise a {@link
+   *     Page}.
+   */
+  public Mono<Slice<Anime>> findByPageable(Pageable pageable, CountStrategy countStrategy) {
+    var strategy =
+        countStrategy != null ? countStrategy : properties.getPagination().getCountStrategy();
+    // the same page is often requested by many clients at once, e.g. the first one
+    return coalescer.execute(
+        FIND_BY_PAGEABLE_QUERY,
+        List.of(pageable, strategy),
+        version.get(),
+        () -> findPage(pageable, strategy));
+  }
+
+  private Mono<Slice<Anime>> findPage(Pageable pageable, CountStrategy strategy) {
+    if (CountStrategy.NONE.equals(strategy))
+      return repository
+          .findAllBy(pageable, pageable.getPageSize() + 1)
+          .collectList()
+          .map(animes -> getSlice(pageable, animes));
+
+    // one query after the other, so a request never holds two pooled connections at once
     return repository
         .findAllBy(pageable)
         .collectList()
-        .zipWith(repository.count())
-        .map(tuple2 -> new PageImpl<>(tuple2.getT1(), pageable, tuple2.getT2()));
+        .flatMap(
+            animes ->
+                getTotal(pageable, animes, Mono.defer(() -> count(strategy)))
+                    .<Slice<Anime>>map(total -> new PageImpl<>(animes, pageable, total)));
+  }
+
+  /**
+   * Animes published from {@code yearFrom} to {@code yearTo}, both inclusive; a {@code null} bound
+   * leaves that side open. Apart from {@link CountStrategy#EXACT}, totals come from the {@link
+   * PublicationYearHistogram} instead of a count query.
+   */
+  public Mono<Slice<Anime>> findByPublicationYear(
+      Short yearFrom, Short yearTo, Pageable pageable, CountStrategy countStrategy) {
+    var from = yearFrom != null ? yearFrom : Short.MIN_VALUE;
+    var to = yearTo != null ? yearTo : Short.MAX_VALUE;
+    if (from > to) return responseBadRequestException("yearFrom must not be after yearTo");
+
+    var strategy =
+        countStrategy != null ? countStrategy : properties.getPagination().getCountStrategy();
+    if (CountStrategy.NONE.equals(strategy))
+      return repository
+          .findAllByPublicationYear(from, to, pageable, pageable.getPageSize() + 1)
+          .collectList()
+          .map(animes -> getSlice(pageable, animes));
+
+    return repository
+        .findAllByPublicationYear(from, to, pageable, pageable.getPageSize())
+        .collectList()
+        .flatMap(
+            animes ->
+                getTotal(pageable, animes, countByPublicationYear(from, to, strategy))
+                    .<Slice<Anime>>map(total -> new PageImpl<>(animes, pageable, total)));
+  }
+
+  /** Counts per publication year and per decade, kept in memory and updated by every write. */
+  public Mono<CatalogStatistics> getStatistics() {
+    return afterIndexesLoaded(histogram::getStatistics);
+  }
+
+  public Mono<CursorPage<Anime>> findByCursor(Sort sort, String after, int size) {
+    var order = sort.iterator().next();
+    if (!SEEK_PROPERTIES.contains(order.getProperty()))
+      return responseBadRequestException(
+          "Cursor pagination doesn't support sorting by " + order.getProperty());
+    if (size < 1) return responseBadRequestException("Page size must not be less than one");
+
+    Flux<Anime> animes;
+    try {
+      // one extra row tells whether there is a next page without counting the table
+      animes = seek(order, Cursor.decode(after, order), size + 1);
+    } catch (NumberFormatException e) {
+      return responseBadRequestException("Invalid cursor");
+    } catch (IllegalArgumentException e) {
+      return responseBadRequestException(e.getMessage());
+    }
+    return animes.collectList().map(content -> getCursorPage(order, content, size));
   }
 
+  public Mono<Page<Anime>> search(String query, Pageable pageable) {
+    if (!StringUtils.hasText(query)) return responseBadRequestException("The query is required");
+    return afterIndexesLoaded(() -> searchIndex.search(query, pageable));
+  }
+
+  /**
+   * Starts filling the search index and the publication year histogram once the application is
+   * ready, a fetch of rows at a time, without holding up the thread that published the event.
+   * Writes made meanwhile are kept, animes deleted after being read aren't added back, and searches
+   * and counts answered by the indexes wait until the whole catalog is in them.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void loadIndexes() {
+    streamAll()
+        .buffer(properties.getStreaming().getFetchSize())
+        .doFirst(searchIndex::startLoading)
+        .doFinally(signal -> searchIndex.finishLoading())
+        .subscribe(
+            animes -> searchIndex.putAllIfAbsent(animes).forEach(histogram::add),
+            error -> {
+              log.error("Failed to load the indexes", error);
+              indexesLoaded.tryEmitError(error);
+            },
+            indexesLoaded::tryEmitEmpty);
+  }
+
+  /**
+   * Reads through the cache, which shares the read of a missing id among all the callers wanting it
+   * meanwhile; when {@code animes.loader.max-wait} is set, the id is read together with the ids
+   * other callers want.
+   */
   public Mono<Anime> findById(Long id) {
-    return repository.findById(id).switchIfEmpty(responseNotFoundException());
+    return cache.get(id, this::load).switchIfEmpty(responseNotFoundException());
+  }
+
+  /**
+   * Reads the animes with a single IN query and emits them in the order of their ids, without
+   * repeating them; unknown ids are skipped.
+   */
+  public Flux<Anime> findAllById(Collection<Long> ids) {
+    var unique = new LinkedHashSet<>(ids);
+    if (unique.isEmpty())
+      return Flux.from(responseBadRequestException("At least one id must be informed"));
+    var maxBatchSize = properties.getLoader().getMaxBatchSize();
+    if (unique.size() > maxBatchSize)
+      return Flux.from(
+          responseBadRequestException("At most " + maxBatchSize + " ids may be informed"));
+
+    return repository
+        .findAllById(unique)
+        .collectMap(Anime::getId)
+        .flatMapIterable(
+            animes ->
+                unique.stream()
+                    .map(animes::get)
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList()));
   }
 
   public Mono<Anime> save(Anime anime) {
-    return repository.save(anime);
+    return repository.save(anime).doFirst(version::increment).doOnSuccess(this::saved);
   }
 
   @Transactional
   public Flux<Anime> saveAll(Set<Anime> animes) {
-    return repository.saveAll(animes);
+    return Flux.defer(
+        () -> {
+          var inserted = new ArrayList<Anime>(animes.size());
+          return Flux.fromIterable(animes)
+              .buffer(properties.getBatch().getChunkSize())
+              .concatMap(repository::insertAll)
+              .doFirst(version::increment)
+              .doOnNext(inserted::add)
+              .doOnNext(this::saved)
+              // the whole batch is rolled back
+              .doOnError(error -> inserted.forEach(anime -> deleted(anime.getId())));
+        });
   }
 
+  /**
+   * Inserts the animes as they arrive, a chunk at a time, and emits them with their ids. Only the
+   * next chunk is requested while one is being written, so the producer is slowed down by the
+   * database and by the reader of the result. Unlike {@link #saveAll(Set)}, every chunk is
+   * committed on its own.
+   */
+  public Flux<Anime> ingest(Flux<Anime> animes) {
+    return animes
+        .buffer(properties.getBatch().getChunkSize())
+        .concatMap(
+            chunk -> repository.insertAll(chunk).doFirst(version::increment).doOnNext(this::saved),
+            1);
+  }
+
+  /**
+   * Imports the animes as they arrive and emits the outcome of every chunk of them. Invalid animes
+   * are skipped and reported, and a chunk whose insert fails, e.g. because of a name already in
+   * use, is reported and the import goes on. Like {@link #ingest(Flux)}, only the next chunk is
+   * requested while one is being written, so memory stays bounded whatever the upload size.
+   */
+  public Flux<ChunkResult> importAll(Flux<Anime> animes) {
+    return animes
+        .index()
+        .buffer(properties.getBatch().getChunkSize())
+        .index()
+        .concatMap(chunk -> importChunk(chunk.getT1(), chunk.getT2()), 1);
+  }
+
+  /**
+   * When {@code animes.updates.coalesce-window} is set, the updates of the anime sent within it are
+   * merged into one UPDATE of the last of them, which they all wait for. Deletes aren't delayed, so
+   * an update still waiting when its anime is deleted fails as not found.
+   */
   public Mono<Void> update(Anime anime) {
-    return findById(anime.getId())
-        .map(animeFound -> anime.withId(animeFound.getId()))
-        .flatMap(repository::save)
-        .then();
+    return update(anime, List.of());
+  }
+
+  /**
+   * Updates the anime unless {@code ifMatch} holds neither {@code *} nor a current catalog tag; of
+   * the updates holding the same tag only one is written, the others fail with 412.
+   */
+  public Mono<Void> update(Anime anime, List<String> ifMatch) {
+    var update =
+        Mono.defer(
+            () ->
+                repository
+                    .updateById(anime.getId(), anime.getName(), anime.getPublicationYear())
+                    .filter(updated -> updated > 0)
+                    .switchIfEmpty(responseNotFoundException())
+                    .doOnSuccess(updated -> saved(anime)));
+    var written =
+        writeCoalescer.isEnabled()
+            ? writeCoalescer.write(UPDATE_COMMAND, anime.getId(), () -> update)
+            : update;
+    return whenMatching(ifMatch, written).then();
   }
 
   public Mono<Void> delete(Long id) {
-    return findById(id).flatMap(repository::delete);
+    return delete(id, List.of());
+  }
+
+  /** Deletes the anime, checking {@code ifMatch} as {@link #update(Anime, List)} does. */
+  public Mono<Void> delete(Long id, List<String> ifMatch) {
+    var delete =
+        repository
+            .removeById(id)
+            .filter(deleted -> deleted > 0)
+            .switchIfEmpty(responseNotFoundException())
+            .doOnSuccess(deleted -> deleted(id));
+    return whenMatching(ifMatch, delete).then();
+  }
+
+  /**
+   * Deletes the animes in a single statement and emits how many of them existed; at most {@code
+   * animes.loader.max-batch-size} ids are bound into it.
+   */
+  public Mono<Integer> deleteAll(Set<Long> ids) {
+    return deleteAll(ids, List.of());
+  }
+
+  /** Deletes the animes, checking {@code ifMatch} as {@link #update(Anime, List)} does. */
+  public Mono<Integer> deleteAll(Set<Long> ids, List<String> ifMatch) {
+    if (ids.isEmpty()) return responseBadRequestException("At least one id must be informed");
+    var maxBatchSize = properties.getLoader().getMaxBatchSize();
+    if (ids.size() > maxBatchSize)
+      return responseBadRequestException("At most " + maxBatchSize + " ids may be informed");
+
+    var delete = repository.removeAllById(ids).doOnSuccess(deleted -> ids.forEach(this::deleted));
+    return whenMatching(ifMatch, delete);
+  }
+
+  private Mono<ChunkResult> importChunk(long chunk, List<Tuple2<Long, Anime>> animes) {
+    var offset = animes.get(0).getT1();
+    var valid = new ArrayList<Anime>(animes.size());
+    var rejected = new ArrayList<ChunkResult.Rejection>();
+    for (var anime : animes) {
+      var violations = validator.validate(anime.getT2());
+      if (violations.isEmpty()) valid.add(anime.getT2());
+      else rejected.add(new ChunkResult.Rejection(anime.getT1(), getMessage(violations)));
+    }
+
+    if (valid.isEmpty())
+      return Mono.just(new ChunkResult(chunk, offset, animes.size(), List.of(), rejected, null));
+
+    return repository
+        .insertAll(valid)
+        .doFirst(version::increment)
+        .doOnNext(this::saved)
+        .map(Anime::getId)
+        .collectList()
+        .map(ids -> new ChunkResult(chunk, offset, animes.size(), ids, rejected, null))
+        .onErrorResume(
+            DataIntegrityViolationException.class,
+            e ->
+                Mono.just(
+                    new ChunkResult(
+                        chunk,
+                        offset,
+                        animes.size(),
+                        List.of(),
+                        rejected,
+                        "The chunk repeats a name or contains one already in use")));
+  }
+
+  private Mono<Anime> load(Long id) {
+    if (!batcher.isEnabled()) return repository.findById(id);
+    return batcher.load(FIND_BY_ID_QUERY, id, repository::findAllById, Anime::getId);
+  }
+
+  private static String getMessage(Set<ConstraintViolation<Anime>> violations) {
+    return violations.stream()
+        .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+        .sorted()
+        .collect(Collectors.joining("; "));
+  }
+
+  // the search index returns the previous version, whose year the histogram has counted
+  private void saved(Anime anime) {
+    modified(anime.getId());
+    histogram.replace(searchIndex.put(anime), anime);
+  }
+
+  private void deleted(Long id) {
+    modified(id);
+    histogram.remove(searchIndex.remove(id));
+  }
+
+  private void modified(Long id) {
+    // the saved id may have been cached as unknown, so inserts invalidate too; done before the
+    // version changes, or a read in between could pair the new tag with the cached anime
+    cache.invalidate(id);
+    version.increment();
+  }
+
+  private <T> Mono<T> whenMatching(List<String> ifMatch, Mono<T> write) {
+    return Mono.defer(
+        () ->
+            version.startWrite(ifMatch)
+                ? write
+                : responsePreconditionFailedException("The animes were modified in the meantime"));
+  }
+
+  private <T> Mono<T> afterIndexesLoaded(Supplier<T> read) {
+    return indexesLoaded.asMono().then(Mono.fromSupplier(read));
+  }
+
+  private static Mono<Long> getTotal(Pageable pageable, List<Anime> animes, Mono<Long> count) {
+    // a partial page is the last one, so the total is already known
+    if (animes.size() < pageable.getPageSize() && (!animes.isEmpty() || pageable.getOffset() == 0))
+      return Mono.just(pageable.getOffset() + animes.size());
+    return count;
+  }
+
+  private Mono<Long> count(CountStrategy strategy) {
+    switch (strategy) {
+      case CACHED:
+        return cachedCount();
+      case ESTIMATED:
+        return repository.estimateCount().switchIfEmpty(Mono.defer(repository::count));
+      default:
+        return repository.count();
+    }
+  }
+
+  private Mono<Long> countByPublicationYear(short from, short to, CountStrategy strategy) {
+    if (CountStrategy.EXACT.equals(strategy))
+      return Mono.defer(() -> repository.countByPublicationYearBetween(from, to));
+    return afterIndexesLoaded(() -> histogram.count(from, to));
+  }
+
+  private Mono<Long> cachedCount() {
+    var readAt = version.get();
+    var cached = cachedCount;
+    if (cached != null && cached.isValid(readAt)) return Mono.just(cached.value);
+
+    var expiresAt = System.nanoTime() + properties.getPagination().getCountCacheTtl().toNanos();
+    return repository
+        .count()
+        .doOnNext(
+            count -> {
+              // a write that finished while counting makes this total stale already
+              if (version.get() == readAt) cachedCount = new CachedCount(readAt, count, expiresAt);
+            });
+  }
+
+  private static Slice<Anime> getSlice(Pageable pageable, List<Anime> animes) {
+    var hasNext = animes.size() > pageable.getPageSize();
+    var content = hasNext ? animes.subList(0, pageable.getPageSize()) : animes;
+    return new SliceImpl<>(content, pageable, hasNext);
+  }
+
+  private Flux<Anime> seek(Sort.Order order, Cursor cursor, int limit) {
+    var ascending = order.isAscending();
+    if (cursor == null) {
+      var sort = Sort.by(order);
+      if (!ID_PROPERTY.equals(order.getProperty()))
+        sort = sort.and(Sort.by(order.getDirection(), ID_PROPERTY));
+      return repository.findAllBy(PageRequest.of(0, limit, sort));
+    }
+
+    var id = cursor.getId();
+    switch (order.getProperty()) {
+      case NAME_PROPERTY:
+        return ascending
+            ? repository.seekByNameAsc(cursor.getValue(), id, limit)
+            : repository.seekByNameDesc(cursor.getValue(), id, limit);
+      case PUBLICATION_YEAR_PROPERTY:
+        var year = Short.valueOf(cursor.getValue());
+        return ascending
+            ? repository.seekByPublicationYearAsc(year, id, limit)
+            : repository.seekByPublicationYearDesc(year, id, limit);
+      default:
+        return ascending ? repository.seekByIdAsc(id, limit) : repository.seekByIdDesc(id, limit);
+    }
+  }
+
+  private static CursorPage<Anime> getCursorPage(Sort.Order order, List<Anime> animes, int size) {
+    if (animes.size() <= size) return new CursorPage<>(animes, size, true, null);
+
+    var content = animes.subList(0, size);
+    var last = content.get(size - 1);
+    var next = Cursor.of(order, last.getId(), getSortValue(order.getProperty(), last)).encode();
+    return new CursorPage<>(content, size, false, next);
+  }
+
+  private static Object getSortValue(String property, Anime anime) {
+    switch (property) {
+      case NAME_PROPERTY:
+        return anime.getName();
+      case PUBLICATION_YEAR_PROPERTY:
+        return anime.getPublicationYear();
+      default:
+        return anime.getId();
+    }
+  }
+
+  @RequiredArgsConstructor
+  private static class CachedCount {
+    private final long version;
+    private final long value;
+    private final long expiresAt;
+
+    boolean isValid(long currentVersion) {
+      return version == currentVersion && System.nanoTime() - expiresAt < 0;
+    }
   }
 }
@@ -1,19 +1,83 @@
 package br.cams7.tests.springwebfluxessentials.service;
 
+import br.cams7.tests.springwebfluxessentials.cache.PresenceExpiry;
+import br.cams7.tests.springwebfluxessentials.config.AuthenticationProperties;
+import br.cams7.tests.springwebfluxessentials.domain.User;
 import br.cams7.tests.springwebfluxessentials.repository.UserRepository;
-import lombok.RequiredArgsConstructor;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.util.Optional;
+import java.util.function.Function;
 import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Mono;
 
+/**
+ * Looks users up through a bounded cache, so HTTP Basic doesn't query tb_user on every request.
+ * Unknown usernames are cached too, with their own time to live. Nothing in the application changes
+ * users, so a user changed in tb_user is only read again once its {@code authentication.cache.ttl}
+ * has passed; that time to live bounds how stale a password or role may be.
+ *
+ * <p>Cached users are immutable {@link org.springframework.security.core.userdetails.User}s whose
+ * authorities were parsed once, when they were loaded. Metrics are published as {@code cache.*}
+ * meters tagged {@code cache=users}.
+ */
 @Service
-@RequiredArgsConstructor
 public class UserDetailsService implements ReactiveUserDetailsService {
+  private static final String CACHE_NAME = "users";
+
   private final UserRepository repository;
+  private final AsyncCache<String, Optional<UserDetails>> cache;
+
+  public UserDetailsService(
+      UserRepository repository, AuthenticationProperties properties, MeterRegistry registry) {
+    this.repository = repository;
+    var settings = properties.getCache();
+    cache =
+        Caffeine.newBuilder()
+            .maximumSize(settings.getMaximumSize())
+            .expireAfter(
+                new PresenceExpiry<String, UserDetails>(
+                    settings.getTtl(), settings.getNegativeTtl()))
+            .recordStats()
+            .buildAsync();
+
+    CaffeineCacheMetrics.monitor(registry, cache, CACHE_NAME);
+  }
 
   @Override
   public Mono<UserDetails> findByUsername(String username) {
-    return repository.findByUsername(username).cast(UserDetails.class);
+    var future =
+        cache.get(
+            username,
+            (key, executor) ->
+                repository
+                    .findByUsername(key)
+                    .map(UserDetailsService::toUserDetails)
+                    .map(Optional::of)
+                    .defaultIfEmpty(Optional.empty())
+                    .toFuture());
+    // a dependent stage, so a cancelled subscriber doesn't cancel the load shared with others
+    return Mono.fromCompletionStage(future.thenApply(Function.identity()))
+        .flatMap(Mono::justOrEmpty);
+  }
+
+  public CacheStats stats() {
+    return cache.synchronous().stats();
+  }
+
+  private static UserDetails toUserDetails(User user) {
+    return org.springframework.security.core.userdetails.User.withUsername(user.getUsername())
+        .password(user.getPassword())
+        .authorities(user.getAuthorities())
+        .accountExpired(!user.isAccountNonExpired())
+        .accountLocked(!user.isAccountNonLocked())
+        .credentialsExpired(!user.isCredentialsNonExpired())
+        .disabled(!user.isEnabled())
+        .build();
   }
 }
@@ -11,4 +11,16 @@ public final class CommonExceptions {
   public static <T> Mono<T> responseNotFoundException() {
     return Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND));
   }
+
+  public static <T> Mono<T> responsePreconditionFailedException(String reason) {
+    return Mono.error(new ResponseStatusException(HttpStatus.PRECONDITION_FAILED, reason));
+  }
+
+  public static <T> Mono<T> responseBadRequestException(String reason) {
+    return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, reason));
+  }
+
+  public static <T> Mono<T> responseTooManyRequestsException(String reason) {
+    return Mono.error(new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, reason));
+  }
 }
@@ -0,0 +1,19 @@
+package br.cams7.tests.springwebfluxessentials.utils;
+
+/** How the total number of animes is obtained for a page. */
+public enum CountStrategy {
+  /** Runs a COUNT on every page. */
+  EXACT,
+  /** Reuses the last COUNT until the catalog changes or the cached value expires. */
+  CACHED,
+  /** Reads the row estimate kept by the database statistics. */
+  ESTIMATED,
+  /** Skips the total; fetches one extra row to tell whether there is a next page. */
+  NONE;
+
+  public static CountStrategy getStrategy(String strategy) {
+    for (CountStrategy countStrategy : values())
+      if (countStrategy.name().equalsIgnoreCase(strategy)) return countStrategy;
+    return null;
+  }
+}
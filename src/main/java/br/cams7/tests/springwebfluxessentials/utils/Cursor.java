@@ -0,0 +1,60 @@
+package br.cams7.tests.springwebfluxessentials.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import lombok.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.util.ObjectUtils;
+
+/**
+ * Opaque keyset position: the sort field and direction of the page it was created for, plus the
+ * sort key and {@code id_anime} of the last row already returned.
+ */
+@Value
+public class Cursor {
+  private static final String SEPARATOR = "|";
+
+  String field;
+  Sort.Direction direction;
+  long id;
+  String value;
+
+  public static Cursor of(Sort.Order order, long id, Object value) {
+    return new Cursor(
+        order.getProperty(), order.getDirection(), id, value != null ? value.toString() : "");
+  }
+
+  public String encode() {
+    var token = String.join(SEPARATOR, field, direction.name(), String.valueOf(id), value);
+    return Base64.getUrlEncoder()
+        .withoutPadding()
+        .encodeToString(token.getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Returns {@code null} when there is no token, i.e. the first page was requested.
+   *
+   * @throws IllegalArgumentException when the token is malformed or was created for another sort.
+   */
+  public static Cursor decode(String token, Sort.Order order) {
+    if (ObjectUtils.isEmpty(token)) return null;
+
+    String[] parts;
+    try {
+      var decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+      parts = decoded.split("\\" + SEPARATOR, 4);
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Invalid cursor", e);
+    }
+    if (parts.length != 4) throw new IllegalArgumentException("Invalid cursor");
+
+    var direction = Sort.Direction.fromOptionalString(parts[1]).orElse(null);
+    if (!order.getProperty().equals(parts[0]) || order.getDirection() != direction)
+      throw new IllegalArgumentException("The cursor doesn't match the requested sort");
+    try {
+      return new Cursor(parts[0], direction, Long.parseLong(parts[2]), parts[3]);
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid cursor", e);
+    }
+  }
+}
@@ -0,0 +1,25 @@
+package br.cams7.tests.springwebfluxessentials.utils;
+
+import java.nio.charset.StandardCharsets;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
+
+/** How the catalog is written by the export. */
+@Getter
+@RequiredArgsConstructor
+public enum ExportFormat {
+  /** A header line, then one {@code id,name,publication_year} line per anime, as in RFC 4180. */
+  CSV(new MediaType("text", "csv", StandardCharsets.UTF_8), "csv"),
+  /** One JSON anime per line. */
+  NDJSON(MediaType.APPLICATION_NDJSON, "ndjson");
+
+  private final MediaType mediaType;
+  private final String extension;
+
+  public static ExportFormat getFormat(String format) {
+    for (ExportFormat exportFormat : values())
+      if (exportFormat.name().equalsIgnoreCase(format)) return exportFormat;
+    return null;
+  }
+}
@@ -0,0 +1,86 @@
+package br.cams7.tests.springwebfluxessentials.benchmark;
+
+import br.cams7.tests.springwebfluxessentials.domain.Anime;
+import br.cams7.tests.springwebfluxessentials.repository.AnimeRepository;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Flux;
+
+/**
+ * Rows per second written by the batch endpoint: one INSERT per anime through {@code
+ * ReactiveCrudRepository.saveAll} against multi-row INSERTs of {@code chunkSize} animes.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(AnimeBatchInsertBenchmark.ROWS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AnimeBatchInsertBenchmark {
+  static final int ROWS = 1000;
+
+  private BenchmarkDatabase database;
+  private AnimeRepository repository;
+  private List<Anime> animes;
+  private int invocation;
+
+  @State(Scope.Benchmark)
+  public static class Chunk {
+    @Param({"1", "10", "100", "500", "1000"})
+    int size;
+  }
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    database = new BenchmarkDatabase(false);
+    repository = database.getRepository();
+  }
+
+  @Setup(Level.Invocation)
+  public void createAnimes() {
+    var prefix = "Anime " + invocation++ + " #";
+    animes = new ArrayList<>(ROWS);
+    for (int i = 0; i < ROWS; i++)
+      animes.add(Anime.builder().name(prefix + i).publicationYear((short) 2000).build());
+  }
+
+  @TearDown(Level.Iteration)
+  public void deleteAnimes() {
+    database.deleteAnimes();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    database.close();
+  }
+
+  @Benchmark
+  public List<Anime> saveAll() {
+    return repository.saveAll(animes).collectList().block();
+  }
+
+  @Benchmark
+  public List<Anime> insertAll(Chunk chunk) {
+    return Flux.fromIterable(animes)
+        .buffer(chunk.size)
+        .concatMap(repository::insertAll)
+        .collectList()
+        .block();
+  }
+}
@@ -0,0 +1,113 @@
+package br.cams7.tests.springwebfluxessentials.benchmark;
+
+import br.cams7.tests.springwebfluxessentials.codec.AbstractAnimeDecoder;
+import br.cams7.tests.springwebfluxessentials.codec.AnimeCborDecoder;
+import br.cams7.tests.springwebfluxessentials.codec.AnimeCborEncoder;
+import br.cams7.tests.springwebfluxessentials.codec.AnimeJsonDecoder;
+import br.cams7.tests.springwebfluxessentials.codec.AnimeJsonEncoder;
+import br.cams7.tests.springwebfluxessentials.domain.Anime;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.Encoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Encoding and decoding of the GET /animes/all body for {@value #ROWS} animes, as JSON and as CBOR.
+ * The size of each payload is printed when the benchmark is set up.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AnimeFormatBenchmark {
+  private static final int ROWS = 10_000;
+  private static final ResolvableType ANIME_TYPE = ResolvableType.forClass(Anime.class);
+
+  @Param({"json", "cbor"})
+  String format;
+
+  private Encoder<Object> encoder;
+  private AbstractAnimeDecoder decoder;
+  private MediaType mediaType;
+  private DefaultDataBufferFactory bufferFactory;
+  private List<Anime> animes;
+  private byte[] payload;
+
+  @Setup
+  public void setUp() {
+    var objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    if ("cbor".equals(format)) {
+      var cborFactory = new CBORFactory();
+      encoder = new AnimeCborEncoder(cborFactory);
+      decoder = new AnimeCborDecoder(cborFactory);
+      mediaType = MediaType.APPLICATION_CBOR;
+    } else {
+      encoder = new AnimeJsonEncoder(objectMapper.getFactory());
+      decoder = new AnimeJsonDecoder(objectMapper.getFactory());
+      mediaType = MediaType.APPLICATION_JSON;
+    }
+    decoder.setMaxInMemorySize(-1);
+    bufferFactory = new DefaultDataBufferFactory();
+
+    animes = new ArrayList<>(ROWS);
+    for (int i = 1; i <= ROWS; i++)
+      animes.add(
+          Anime.builder()
+              .id((long) i)
+              .name("Anime #" + i)
+              .publicationYear((short) (1960 + i % 60))
+              .build());
+
+    var buffer = encode();
+    payload = new byte[buffer.readableByteCount()];
+    buffer.read(payload);
+    DataBufferUtils.release(buffer);
+    System.out.printf("%n%s payload of %d animes: %d bytes%n", format, ROWS, payload.length);
+  }
+
+  @Benchmark
+  public int encodeAll() {
+    var buffer = encode();
+    var size = buffer.readableByteCount();
+    DataBufferUtils.release(buffer);
+    return size;
+  }
+
+  @Benchmark
+  public long decodeAll() {
+    return decoder
+        .decode(Mono.just(bufferFactory.wrap(payload)), ANIME_TYPE, mediaType, Map.of())
+        .count()
+        .block();
+  }
+
+  private DataBuffer encode() {
+    return DataBufferUtils.join(
+            encoder.encode(
+                Flux.fromIterable(animes), bufferFactory, ANIME_TYPE, mediaType, Map.of()))
+        .block();
+  }
+}
@@ -0,0 +1,116 @@
+package br.cams7.tests.springwebfluxessentials.benchmark;
+
+import br.cams7.tests.springwebfluxessentials.cache.AnimeCache;
+import br.cams7.tests.springwebfluxessentials.cache.CatalogVersion;
+import br.cams7.tests.springwebfluxessentials.config.AnimeProperties;
+import br.cams7.tests.springwebfluxessentials.domain.Anime;
+import br.cams7.tests.springwebfluxessentials.domain.CursorPage;
+import br.cams7.tests.springwebfluxessentials.index.AnimeSearchIndex;
+import br.cams7.tests.springwebfluxessentials.index.PublicationYearHistogram;
+import br.cams7.tests.springwebfluxessentials.query.QueryBatcher;
+import br.cams7.tests.springwebfluxessentials.query.QueryCoalescer;
+import br.cams7.tests.springwebfluxessentials.query.WriteCoalescer;
+import br.cams7.tests.springwebfluxessentials.service.AnimeService;
+import br.cams7.tests.springwebfluxessentials.utils.CountStrategy;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import javax.validation.Validation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+
+/** Read paths of {@link AnimeService} over an in-memory H2 database with {@link #ROWS} animes. */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AnimeServiceBenchmark {
+  static final int ROWS = 10_000;
+  private static final int PAGE_SIZE = 20;
+
+  @Param({"0", "10000"})
+  long cacheSize;
+
+  private BenchmarkDatabase database;
+  private AnimeService service;
+  private String lastPageCursor;
+
+  @Setup
+  public void setUp() {
+    database = new BenchmarkDatabase(false);
+    database.insertAnimes(ROWS);
+
+    var properties = new AnimeProperties();
+    properties.getCache().setMaximumSize(cacheSize);
+    service =
+        new AnimeService(
+            database.getRepository(),
+            properties,
+            new AnimeCache(properties, new SimpleMeterRegistry()),
+            new AnimeSearchIndex(),
+            new PublicationYearHistogram(),
+            Validation.buildDefaultValidatorFactory().getValidator(),
+            new QueryCoalescer(new SimpleMeterRegistry()),
+            new QueryBatcher(properties),
+            new WriteCoalescer(properties, new SimpleMeterRegistry()),
+            new CatalogVersion());
+
+    CursorPage<Anime> page = null;
+    for (int i = 0; i < 100; i++)
+      page =
+          service
+              .findByCursor(Sort.by("name"), page != null ? page.getNext() : null, PAGE_SIZE)
+              .block();
+    lastPageCursor = page.getNext();
+  }
+
+  @TearDown
+  public void tearDown() {
+    database.close();
+  }
+
+  @Benchmark
+  public Anime findById() {
+    return service.findById(ThreadLocalRandom.current().nextLong(1, ROWS + 1)).block();
+  }
+
+  @Benchmark
+  public List<Anime> findAll() {
+    return service.findAll().collectList().block();
+  }
+
+  @Benchmark
+  public Slice<Anime> findByPageableWithExactCount() {
+    return service
+        .findByPageable(PageRequest.of(100, PAGE_SIZE, Sort.by("name")), CountStrategy.EXACT)
+        .block();
+  }
+
+  @Benchmark
+  public Slice<Anime> findByPageableWithoutCount() {
+    return service
+        .findByPageable(PageRequest.of(100, PAGE_SIZE, Sort.by("name")), CountStrategy.NONE)
+        .block();
+  }
+
+  @Benchmark
+  public CursorPage<Anime> findByCursor() {
+    return service.findByCursor(Sort.by("name"), lastPageCursor, PAGE_SIZE).block();
+  }
+}
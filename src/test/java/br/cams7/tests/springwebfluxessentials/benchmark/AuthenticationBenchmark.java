@@ -0,0 +1,66 @@
+package br.cams7.tests.springwebfluxessentials.benchmark;
+
+import br.cams7.tests.springwebfluxessentials.config.AuthenticationProperties;
+import br.cams7.tests.springwebfluxessentials.security.TokenService;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.authentication.UserDetailsRepositoryReactiveAuthenticationManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.MapReactiveUserDetailsService;
+import org.springframework.security.core.userdetails.User;
+
+/**
+ * Authentications per second on one core: the HTTP Basic path, which checks the {@code {bcrypt}}
+ * password of the seeded users on every request (user details already cached), against verifying a
+ * bearer token.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AuthenticationBenchmark {
+  // password abc12345, as in data.sql
+  private static final String PASSWORD_HASH =
+      "{bcrypt}$2a$10$NOcV6G.vaf5cPc7ZLSoSfO495Z/mWUibm11hpFkS6lr2fP48.e1.u";
+
+  private UserDetailsRepositoryReactiveAuthenticationManager basicManager;
+  private TokenService tokenService;
+  private String token;
+
+  @Setup
+  public void setUp() {
+    var admin = User.withUsername("admin").password(PASSWORD_HASH).roles("USER", "ADMIN").build();
+    basicManager =
+        new UserDetailsRepositoryReactiveAuthenticationManager(
+            new MapReactiveUserDetailsService(admin));
+    tokenService = new TokenService(new AuthenticationProperties());
+    token =
+        tokenService
+            .issue(new UsernamePasswordAuthenticationToken("admin", null, admin.getAuthorities()))
+            .getAccessToken();
+  }
+
+  @Benchmark
+  public Authentication basic() {
+    return basicManager
+        .authenticate(new UsernamePasswordAuthenticationToken("admin", "abc12345"))
+        .block();
+  }
+
+  @Benchmark
+  public Authentication bearerToken() {
+    return tokenService.verify(token);
+  }
+}
@@ -0,0 +1,61 @@
+package br.cams7.tests.springwebfluxessentials.benchmark;
+
+import br.cams7.tests.springwebfluxessentials.domain.Anime;
+import br.cams7.tests.springwebfluxessentials.repository.AnimeRepository;
+import br.cams7.tests.springwebfluxessentials.repository.AnimeRepositoryCustomImpl;
+import io.r2dbc.h2.CloseableConnectionFactory;
+import io.r2dbc.h2.H2ConnectionFactory;
+import java.util.UUID;
+import lombok.Getter;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.r2dbc.repository.support.R2dbcRepositoryFactory;
+import org.springframework.data.repository.core.support.RepositoryComposition.RepositoryFragments;
+import org.springframework.r2dbc.connection.init.ResourceDatabasePopulator;
+import reactor.core.publisher.Flux;
+
+/** In-memory H2 database with the test schema and data, plus an AnimeRepository bound to it. */
+@Getter
+public class BenchmarkDatabase implements AutoCloseable {
+  private final CloseableConnectionFactory connectionFactory;
+  private final R2dbcEntityTemplate template;
+  private final AnimeRepository repository;
+
+  public BenchmarkDatabase(boolean withData) {
+    connectionFactory = H2ConnectionFactory.inMemory("benchmark-" + UUID.randomUUID());
+    var populator = new ResourceDatabasePopulator(new ClassPathResource("schema.sql"));
+    if (withData) populator.addScript(new ClassPathResource("data.sql"));
+    populator.populate(connectionFactory).block();
+
+    template = new R2dbcEntityTemplate(connectionFactory);
+    repository =
+        new R2dbcRepositoryFactory(template)
+            .getRepository(
+                AnimeRepository.class,
+                RepositoryFragments.just(new AnimeRepositoryCustomImpl(template)));
+  }
+
+  /** Adds {@code count} generated animes, written in multi-row INSERTs. */
+  public void insertAnimes(int count) {
+    Flux.range(0, count)
+        .map(
+            i ->
+                Anime.builder()
+                    .name("Anime #" + i)
+                    .publicationYear((short) (1960 + i % 60))
+                    .build())
+        .buffer(500)
+        .concatMap(repository::insertAll)
+        .then()
+        .block();
+  }
+
+  public void deleteAnimes() {
+    template.getDatabaseClient().sql("DELETE FROM tb_anime").then().block();
+  }
+
+  @Override
+  public void close() {
+    connectionFactory.close();
+  }
+}
@@ -0,0 +1,65 @@
+package br.cams7.tests.springwebfluxessentials.benchmark;
+
+import br.cams7.tests.springwebfluxessentials.exception.CustomAttributes;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import javax.validation.ConstraintViolationException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.web.error.ErrorAttributeOptions;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.server.ResponseStatusException;
+
+/** Building the error body of a failed request, e.g. the 404 of GET /animes/{id}. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ErrorAttributesBenchmark {
+
+  @Param({"ResponseStatusException", "ConstraintViolationException", "IllegalStateException"})
+  String error;
+
+  private CustomAttributes attributes;
+  private ServerRequest request;
+
+  @Setup
+  public void setUp() {
+    attributes = new CustomAttributes();
+    var exchange = MockServerWebExchange.from(MockServerHttpRequest.get("/animes/30"));
+    attributes.storeErrorInformation(createError(), exchange);
+    request = ServerRequest.create(exchange, HandlerStrategies.withDefaults().messageReaders());
+  }
+
+  @Benchmark
+  public Map<String, Object> getErrorAttributes() {
+    return attributes.getErrorAttributes(request, ErrorAttributeOptions.defaults());
+  }
+
+  private Throwable createError() {
+    switch (error) {
+      case "ResponseStatusException":
+        return new ResponseStatusException(HttpStatus.NOT_FOUND, "Anime not found");
+      case "ConstraintViolationException":
+        return new ConstraintViolationException("saveBatch.animes: must not be empty", Set.of());
+      default:
+        return new IllegalStateException("Unexpected error");
+    }
+  }
+}
@@ -0,0 +1,87 @@
+package br.cams7.tests.springwebfluxessentials.benchmark;
+
+import br.cams7.tests.springwebfluxessentials.codec.AnimeJsonEncoder;
+import br.cams7.tests.springwebfluxessentials.domain.Anime;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.Encoder;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Encoding of the JSON bodies written by GET /animes/{id} and GET /animes, with the default Jackson
+ * encoder and with {@link AnimeJsonEncoder}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonEncodingBenchmark {
+  private static final ResolvableType ANIME_TYPE = ResolvableType.forClass(Anime.class);
+  private static final ResolvableType PAGE_TYPE =
+      ResolvableType.forClassWithGenerics(Page.class, Anime.class);
+
+  @Param({"20", "100"})
+  int pageSize;
+
+  @Param({"jackson", "anime"})
+  String codec;
+
+  private Encoder<Object> encoder;
+  private DefaultDataBufferFactory bufferFactory;
+  private Anime anime;
+  private Page<Anime> page;
+
+  @Setup
+  public void setUp() {
+    var objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    encoder =
+        "anime".equals(codec)
+            ? new AnimeJsonEncoder(objectMapper.getFactory())
+            : new Jackson2JsonEncoder(objectMapper);
+    bufferFactory = new DefaultDataBufferFactory();
+    anime = Anime.builder().id(1l).name("Naruto").publicationYear((short) 1999).build();
+    var animes = new ArrayList<Anime>(pageSize);
+    for (int i = 0; i < pageSize; i++) animes.add(anime.withId((long) i).withName("Anime #" + i));
+    page = new PageImpl<>(animes, PageRequest.of(3, pageSize), 10_000);
+  }
+
+  @Benchmark
+  public int encodeAnime() {
+    return encode(anime, ANIME_TYPE);
+  }
+
+  @Benchmark
+  public int encodePage() {
+    return encode(page, PAGE_TYPE);
+  }
+
+  private int encode(Object value, ResolvableType type) {
+    var buffer =
+        encoder.encodeValue(value, bufferFactory, type, MediaType.APPLICATION_JSON, Map.of());
+    var size = buffer.readableByteCount();
+    DataBufferUtils.release(buffer);
+    return size;
+  }
+}
@@ -0,0 +1,79 @@
+package br.cams7.tests.springwebfluxessentials.benchmark;
+
+import br.cams7.tests.springwebfluxessentials.logging.LogEntryExit;
+import br.cams7.tests.springwebfluxessentials.logging.LoggingAspect;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.boot.logging.LogLevel;
+import reactor.core.publisher.Mono;
+
+/**
+ * Cost per call of {@link LoggingAspect} around a method returning a {@link Mono}: without the
+ * aspect, with the level disabled, and with the level enabled but no appender, so the numbers show
+ * the aspect itself rather than console output.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoggingAspectBenchmark {
+
+  private Target target;
+  private Target proxy;
+
+  public static class Target {
+    @LogEntryExit(value = LogLevel.DEBUG, unit = ChronoUnit.MILLIS, showArgs = true)
+    public Mono<Long> debug(Long id) {
+      return Mono.just(id);
+    }
+
+    @LogEntryExit(value = LogLevel.INFO, unit = ChronoUnit.MILLIS, showArgs = true)
+    public Mono<Long> info(Long id) {
+      return Mono.just(id);
+    }
+  }
+
+  @Setup
+  public void setUp() {
+    var logger = (Logger) LoggerFactory.getLogger(Target.class);
+    logger.setLevel(Level.INFO);
+    logger.setAdditive(false);
+
+    target = new Target();
+    var factory = new AspectJProxyFactory(new Target());
+    factory.setProxyTargetClass(true);
+    factory.addAspect(new LoggingAspect());
+    proxy = factory.getProxy();
+  }
+
+  @Benchmark
+  public Long withoutAspect() {
+    return target.info(1l).block();
+  }
+
+  @Benchmark
+  public Long levelDisabled() {
+    return proxy.debug(1l).block();
+  }
+
+  @Benchmark
+  public Long levelEnabled() {
+    return proxy.info(1l).block();
+  }
+}
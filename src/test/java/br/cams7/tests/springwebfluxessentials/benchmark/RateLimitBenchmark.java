@@ -0,0 +1,121 @@
+package br.cams7.tests.springwebfluxessentials.benchmark;
+
+import br.cams7.tests.springwebfluxessentials.config.RateLimitProperties;
+import br.cams7.tests.springwebfluxessentials.config.RateLimitWebFilter;
+import br.cams7.tests.springwebfluxessentials.logging.LoggingAspect;
+import br.cams7.tests.springwebfluxessentials.ratelimit.RateLimiter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.http.HttpMethod;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+/**
+ * Latency the rate limit adds to an admitted request: the bare filter chain against the same chain
+ * behind {@link RateLimitWebFilter}, for a route without limits and for a limited one. {@code
+ * acquireContended} takes from a single bucket on four threads at once.
+ *
+ * <p>The {@link RateLimiter} is the bean of a context with the {@link LoggingAspect} applied, as in
+ * the application, so any proxy around it is measured too.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RateLimitBenchmark {
+  // hidden, so blocking on it subscribes for real as it would on a handler
+  private static final Mono<Void> HANDLED = Mono.<Void>empty().hide();
+  private static final WebFilterChain CHAIN = exchange -> HANDLED;
+
+  @Param({"/animes/1", "/auth/token"})
+  String path;
+
+  private AnnotationConfigApplicationContext context;
+  private RateLimitWebFilter filter;
+  private RateLimiter.Route route;
+  private ServerWebExchange exchange;
+  private UsernamePasswordAuthenticationToken authentication;
+
+  @Setup
+  public void setUp() {
+    var limit = new RateLimitProperties.Limit();
+    // never exhausted, so every request takes the admitted path
+    limit.setCapacity(Long.MAX_VALUE);
+    limit.setPeriod(Duration.ofDays(1));
+    var config = new RateLimitProperties.Route();
+    config.setPath("/animes/**");
+    config.getLimits().put("user", limit);
+    var properties = new RateLimitProperties();
+    properties.getRoutes().add(config);
+
+    context = new AnnotationConfigApplicationContext();
+    context.register(ProxyConfig.class, LoggingAspect.class, RateLimiter.class);
+    context.registerBean(RateLimitProperties.class, () -> properties);
+    context.registerBean(MeterRegistry.class, SimpleMeterRegistry::new);
+    context.refresh();
+
+    var rateLimiter = context.getBean(RateLimiter.class);
+    filter = new RateLimitWebFilter(rateLimiter);
+    route = rateLimiter.getRoute(HttpMethod.GET, MockServerHttpRequest.get(path).build().getPath());
+    authentication =
+        new UsernamePasswordAuthenticationToken(
+            "user", null, AuthorityUtils.createAuthorityList("ROLE_USER"));
+    exchange =
+        MockServerWebExchange.from(MockServerHttpRequest.get(path))
+            .mutate()
+            .principal(Mono.just(authentication))
+            .build();
+  }
+
+  @TearDown
+  public void tearDown() {
+    context.close();
+  }
+
+  @Benchmark
+  public Void chain() {
+    return CHAIN.filter(exchange).block();
+  }
+
+  @Benchmark
+  public Void rateLimited() {
+    return filter.filter(exchange, CHAIN).block();
+  }
+
+  @Benchmark
+  @Threads(4)
+  public long acquireContended() {
+    return route != null
+        ? route.acquire(authentication.getName(), authentication.getAuthorities())
+        : 0;
+  }
+
+  @Configuration
+  @EnableAspectJAutoProxy(proxyTargetClass = true)
+  static class ProxyConfig {}
+}
@@ -0,0 +1,74 @@
+package br.cams7.tests.springwebfluxessentials.cache;
+
+import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.FIRST_ANIME_ID;
+import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.getFirstAnime;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import br.cams7.tests.springwebfluxessentials.config.AnimeProperties;
+import br.cams7.tests.springwebfluxessentials.domain.Anime;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+class AnimeCacheTests {
+  private static final Anime FIRST_ANIME = getFirstAnime();
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final AnimeCache cache = new AnimeCache(new AnimeProperties(), registry);
+
+  @Test
+  @DisplayName("get counts the lookups reading the database and those waiting for a read in flight")
+  void get_CountsTheExecutedAndTheCoalescedLookups() {
+    var read = Sinks.<Anime>one();
+    var reads = new AtomicInteger();
+
+    var first = cache.get(FIRST_ANIME_ID, id -> loader(read, reads)).toFuture();
+    var second = cache.get(FIRST_ANIME_ID, id -> loader(read, reads)).toFuture();
+    read.tryEmitValue(FIRST_ANIME);
+
+    assertThat(first.join()).isEqualTo(FIRST_ANIME);
+    assertThat(second.join()).isEqualTo(FIRST_ANIME);
+    assertThat(reads).hasValue(1);
+    assertThat(count("executed")).isEqualTo(1);
+    assertThat(count("coalesced")).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("get counts neither outcome when the anime is cached")
+  void get_CountsNeitherOutcome_WhenTheAnimeIsCached() {
+    cache.get(FIRST_ANIME_ID, id -> Mono.just(FIRST_ANIME)).block();
+    assertThat(cache.get(FIRST_ANIME_ID, id -> Mono.just(FIRST_ANIME)).block())
+        .isEqualTo(FIRST_ANIME);
+
+    assertThat(count("executed")).isEqualTo(1);
+    assertThat(count("coalesced")).isZero();
+    assertThat(cache.stats().hitCount()).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("get reads the database again after the anime is invalidated")
+  void get_ReadsTheDatabaseAgain_AfterTheAnimeIsInvalidated() {
+    cache.get(FIRST_ANIME_ID, id -> Mono.just(FIRST_ANIME)).block();
+    cache.invalidate(FIRST_ANIME_ID);
+    cache.get(FIRST_ANIME_ID, id -> Mono.just(FIRST_ANIME)).block();
+
+    assertThat(count("executed")).isEqualTo(2);
+  }
+
+  private static Mono<Anime> loader(Sinks.One<Anime> read, AtomicInteger reads) {
+    reads.incrementAndGet();
+    return read.asMono();
+  }
+
+  private double count(String outcome) {
+    return registry
+        .get("anime.queries")
+        .tag("query", "findById")
+        .tag("outcome", outcome)
+        .counter()
+        .count();
+  }
+}
@@ -0,0 +1,122 @@
+package br.cams7.tests.springwebfluxessentials.codec;
+
+import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.getFirstAnime;
+import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.getSecoundAnime;
+import static org.assertj.core.api.Assertions.assertThat;
+import static reactor.test.StepVerifier.create;
+
+import br.cams7.tests.springwebfluxessentials.domain.Anime;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+class AnimeCborCodecTests {
+  private static final ResolvableType ANIME_TYPE = ResolvableType.forClass(Anime.class);
+  private static final Anime FIRST_ANIME = getFirstAnime();
+  private static final Anime SECOUND_ANIME = getSecoundAnime();
+
+  private final ObjectMapper mapper = new ObjectMapper(new CBORFactory());
+  private final AnimeCborEncoder encoder = new AnimeCborEncoder(new CBORFactory());
+  private final AnimeCborDecoder decoder = new AnimeCborDecoder(new CBORFactory());
+
+  @Test
+  @DisplayName("encode writes an anime that Jackson reads back")
+  void encode_WritesAnAnime() throws Exception {
+    assertThat(mapper.readValue(encode(Mono.just(FIRST_ANIME)), Anime.class))
+        .isEqualTo(FIRST_ANIME);
+  }
+
+  @Test
+  @DisplayName("encode writes a flux of animes as an array")
+  void encode_WritesAFluxAsAnArray() throws Exception {
+    var type = new TypeReference<List<Anime>>() {};
+    assertThat(mapper.readValue(encode(Flux.just(FIRST_ANIME, SECOUND_ANIME)), type))
+        .containsExactly(FIRST_ANIME, SECOUND_ANIME);
+    assertThat(mapper.readValue(encode(Flux.empty()), type)).isEmpty();
+  }
+
+  @Test
+  @DisplayName("encode writes a page with its totals")
+  void encode_WritesAPage() throws Exception {
+    var page = new PageImpl<>(List.of(FIRST_ANIME), PageRequest.of(0, 1), 2);
+    var tree = mapper.readTree(encode(Mono.just(page)));
+    assertThat(tree.at("/content/0/name").asText()).isEqualTo(FIRST_ANIME.getName());
+    assertThat(tree.at("/totalElements").asLong()).isEqualTo(2);
+    assertThat(tree.at("/pageable/pageSize").asInt()).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("decode reads what Jackson writes")
+  void decode_ReadsWhatJacksonWrites() throws Exception {
+    var factory = new DefaultDataBufferFactory();
+    create(
+            decoder.decodeToMono(
+                Mono.just(factory.wrap(mapper.writeValueAsBytes(FIRST_ANIME))),
+                ANIME_TYPE,
+                MediaType.APPLICATION_CBOR,
+                Map.of()))
+        .expectNext(FIRST_ANIME)
+        .verifyComplete();
+
+    var bytes = mapper.writeValueAsBytes(List.of(FIRST_ANIME, SECOUND_ANIME));
+    create(
+            decoder.decodeToMono(
+                Flux.just(
+                    factory.wrap(Arrays.copyOfRange(bytes, 0, 10)),
+                    factory.wrap(Arrays.copyOfRange(bytes, 10, bytes.length))),
+                ResolvableType.forClassWithGenerics(Set.class, Anime.class),
+                MediaType.APPLICATION_CBOR,
+                Map.of()))
+        .expectNext(Set.of(FIRST_ANIME, SECOUND_ANIME))
+        .verifyComplete();
+  }
+
+  @Test
+  @DisplayName("decode emits every anime of an encoded flux")
+  void decode_EmitsEveryAnimeOfAnEncodedFlux() {
+    var buffers =
+        encoder.encode(
+            Flux.just(FIRST_ANIME, SECOUND_ANIME),
+            new DefaultDataBufferFactory(),
+            ANIME_TYPE,
+            MediaType.APPLICATION_CBOR,
+            Map.of());
+    create(decoder.decode(buffers, ANIME_TYPE, MediaType.APPLICATION_CBOR, Map.of()))
+        .expectNext(FIRST_ANIME)
+        .expectNext(SECOUND_ANIME)
+        .verifyComplete();
+  }
+
+  private byte[] encode(Publisher<?> input) {
+    return DataBufferUtils.join(
+            encoder.encode(
+                input,
+                new DefaultDataBufferFactory(),
+                ANIME_TYPE,
+                MediaType.APPLICATION_CBOR,
+                Map.of()))
+        .map(
+            buffer -> {
+              var bytes = new byte[buffer.readableByteCount()];
+              buffer.read(bytes);
+              DataBufferUtils.release(buffer);
+              return bytes;
+            })
+        .block();
+  }
+}
@@ -0,0 +1,107 @@
+package br.cams7.tests.springwebfluxessentials.codec;
+
+import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.getFirstAnime;
+import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.getSecoundAnime;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import br.cams7.tests.springwebfluxessentials.domain.Anime;
+import br.cams7.tests.springwebfluxessentials.utils.ExportFormat;
+import com.fasterxml.jackson.core.JsonFactory;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+class AnimeExportWriterTests {
+  private static final Anime FIRST_ANIME = getFirstAnime();
+  private static final Anime SECOUND_ANIME = getSecoundAnime();
+
+  private final AnimeExportWriter writer = new AnimeExportWriter(new JsonFactory(), 2);
+
+  @Test
+  @DisplayName("write exports animes as CSV, quoting the names that need it")
+  void write_ExportsAnimesAsCsv() {
+    var animes =
+        Flux.just(FIRST_ANIME, SECOUND_ANIME, FIRST_ANIME.withId(3l).withName("Bleach, \"TYBW\""));
+    assertThat(export(animes, ExportFormat.CSV, false))
+        .isEqualTo(
+            "id,name,publication_year\r\n"
+                + "1,Naruto,1999\r\n"
+                + "2,One Piece,1997\r\n"
+                + "3,\"Bleach, \"\"TYBW\"\"\",1999\r\n");
+  }
+
+  @Test
+  @DisplayName("write exports animes as one JSON anime per line")
+  void write_ExportsAnimesAsNdjson() {
+    assertThat(export(Flux.just(FIRST_ANIME, SECOUND_ANIME), ExportFormat.NDJSON, false))
+        .isEqualTo(
+            "{\"id\":1,\"name\":\"Naruto\",\"publicationYear\":1999}\n"
+                + "{\"id\":2,\"name\":\"One Piece\",\"publicationYear\":1997}\n");
+  }
+
+  @Test
+  @DisplayName("write gzips the export across buffers when asked to")
+  void write_GzipsTheExport_WhenAskedTo() {
+    var animes = Flux.range(1, 1000).map(i -> FIRST_ANIME.withId((long) i));
+    var plain = export(animes, ExportFormat.CSV, false);
+    assertThat(export(animes, ExportFormat.CSV, true)).isEqualTo(plain);
+  }
+
+  @Test
+  @DisplayName("write exports only the CSV header when there are no animes")
+  void write_ExportsOnlyTheHeader_WhenThereAreNoAnimes() {
+    assertThat(export(Flux.empty(), ExportFormat.CSV, false))
+        .isEqualTo("id,name,publication_year\r\n");
+    assertThat(export(Flux.empty(), ExportFormat.NDJSON, false)).isEmpty();
+  }
+
+  @Test
+  @DisplayName("write groups the rows of every buffer")
+  void write_GroupsTheRowsOfEveryBuffer() {
+    var buffers =
+        writer.write(
+            Flux.range(1, 5).map(i -> FIRST_ANIME.withId((long) i)),
+            ExportFormat.NDJSON,
+            false,
+            new DefaultDataBufferFactory());
+    StepVerifier.create(buffers.doOnNext(DataBufferUtils::release))
+        .expectNextCount(3)
+        .verifyComplete();
+  }
+
+  private String export(Flux<Anime> animes, ExportFormat format, boolean gzip) {
+    var bytes =
+        DataBufferUtils.join(writer.write(animes, format, gzip, new DefaultDataBufferFactory()))
+            .map(AnimeExportWriterTests::getBytes)
+            .defaultIfEmpty(new byte[0])
+            .block();
+    if (gzip) bytes = gunzip(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static byte[] getBytes(DataBuffer buffer) {
+    var bytes = new byte[buffer.readableByteCount()];
+    buffer.read(bytes);
+    DataBufferUtils.release(buffer);
+    return bytes;
+  }
+
+  private static byte[] gunzip(byte[] bytes) {
+    try (var input = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+      var output = new ByteArrayOutputStream();
+      input.transferTo(output);
+      return output.toByteArray();
+    } catch (IOException e) {
+      throw new AssertionError(e);
+    }
+  }
+}
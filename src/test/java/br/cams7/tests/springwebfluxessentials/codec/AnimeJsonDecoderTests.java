@@ -0,0 +1,186 @@
+package br.cams7.tests.springwebfluxessentials.codec;
+
+import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.getFirstAnime;
+import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.getSecoundAnime;
+import static org.assertj.core.api.Assertions.assertThat;
+import static reactor.test.StepVerifier.create;
+
+import br.cams7.tests.springwebfluxessentials.domain.Anime;
+import com.fasterxml.jackson.core.JsonFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.MediaType;
+import reactor.core.publisher.Flux;
+
+class AnimeJsonDecoderTests {
+  private static final ResolvableType ANIME_TYPE = ResolvableType.forClass(Anime.class);
+  private static final Anime FIRST_ANIME = getFirstAnime();
+  private static final Anime SECOUND_ANIME = getSecoundAnime();
+
+  private final AnimeJsonDecoder decoder = new AnimeJsonDecoder(new JsonFactory());
+
+  @Test
+  @DisplayName("canDecode accepts animes and lists or sets of animes")
+  void canDecode_AcceptsAnimesAndCollectionsOfAnimes() {
+    assertThat(decoder.canDecode(ANIME_TYPE, MediaType.APPLICATION_JSON)).isTrue();
+    assertThat(decoder.canDecode(ANIME_TYPE, MediaType.APPLICATION_NDJSON)).isTrue();
+    assertThat(
+            decoder.canDecode(
+                ResolvableType.forClassWithGenerics(Set.class, Anime.class),
+                MediaType.APPLICATION_JSON))
+        .isTrue();
+    assertThat(
+            decoder.canDecode(
+                ResolvableType.forClassWithGenerics(List.class, Anime.class),
+                MediaType.APPLICATION_JSON))
+        .isTrue();
+    assertThat(
+            decoder.canDecode(
+                ResolvableType.forClassWithGenerics(Set.class, String.class),
+                MediaType.APPLICATION_JSON))
+        .isFalse();
+    assertThat(decoder.canDecode(ResolvableType.forClass(Map.class), MediaType.APPLICATION_JSON))
+        .isFalse();
+    assertThat(decoder.canDecode(ANIME_TYPE, MediaType.TEXT_PLAIN)).isFalse();
+  }
+
+  @Test
+  @DisplayName("decodeToMono reads an anime skipping unknown fields")
+  void decodeToMono_ReadsAnAnime_SkippingUnknownFields() {
+    var json =
+        "{\"extra\":{\"id\":7,\"tags\":[1,{\"a\":2}]},\"name\":\"Naruto\","
+            + "\"publicationYear\":\"1999\",\"id\":1}";
+    create(decoder.decodeToMono(buffers(json), ANIME_TYPE, MediaType.APPLICATION_JSON, Map.of()))
+        .expectNext(FIRST_ANIME)
+        .verifyComplete();
+  }
+
+  @Test
+  @DisplayName("decodeToMono returns error when the body isn't a single anime")
+  void decodeToMono_ReturnsError_WhenTheBodyIsNotASingleAnime() {
+    for (var json :
+        new String[] {
+          "[{\"name\":\"Naruto\"}]",
+          "{\"name\":\"Naruto\"} {\"name\":\"Bleach\"}",
+          "{\"name\":\"Naruto\",\"publicationYear\":99999}",
+          "{\"name\":{\"first\":\"Naruto\"}}",
+          "{\"name\":\"Naruto\""
+        })
+      create(decoder.decodeToMono(buffers(json), ANIME_TYPE, MediaType.APPLICATION_JSON, Map.of()))
+          .expectError(DecodingException.class)
+          .verify();
+  }
+
+  @Test
+  @DisplayName("decodeToMono reads a set of animes from an array")
+  void decodeToMono_ReadsASetOfAnimes_FromAnArray() {
+    var json =
+        "[{\"id\":1,\"name\":\"Naruto\",\"publicationYear\":1999},"
+            + "{\"id\":2,\"name\":\"One Piece\",\"publicationYear\":1997},"
+            + "{\"id\":1,\"name\":\"Naruto\",\"publicationYear\":1999}]";
+    create(
+            decoder.decodeToMono(
+                buffers(json),
+                ResolvableType.forClassWithGenerics(Set.class, Anime.class),
+                MediaType.APPLICATION_JSON,
+                Map.of()))
+        .assertNext(
+            animes ->
+                assertThat(animes)
+                    .isEqualTo(new LinkedHashSet<>(List.of(FIRST_ANIME, SECOUND_ANIME))))
+        .verifyComplete();
+    create(
+            decoder.decodeToMono(
+                buffers("{\"name\":\"Naruto\"}"),
+                ResolvableType.forClassWithGenerics(List.class, Anime.class),
+                MediaType.APPLICATION_JSON,
+                Map.of()))
+        .expectError(DecodingException.class)
+        .verify();
+  }
+
+  @Test
+  @DisplayName("decode emits every anime of an array split across buffers")
+  void decode_EmitsEveryAnimeOfAnArraySplitAcrossBuffers() {
+    var json =
+        "[{\"id\":1,\"name\":\"Naruto\",\"publicationYear\":1999},"
+            + "{\"id\":2,\"name\":\"One Piece\",\"publicationYear\":1997}]";
+    var parts = new String[] {json.substring(0, 20), json.substring(20, 60), json.substring(60)};
+    create(decoder.decode(buffers(parts), ANIME_TYPE, MediaType.APPLICATION_JSON, Map.of()))
+        .expectNext(FIRST_ANIME)
+        .expectNext(SECOUND_ANIME)
+        .verifyComplete();
+  }
+
+  @Test
+  @DisplayName("decode emits one anime per line for NDJSON")
+  void decode_EmitsOneAnimePerLine_WhenTheMediaTypeIsNdjson() {
+    create(
+            decoder.decode(
+                buffers(
+                    "{\"id\":1,\"name\":\"Naruto\",\"publicationYear\":1999}\n{\"id\":2,",
+                    "\"name\":\"One Piece\",\"publicationYear\":1997}\n"),
+                ANIME_TYPE,
+                MediaType.APPLICATION_NDJSON,
+                Map.of()))
+        .expectNext(FIRST_ANIME)
+        .expectNext(SECOUND_ANIME)
+        .verifyComplete();
+  }
+
+  @Test
+  @DisplayName("decode returns error when the stream ends inside an anime")
+  void decode_ReturnsError_WhenTheStreamEndsInsideAnAnime() {
+    create(
+            decoder.decode(
+                buffers("{\"id\":1,\"name\":\"Naruto\",\"publicationYear\":1999}\n{\"id\":2"),
+                ANIME_TYPE,
+                MediaType.APPLICATION_NDJSON,
+                Map.of()))
+        .expectNext(FIRST_ANIME)
+        .expectError(DecodingException.class)
+        .verify();
+  }
+
+  @Test
+  @DisplayName("decode limits the size of every anime but not of the whole stream")
+  void decode_LimitsTheSizeOfEveryAnime_ButNotOfTheWholeStream() {
+    var decoder = new AnimeJsonDecoder(new JsonFactory());
+    decoder.setMaxInMemorySize(64);
+    var line = "{\"id\":1,\"name\":\"Naruto\",\"publicationYear\":1999}\n";
+    create(
+            decoder.decode(
+                buffers(line.repeat(10).split("(?<=\n)")),
+                ANIME_TYPE,
+                MediaType.APPLICATION_NDJSON,
+                Map.of()))
+        .expectNextCount(10)
+        .verifyComplete();
+
+    var name = "x".repeat(40);
+    create(
+            decoder.decode(
+                buffers(line, "{\"name\":\"", name, name, "\"}"),
+                ANIME_TYPE,
+                MediaType.APPLICATION_NDJSON,
+                Map.of()))
+        .expectNext(FIRST_ANIME)
+        .expectError(DataBufferLimitException.class)
+        .verify();
+  }
+
+  private static Flux<DataBuffer> buffers(String... parts) {
+    var factory = new DefaultDataBufferFactory();
+    return Flux.fromArray(parts).map(part -> factory.wrap(part.getBytes(StandardCharsets.UTF_8)));
+  }
+}
@@ -0,0 +1,123 @@
+package br.cams7.tests.springwebfluxessentials.codec;
+
+import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.getFirstAnime;
+import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.getSecoundAnime;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import br.cams7.tests.springwebfluxessentials.domain.Anime;
+import com.fasterxml.jackson.core.JsonFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Publisher;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.http.MediaType;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+class AnimeJsonEncoderTests {
+  private static final ResolvableType ANIME_TYPE = ResolvableType.forClass(Anime.class);
+  private static final Anime FIRST_ANIME = getFirstAnime();
+  private static final Anime SECOUND_ANIME = getSecoundAnime();
+
+  private final AnimeJsonEncoder encoder = new AnimeJsonEncoder(new JsonFactory());
+
+  @Test
+  @DisplayName("canEncode accepts animes and slices of animes as JSON")
+  void canEncode_AcceptsAnimesAndSlicesOfAnimes() {
+    assertThat(encoder.canEncode(ANIME_TYPE, MediaType.APPLICATION_JSON)).isTrue();
+    assertThat(encoder.canEncode(ANIME_TYPE, MediaType.APPLICATION_NDJSON)).isTrue();
+    assertThat(
+            encoder.canEncode(
+                ResolvableType.forClassWithGenerics(Page.class, Anime.class),
+                MediaType.APPLICATION_JSON))
+        .isTrue();
+    assertThat(
+            encoder.canEncode(ResolvableType.forClassWithGenerics(Slice.class, Anime.class), null))
+        .isTrue();
+
+    assertThat(
+            encoder.canEncode(
+                ResolvableType.forClassWithGenerics(Page.class, String.class),
+                MediaType.APPLICATION_JSON))
+        .isFalse();
+    assertThat(encoder.canEncode(ResolvableType.forClass(Map.class), MediaType.APPLICATION_JSON))
+        .isFalse();
+    assertThat(encoder.canEncode(ANIME_TYPE, MediaType.APPLICATION_XML)).isFalse();
+    assertThat(encoder.canEncode(ANIME_TYPE, MimeType.valueOf("application/json;charset=UTF-16")))
+        .isFalse();
+  }
+
+  @Test
+  @DisplayName("encode writes the fields of an anime in order")
+  void encode_WritesTheFieldsOfAnAnime() {
+    assertThat(encode(Mono.just(FIRST_ANIME), MediaType.APPLICATION_JSON))
+        .isEqualTo("{\"id\":1,\"name\":\"Naruto\",\"publicationYear\":1999}");
+    assertThat(encode(Mono.just(new Anime(null, "\"Quoted\"", null)), MediaType.APPLICATION_JSON))
+        .isEqualTo("{\"id\":null,\"name\":\"\\\"Quoted\\\"\",\"publicationYear\":null}");
+  }
+
+  @Test
+  @DisplayName("encode writes a page without the sort")
+  void encode_WritesAPageWithoutTheSort() {
+    var page = new PageImpl<>(List.of(FIRST_ANIME), PageRequest.of(1, 1), 3);
+    assertThat(encode(Mono.just(page), MediaType.APPLICATION_JSON))
+        .isEqualTo(
+            "{\"content\":[{\"id\":1,\"name\":\"Naruto\",\"publicationYear\":1999}],"
+                + "\"pageable\":{\"offset\":1,\"pageNumber\":1,\"pageSize\":1},"
+                + "\"totalElements\":3,\"totalPages\":3,\"number\":1,\"size\":1,"
+                + "\"numberOfElements\":1,\"first\":false,\"last\":false,\"empty\":false}");
+  }
+
+  @Test
+  @DisplayName("encode writes a slice without totals")
+  void encode_WritesASliceWithoutTotals() {
+    var slice = new SliceImpl<>(List.<Anime>of(), PageRequest.of(0, 2), false);
+    assertThat(encode(Mono.just(slice), MediaType.APPLICATION_JSON))
+        .isEqualTo(
+            "{\"content\":[],\"pageable\":{\"offset\":0,\"pageNumber\":0,\"pageSize\":2},"
+                + "\"number\":0,\"size\":2,\"numberOfElements\":0,"
+                + "\"first\":true,\"last\":true,\"empty\":true}");
+  }
+
+  @Test
+  @DisplayName("encode writes a flux of animes as a JSON array")
+  void encode_WritesAFluxAsAJsonArray() {
+    assertThat(encode(Flux.just(FIRST_ANIME, SECOUND_ANIME), MediaType.APPLICATION_JSON))
+        .isEqualTo(
+            "[{\"id\":1,\"name\":\"Naruto\",\"publicationYear\":1999},"
+                + "{\"id\":2,\"name\":\"One Piece\",\"publicationYear\":1997}]");
+    assertThat(encode(Flux.empty(), MediaType.APPLICATION_JSON)).isEqualTo("[]");
+  }
+
+  @Test
+  @DisplayName("encode writes a flux of animes as one line per anime for NDJSON")
+  void encode_WritesAFluxAsLines_WhenTheMediaTypeIsNdjson() {
+    assertThat(encode(Flux.just(FIRST_ANIME, SECOUND_ANIME), MediaType.APPLICATION_NDJSON))
+        .isEqualTo(
+            "{\"id\":1,\"name\":\"Naruto\",\"publicationYear\":1999}\n"
+                + "{\"id\":2,\"name\":\"One Piece\",\"publicationYear\":1997}\n");
+  }
+
+  private String encode(Publisher<?> input, MimeType mimeType) {
+    return DataBufferUtils.join(
+            encoder.encode(input, new DefaultDataBufferFactory(), ANIME_TYPE, mimeType, Map.of()))
+        .map(
+            buffer -> {
+              var json = buffer.toString(StandardCharsets.UTF_8);
+              DataBufferUtils.release(buffer);
+              return json;
+            })
+        .block();
+  }
+}
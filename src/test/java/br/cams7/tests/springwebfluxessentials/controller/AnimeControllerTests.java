@@ -8,15 +8,29 @@ import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.getAnime
 import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.getFirstAnime;
 import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.getSecoundAnime;
 import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.getUpdatedAnime;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.BDDMockito.when;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static reactor.test.StepVerifier.create;
 
+import br.cams7.tests.springwebfluxessentials.cache.CatalogVersion;
+import br.cams7.tests.springwebfluxessentials.codec.AnimeExportWriter;
 import br.cams7.tests.springwebfluxessentials.domain.Anime;
+import br.cams7.tests.springwebfluxessentials.domain.CatalogStatistics;
+import br.cams7.tests.springwebfluxessentials.domain.ChunkResult;
+import br.cams7.tests.springwebfluxessentials.domain.CursorPage;
 import br.cams7.tests.springwebfluxessentials.service.AnimeService;
+import com.fasterxml.jackson.core.JsonFactory;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -24,11 +38,20 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -38,16 +61,27 @@ class AnimeControllerTests {
 
   @Mock private AnimeService service;
 
+  @Spy private AnimeExportWriter exportWriter = new AnimeExportWriter(new JsonFactory(), 10);
+
+  @Mock private CatalogVersion version;
+
   private static final Anime ANIME_TO_BE_SAVED = getAnimeToBeSaved();
   private static final Anime FIRST_ANIME = getFirstAnime();
   private static final Anime SECOUND_ANIME = getSecoundAnime();
   private static final Anime UPDATED_ANIME = getUpdatedAnime();
   private static final Page<Anime> PAGE =
       new PageImpl<>(Arrays.asList(FIRST_ANIME, SECOUND_ANIME), PageRequest.of(0, 3), 2);
+  private static final String ETAG = "\"kv2c3x-7-json\"";
+  private static final String OLD_ETAG = "\"kv2c3x-6-json\"";
+  private static final CatalogStatistics STATISTICS =
+      new CatalogStatistics(2, Map.of((short) 1997, 1, (short) 1999, 1), Map.of(1990, 2));
+  private static final CursorPage<Anime> CURSOR_PAGE =
+      new CursorPage<>(Arrays.asList(FIRST_ANIME, SECOUND_ANIME), 3, true, null);
 
   @BeforeEach
   void setUp() {
     when(service.findAll()).thenReturn(Flux.just(FIRST_ANIME, SECOUND_ANIME));
+    when(service.streamAll()).thenReturn(Flux.just(FIRST_ANIME, SECOUND_ANIME));
     when(service.findById(anyLong())).thenReturn(Mono.just(FIRST_ANIME));
     when(service.save(any(Anime.class)))
         .thenReturn(Mono.just(ANIME_TO_BE_SAVED.withId(FIRST_ANIME_ID)));
@@ -56,15 +90,33 @@ class AnimeControllerTests {
             Flux.just(
                 ANIME_TO_BE_SAVED.withId(FIRST_ANIME_ID),
                 ANIME_TO_BE_SAVED.withId(SECOUND_ANIME_ID).withName("Death Note")));
-    when(service.delete(anyLong())).thenReturn(Mono.empty());
-    when(service.update(any(Anime.class))).thenReturn(Mono.empty());
-    when(service.findByPageable(any(Pageable.class))).thenReturn(Mono.just(PAGE));
+    when(service.delete(anyLong(), anyList())).thenReturn(Mono.empty());
+    when(service.deleteAll(anySet(), anyList())).thenReturn(Mono.just(2));
+    when(service.update(any(Anime.class), anyList())).thenReturn(Mono.empty());
+    when(service.findByPageable(any(Pageable.class), any())).thenReturn(Mono.just(PAGE));
+    when(service.findByCursor(any(Sort.class), anyString(), anyInt()))
+        .thenReturn(Mono.just(CURSOR_PAGE));
+    when(service.search(anyString(), any(Pageable.class))).thenReturn(Mono.just(PAGE));
+    when(service.findByPublicationYear(any(), any(), any(Pageable.class), any()))
+        .thenReturn(Mono.just(PAGE));
+    when(service.getStatistics()).thenReturn(Mono.just(STATISTICS));
+    when(version.getETag(any(MediaType.class))).thenReturn(ETAG);
   }
 
   @Test
   @DisplayName("listAll returns all animes when successfull")
   void listAll_ReturnsAllAnimes_WhenSuccessful() {
-    create(controller.listAll())
+    create(controller.listAll(exchange()).flatMapMany(ResponseEntity::getBody))
+        .expectSubscription()
+        .expectNext(FIRST_ANIME)
+        .expectNext(SECOUND_ANIME)
+        .verifyComplete();
+  }
+
+  @Test
+  @DisplayName("streamAll emits all animes when successfull")
+  void streamAll_EmitsAllAnimes_WhenSuccessful() {
+    create(controller.streamAll())
         .expectSubscription()
         .expectNext(FIRST_ANIME)
         .expectNext(SECOUND_ANIME)
@@ -74,19 +126,118 @@ class AnimeControllerTests {
   @Test
   @DisplayName("listByPageable returns an anime when successfull")
   void listByPageable_ReturnsAnAnime_WhenSuccessful() {
-    create(controller.listByPageable(0, 3, "name", "desc"))
+    create(controller.listByPageable(exchange(), 0, 3, "name", "desc", "exact", null, null))
+        .expectSubscription()
+        .expectNext(PAGE)
+        .verifyComplete();
+  }
+
+  @Test
+  @DisplayName("listByPageable filters by publication year when a year is informed")
+  void listByPageable_FiltersByPublicationYear_WhenAYearIsInformed() {
+    create(controller.listByPageable(exchange(), 0, 3, "id", "asc", null, (short) 1997, null))
+        .expectSubscription()
+        .expectNext(PAGE)
+        .verifyComplete();
+    verify(service)
+        .findByPublicationYear((short) 1997, null, PageRequest.of(0, 3, Sort.by("id")), null);
+  }
+
+  @Test
+  @DisplayName("getStatistics returns the catalog statistics when successfull")
+  void getStatistics_ReturnsTheCatalogStatistics_WhenSuccessful() {
+    create(controller.getStatistics(exchange()))
+        .expectSubscription()
+        .expectNext(STATISTICS)
+        .verifyComplete();
+  }
+
+  @Test
+  @DisplayName("listByCursor returns a page of animes when successfull")
+  void listByCursor_ReturnsAPageOfAnimes_WhenSuccessful() {
+    create(controller.listByCursor("", 3, "name", "desc"))
+        .expectSubscription()
+        .expectNext(CURSOR_PAGE)
+        .verifyComplete();
+  }
+
+  @Test
+  @DisplayName("search returns a page of animes when successfull")
+  void search_ReturnsAPageOfAnimes_WhenSuccessful() {
+    create(controller.search("naruto", 0, 10))
         .expectSubscription()
         .expectNext(PAGE)
         .verifyComplete();
   }
 
+  @Test
+  @DisplayName("listByIds returns the animes with the given ids when successfull")
+  void listByIds_ReturnsTheAnimesWithTheGivenIds_WhenSuccessful() {
+    var ids = List.of(SECOUND_ANIME_ID, FIRST_ANIME_ID);
+    when(service.findAllById(ids)).thenReturn(Flux.just(SECOUND_ANIME, FIRST_ANIME));
+    create(controller.listByIds(ids, null)).expectNext(SECOUND_ANIME, FIRST_ANIME).verifyComplete();
+  }
+
   @Test
   @DisplayName("getById returns an anime when successfull")
   void getById_ReturnsAnAnime_WhenSuccessful() {
-    create(controller.getById(FIRST_ANIME_ID))
+    create(controller.getById(exchange(), FIRST_ANIME_ID))
+        .expectSubscription()
+        .expectNext(FIRST_ANIME)
+        .verifyComplete();
+  }
+
+  @Test
+  @DisplayName("getById returns not modified when the client has the current tag")
+  void getById_ReturnsNotModified_WhenTheClientHasTheCurrentTag() {
+    var exchange = exchange(MockServerHttpRequest.get("/animes/1").ifNoneMatch(ETAG));
+    create(controller.getById(exchange, FIRST_ANIME_ID)).expectSubscription().verifyComplete();
+    assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+    verify(service, never()).findById(anyLong());
+  }
+
+  @Test
+  @DisplayName("listAll returns not modified when the client has the current tag")
+  void listAll_ReturnsNotModified_WhenTheClientHasTheCurrentTag() {
+    var exchange = exchange(MockServerHttpRequest.get("/animes/all").ifNoneMatch(ETAG));
+    create(controller.listAll(exchange))
+        .assertNext(
+            response -> {
+              assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+              assertThat(response.getBody()).isNull();
+            })
+        .verifyComplete();
+    verify(service, never()).findAll();
+  }
+
+  @Test
+  @DisplayName("getById sets the tag when the client has an old one")
+  void getById_SetsTheTag_WhenTheClientHasAnOldOne() {
+    var exchange = exchange(MockServerHttpRequest.get("/animes/1").ifNoneMatch(OLD_ETAG));
+    create(controller.getById(exchange, FIRST_ANIME_ID))
         .expectSubscription()
         .expectNext(FIRST_ANIME)
         .verifyComplete();
+    assertThat(exchange.getResponse().getHeaders().getETag()).isEqualTo(ETAG);
+  }
+
+  @Test
+  @DisplayName("getById tags the representation the client accepts")
+  void getById_TagsTheRepresentationTheClientAccepts() {
+    var exchange =
+        exchange(
+            MockServerHttpRequest.get("/animes/1")
+                .accept(MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR));
+    create(controller.getById(exchange, FIRST_ANIME_ID)).expectNextCount(1).verifyComplete();
+    verify(version).getETag(MediaType.APPLICATION_JSON);
+    assertThat(exchange.getResponse().getHeaders().getVary()).containsExactly(HttpHeaders.ACCEPT);
+
+    exchange =
+        exchange(
+            MockServerHttpRequest.get("/animes/1")
+                .header(HttpHeaders.ACCEPT, "application/json;q=0.5, application/cbor"));
+    create(controller.getById(exchange, FIRST_ANIME_ID)).expectNextCount(1).verifyComplete();
+    verify(version).getETag(MediaType.APPLICATION_CBOR);
   }
 
   @Test
@@ -111,17 +262,147 @@ class AnimeControllerTests {
         .verifyComplete();
   }
 
+  @Test
+  @DisplayName("export writes the catalog as CSV when successfull")
+  void export_WritesTheCatalogAsCsv_WhenSuccessful() {
+    when(service.exportAll()).thenReturn(Flux.just(FIRST_ANIME, SECOUND_ANIME));
+    var exchange = exchange(MockServerHttpRequest.get("/animes/export?format=csv"));
+    create(controller.export(exchange, "csv")).verifyComplete();
+
+    var response = exchange.getResponse();
+    assertThat(response.getHeaders().getContentType().toString())
+        .isEqualTo("text/csv;charset=UTF-8");
+    assertThat(response.getHeaders().getContentDisposition().getFilename()).isEqualTo("animes.csv");
+    assertThat(response.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)).isFalse();
+    create(response.getBodyAsString())
+        .expectNext("id,name,publication_year\r\n1,Naruto,1999\r\n2,One Piece,1997\r\n")
+        .verifyComplete();
+  }
+
+  @Test
+  @DisplayName("export gzips the catalog when the client accepts it")
+  void export_GzipsTheCatalog_WhenTheClientAcceptsIt() {
+    when(service.exportAll()).thenReturn(Flux.just(FIRST_ANIME));
+    var exchange =
+        exchange(
+            MockServerHttpRequest.get("/animes/export")
+                .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"));
+    create(controller.export(exchange, "ndjson")).verifyComplete();
+
+    var headers = exchange.getResponse().getHeaders();
+    assertThat(headers.getContentType()).isEqualTo(MediaType.APPLICATION_NDJSON);
+    assertThat(headers.getFirst(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+  }
+
+  @Test
+  @DisplayName("export doesn't gzip the catalog when the client refuses it")
+  void export_DoesNotGzipTheCatalog_WhenTheClientRefusesIt() {
+    when(service.exportAll()).thenReturn(Flux.just(FIRST_ANIME));
+    for (var acceptEncoding : List.of("gzip;q=0, deflate", "GZIP ; Q=0.0", "*;q=0", "x-gzipped")) {
+      var exchange =
+          exchange(
+              MockServerHttpRequest.get("/animes/export")
+                  .header(HttpHeaders.ACCEPT_ENCODING, acceptEncoding));
+      create(controller.export(exchange, "ndjson")).verifyComplete();
+
+      assertThat(exchange.getResponse().getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING))
+          .as(acceptEncoding)
+          .isFalse();
+    }
+  }
+
+  @Test
+  @DisplayName("export gzips the catalog when the client accepts any encoding")
+  void export_GzipsTheCatalog_WhenTheClientAcceptsAnyEncoding() {
+    when(service.exportAll()).thenReturn(Flux.just(FIRST_ANIME));
+    var exchange =
+        exchange(
+            MockServerHttpRequest.get("/animes/export")
+                .header(HttpHeaders.ACCEPT_ENCODING, "br;q=1.0, *;q=0.5"));
+    create(controller.export(exchange, "ndjson")).verifyComplete();
+
+    assertThat(exchange.getResponse().getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING))
+        .isEqualTo("gzip");
+  }
+
+  @Test
+  @DisplayName("export returns error when the format is unknown")
+  void export_ReturnsError_WhenTheFormatIsUnknown() {
+    create(controller.export(exchange(), "xml"))
+        .expectError(ResponseStatusException.class)
+        .verify();
+    verify(service, never()).exportAll();
+  }
+
+  @Test
+  @DisplayName("importBatch streams the result of every chunk when successfull")
+  void importBatch_StreamsTheResultOfEveryChunk_WhenSuccessful() {
+    var result = new ChunkResult(0, 0, 1, List.of(FIRST_ANIME_ID), List.of(), null);
+    when(service.importAll(any())).thenReturn(Flux.just(result));
+    create(controller.importBatch(Flux.just(ANIME_TO_BE_SAVED)))
+        .expectSubscription()
+        .expectNext(result)
+        .verifyComplete();
+  }
+
+  @Test
+  @DisplayName("update returns error when the client has an old tag")
+  void update_ReturnsError_WhenTheClientHasAnOldTag() {
+    when(service.update(UPDATED_ANIME, List.of(OLD_ETAG)))
+        .thenReturn(Mono.error(new ResponseStatusException(HttpStatus.PRECONDITION_FAILED)));
+    var request =
+        MockServerHttpRequest.put("/animes/3").header(HttpHeaders.IF_MATCH, OLD_ETAG).build();
+    create(controller.update(exchange(request), UPDATED_ANIME_ID, UPDATED_ANIME))
+        .expectSubscription()
+        .expectErrorSatisfies(
+            error ->
+                assertThat(((ResponseStatusException) error).getStatus())
+                    .isEqualTo(HttpStatus.PRECONDITION_FAILED))
+        .verify();
+  }
+
+  @Test
+  @DisplayName("delete removes the anime when the client has the current tag")
+  void delete_RemovesTheAnime_WhenTheClientHasTheCurrentTag() {
+    var request =
+        MockServerHttpRequest.delete("/animes/4").header(HttpHeaders.IF_MATCH, ETAG).build();
+    create(controller.delete(exchange(request), DELETED_ANIME_ID))
+        .expectSubscription()
+        .verifyComplete();
+    verify(service).delete(DELETED_ANIME_ID, List.of(ETAG));
+  }
+
   @Test
   @DisplayName("delete removes the anime when successfull")
   void delete_RemovesTheAnime_WhenSuccessful() {
-    create(controller.delete(DELETED_ANIME_ID)).expectSubscription().verifyComplete();
+    create(controller.delete(exchange(), DELETED_ANIME_ID)).expectSubscription().verifyComplete();
+  }
+
+  @Test
+  @DisplayName("deleteAll removes the animes when successfull")
+  void deleteAll_RemovesTheAnimes_WhenSuccessful() {
+    create(controller.deleteAll(exchange(), Set.of(DELETED_ANIME_ID)))
+        .expectSubscription()
+        .verifyComplete();
   }
 
   @Test
   @DisplayName("update saves updated anime when successfull")
   void update_SavesUpdatedAnime_WhenSuccessful() {
-    create(controller.update(UPDATED_ANIME_ID, UPDATED_ANIME))
+    create(controller.update(exchange(), UPDATED_ANIME_ID, UPDATED_ANIME))
         .expectSubscription()
         .verifyComplete();
   }
+
+  private static MockServerWebExchange exchange() {
+    return exchange(MockServerHttpRequest.get("/animes"));
+  }
+
+  private static MockServerWebExchange exchange(MockServerHttpRequest.BaseBuilder<?> request) {
+    return exchange(request.build());
+  }
+
+  private static MockServerWebExchange exchange(MockServerHttpRequest request) {
+    return MockServerWebExchange.from(request);
+  }
 }
@@ -0,0 +1,112 @@
+package br.cams7.tests.springwebfluxessentials.index;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import br.cams7.tests.springwebfluxessentials.domain.Anime;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+
+class AnimeSearchIndexTests {
+
+  private static final PageRequest FIRST_PAGE = PageRequest.of(0, 10);
+
+  private AnimeSearchIndex index;
+
+  @BeforeEach
+  void setUp() {
+    index = new AnimeSearchIndex();
+    index.put(anime(1, "Naruto"));
+    index.put(anime(6, "Fate/Apocrypha"));
+    index.put(anime(7, "Fate/Extra Last Encore"));
+    index.put(anime(14, "Hunter X Hunter: A Última Missão"));
+    index.put(anime(18, "Fate"));
+  }
+
+  @Test
+  @DisplayName("normalize removes accents and case")
+  void normalize_RemovesAccentsAndCase() {
+    assertThat(AnimeSearchIndex.normalize(" Última  Missão ")).isEqualTo("ultima missao");
+  }
+
+  @Test
+  @DisplayName("search finds names ignoring case and accents when successfull")
+  void search_FindsNamesIgnoringCaseAndAccents_WhenSuccessful() {
+    assertThat(index.search("ULTIMA MISSÃO", FIRST_PAGE).getContent())
+        .extracting(Anime::getId)
+        .containsExactly(14l);
+    assertThat(index.search("missao", FIRST_PAGE).getContent())
+        .extracting(Anime::getId)
+        .containsExactly(14l);
+  }
+
+  @Test
+  @DisplayName("search ranks whole names, then prefixes, then word prefixes, then substrings")
+  void search_RanksMatches_WhenSuccessful() {
+    assertThat(index.search("fate", FIRST_PAGE).getContent())
+        .extracting(Anime::getId)
+        .containsExactly(18l, 6l, 7l);
+    assertThat(index.search("a", FIRST_PAGE).getContent())
+        .extracting(Anime::getId)
+        .containsExactly(6l, 14l, 18l, 1l, 7l);
+  }
+
+  @Test
+  @DisplayName("search returns the requested page and the total of matches")
+  void search_ReturnsRequestedPage_WhenSuccessful() {
+    var page = index.search("fate", PageRequest.of(1, 2));
+    assertThat(page.getContent()).extracting(Anime::getId).containsExactly(7l);
+    assertThat(page.getTotalElements()).isEqualTo(3);
+  }
+
+  @Test
+  @DisplayName("search returns nothing when no name contains the query")
+  void search_ReturnsNothing_WhenNoNameContainsTheQuery() {
+    assertThat(index.search("naruto shippuden", FIRST_PAGE)).isEmpty();
+    assertThat(index.search("xyz", FIRST_PAGE)).isEmpty();
+  }
+
+  @Test
+  @DisplayName("put replaces the indexed name and remove drops it")
+  void put_ReplacesTheIndexedName_AndRemoveDropsIt() {
+    assertThat(index.put(anime(1, "Boruto"))).isEqualTo(anime(1, "Naruto"));
+    assertThat(index.search("naruto", FIRST_PAGE)).isEmpty();
+    assertThat(index.search("boruto", FIRST_PAGE).getContent())
+        .extracting(Anime::getId)
+        .containsExactly(1l);
+
+    assertThat(index.remove(1l)).isEqualTo(anime(1, "Boruto"));
+    assertThat(index.search("boruto", FIRST_PAGE)).isEmpty();
+    assertThat(index.remove(1l)).isNull();
+    assertThat(index.size()).isEqualTo(4);
+  }
+
+  @Test
+  @DisplayName("putIfAbsent keeps the indexed anime")
+  void putIfAbsent_KeepsTheIndexedAnime() {
+    index.putIfAbsent(anime(1, "Boruto"));
+    assertThat(index.search("naruto", FIRST_PAGE).getContent())
+        .extracting(Anime::getId)
+        .containsExactly(1l);
+  }
+
+  @Test
+  @DisplayName("putAllIfAbsent skips the animes removed while loading")
+  void putAllIfAbsent_SkipsTheAnimesRemovedWhileLoading() {
+    index.startLoading();
+    index.remove(1l);
+    assertThat(index.putAllIfAbsent(List.of(anime(1, "Naruto Shippuden"), anime(5, "Bleach"))))
+        .extracting(Anime::getId)
+        .containsExactly(5l);
+    assertThat(index.search("naruto", FIRST_PAGE)).isEmpty();
+
+    index.finishLoading();
+    assertThat(index.putAllIfAbsent(List.of(anime(1, "Naruto Shippuden")))).hasSize(1);
+  }
+
+  private static Anime anime(long id, String name) {
+    return Anime.builder().id(id).name(name).publicationYear((short) 2000).build();
+  }
+}
@@ -0,0 +1,75 @@
+package br.cams7.tests.springwebfluxessentials.index;
+
+import static java.util.Map.entry;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import br.cams7.tests.springwebfluxessentials.domain.Anime;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+class PublicationYearHistogramTests {
+
+  private PublicationYearHistogram histogram;
+
+  @BeforeEach
+  void setUp() {
+    histogram = new PublicationYearHistogram();
+    histogram.add(anime(1, 1997));
+    histogram.add(anime(2, 1999));
+    histogram.add(anime(3, 2012));
+    histogram.add(anime(4, 2012));
+  }
+
+  @Test
+  @DisplayName("getStatistics counts the animes per year and per decade")
+  void getStatistics_CountsTheAnimesPerYearAndPerDecade() {
+    var statistics = histogram.getStatistics();
+    assertThat(statistics.getTotal()).isEqualTo(4);
+    assertThat(statistics.getYears())
+        .containsExactly(entry((short) 1997, 1), entry((short) 1999, 1), entry((short) 2012, 2));
+    assertThat(statistics.getDecades()).containsExactly(entry(1990, 2), entry(2010, 2));
+  }
+
+  @Test
+  @DisplayName("getStatistics reuses the statistics until the next change")
+  void getStatistics_ReusesTheStatistics_UntilTheNextChange() {
+    var statistics = histogram.getStatistics();
+    assertThat(histogram.getStatistics()).isSameAs(statistics);
+
+    histogram.remove(anime(1, 1997));
+    assertThat(histogram.getStatistics()).isNotSameAs(statistics);
+    assertThat(histogram.getStatistics().getYears()).doesNotContainKey((short) 1997);
+  }
+
+  @Test
+  @DisplayName("replace moves the anime to its new year")
+  void replace_MovesTheAnimeToItsNewYear() {
+    histogram.replace(anime(3, 2012), anime(3, 2009));
+    histogram.replace(null, anime(5, 2020));
+    histogram.replace(anime(4, 2012), anime(4, 2012));
+
+    assertThat(histogram.getStatistics().getYears())
+        .containsExactly(
+            entry((short) 1997, 1),
+            entry((short) 1999, 1),
+            entry((short) 2009, 1),
+            entry((short) 2012, 1),
+            entry((short) 2020, 1));
+    assertThat(histogram.getStatistics().getDecades())
+        .containsExactly(entry(1990, 2), entry(2000, 1), entry(2010, 1), entry(2020, 1));
+  }
+
+  @Test
+  @DisplayName("count sums the years of the range, both inclusive")
+  void count_SumsTheYearsOfTheRange() {
+    assertThat(histogram.count((short) 1997, (short) 2012)).isEqualTo(4);
+    assertThat(histogram.count((short) 1998, (short) 2011)).isEqualTo(1);
+    assertThat(histogram.count(Short.MIN_VALUE, Short.MAX_VALUE)).isEqualTo(4);
+    assertThat(histogram.count((short) 2013, Short.MAX_VALUE)).isZero();
+  }
+
+  private static Anime anime(long id, int year) {
+    return Anime.builder().id(id).name("Anime " + id).publicationYear((short) year).build();
+  }
+}
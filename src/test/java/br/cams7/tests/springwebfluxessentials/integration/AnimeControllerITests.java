@@ -3,26 +3,43 @@ package br.cams7.tests.springwebfluxessentials.integration;
 import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.DELETED_ANIME_ID;
 import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.FIRST_ANIME_ID;
 import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.INVALID_ANIME_ID;
+import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.SECOUND_ANIME_ID;
 import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.UPDATED_ANIME_ID;
 import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.getAnimeToBeSaved;
 import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.getFirstAnime;
 import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.getSecoundAnime;
 import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.getUpdatedAnime;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
 
 import br.cams7.tests.springwebfluxessentials.domain.Anime;
+import br.cams7.tests.springwebfluxessentials.domain.ChunkResult;
+import br.cams7.tests.springwebfluxessentials.domain.CursorPage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.zip.GZIPInputStream;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithUserDetails;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.web.reactive.function.BodyInserters;
+import reactor.test.StepVerifier;
 
 @ExtendWith(SpringExtension.class)
 @SpringBootTest(webEnvironment = RANDOM_PORT)
@@ -38,6 +55,9 @@ class AnimeControllerITests {
   private static final Anime FIRST_ANIME = getFirstAnime();
   private static final Anime SECOUND_ANIME = getSecoundAnime();
   private static final Anime UPDATED_ANIME = getUpdatedAnime();
+  private static final ParameterizedTypeReference<CursorPage<Anime>> CURSOR_PAGE_TYPE =
+      new ParameterizedTypeReference<>() {};
+  private static final ObjectMapper CBOR_MAPPER = new ObjectMapper(new CBORFactory());
 
   @Test
   @DisplayName(
@@ -76,6 +96,80 @@ class AnimeControllerITests {
         .contains(FIRST_ANIME, SECOUND_ANIME);
   }
 
+  @Test
+  @DisplayName(
+      "streamAll emits animes as NDJSON when user is successfull authenticated and has role USER")
+  @WithUserDetails(USER)
+  void streamAll_EmitsAnimesAsNdjson_WhenSuccessful() {
+    var animes =
+        testClient
+            .get()
+            .uri("/animes/all")
+            .accept(MediaType.APPLICATION_NDJSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+            .returnResult(Anime.class)
+            .getResponseBody();
+    StepVerifier.create(animes.take(2)).expectNext(FIRST_ANIME, SECOUND_ANIME).verifyComplete();
+  }
+
+  @Test
+  @DisplayName(
+      "streamAll emits animes as server-sent events when user is successfull authenticated and has role USER")
+  @WithUserDetails(USER)
+  void streamAll_EmitsAnimesAsServerSentEvents_WhenSuccessful() {
+    var animes =
+        testClient
+            .get()
+            .uri("/animes/all")
+            .accept(MediaType.TEXT_EVENT_STREAM)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM)
+            .returnResult(Anime.class)
+            .getResponseBody();
+    StepVerifier.create(animes.take(1)).expectNext(FIRST_ANIME).verifyComplete();
+  }
+
+  @Test
+  @DisplayName(
+      "listAll returns not modified without a body when the tag is current and user is successfull authenticated and has role USER")
+  @WithUserDetails(USER)
+  void listAll_ReturnsNotModifiedWithoutABody_WhenTheTagIsCurrent() {
+    for (var representation : List.of(MediaType.APPLICATION_JSON, MediaType.APPLICATION_CBOR)) {
+      var etag =
+          testClient
+              .get()
+              .uri("/animes/all")
+              .accept(representation)
+              .exchange()
+              .expectStatus()
+              .isOk()
+              .expectBody()
+              .returnResult()
+              .getResponseHeaders()
+              .getETag();
+
+      testClient
+          .get()
+          .uri("/animes/all")
+          .accept(representation)
+          .ifNoneMatch(etag)
+          .exchange()
+          .expectStatus()
+          .isNotModified()
+          .expectHeader()
+          .valueEquals(HttpHeaders.ETAG, etag)
+          .expectBody()
+          .isEmpty();
+    }
+  }
+
   @Test
   @DisplayName("listAll returns unauthorized when user isn't authenticated")
   void listAll_ReturnsUnauthorized_WhenUserIsNotAuthenticated() {
@@ -106,6 +200,8 @@ class AnimeControllerITests {
         .isEqualTo(0)
         .jsonPath("$.pageable.pageSize")
         .isEqualTo(3)
+        .jsonPath("$.sort")
+        .doesNotExist()
         .jsonPath("$.last")
         .isEqualTo(false)
         .jsonPath("$.number")
@@ -120,12 +216,221 @@ class AnimeControllerITests {
         .isEqualTo(false);
   }
 
+  @Test
+  @DisplayName(
+      "listByPageable returns a page as CBOR when it is accepted and user is successfull authenticated and has role USER")
+  @WithUserDetails(USER)
+  void listByPageable_ReturnsAPageAsCbor_WhenItIsAccepted() throws IOException {
+    var body =
+        testClient
+            .get()
+            .uri("/animes?page=0&size=3")
+            .accept(MediaType.APPLICATION_CBOR)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .contentType(MediaType.APPLICATION_CBOR)
+            .expectBody(byte[].class)
+            .returnResult()
+            .getResponseBody();
+
+    var page = CBOR_MAPPER.readTree(body);
+    assertThat(page.at("/content/0/name").asText()).isEqualTo(FIRST_ANIME.getName());
+    assertThat(page.at("/content/1/name").asText()).isEqualTo(SECOUND_ANIME.getName());
+    assertThat(page.at("/pageable/pageSize").asInt()).isEqualTo(3);
+    assertThat(page.at("/numberOfElements").asInt()).isEqualTo(3);
+  }
+
+  @Test
+  @DisplayName(
+      "listByPageable returns a page without total when count strategy is none and user is successfull authenticated and has role USER")
+  @WithUserDetails(USER)
+  void listByPageable_ReturnsPageWithoutTotal_WhenCountStrategyIsNone() {
+    testClient
+        .get()
+        .uri("/animes?page=0&size=3&count=none")
+        .exchange()
+        .expectStatus()
+        .isOk()
+        .expectBody()
+        .jsonPath("$.content.length()")
+        .isEqualTo(3)
+        .jsonPath("$.last")
+        .isEqualTo(false)
+        .jsonPath("$.totalElements")
+        .doesNotExist();
+  }
+
+  @Test
+  @DisplayName(
+      "listByPageable returns the estimated total when count strategy is estimated and user is successfull authenticated and has role USER")
+  @WithUserDetails(USER)
+  void listByPageable_ReturnsEstimatedTotal_WhenCountStrategyIsEstimated() {
+    testClient
+        .get()
+        .uri("/animes?page=0&size=3&count=estimated")
+        .exchange()
+        .expectStatus()
+        .isOk()
+        .expectBody()
+        .jsonPath("$.content.length()")
+        .isEqualTo(3)
+        .jsonPath("$.totalElements")
+        .exists();
+  }
+
+  @Test
+  @DisplayName(
+      "listByPageable returns the animes of the years when user is successfull authenticated and has role USER")
+  @WithUserDetails(USER)
+  void listByPageable_ReturnsTheAnimesOfTheYears_WhenYearsAreInformed() {
+    testClient
+        .get()
+        .uri("/animes?yearFrom=2013&yearTo=2013&size=2")
+        .exchange()
+        .expectStatus()
+        .isOk()
+        .expectBody()
+        .jsonPath("$.content.length()")
+        .isEqualTo(2)
+        .jsonPath("$.content[0].id")
+        .isEqualTo(8)
+        .jsonPath("$.content[1].id")
+        .isEqualTo(14)
+        .jsonPath("$.totalElements")
+        .isEqualTo(3);
+  }
+
+  @Test
+  @DisplayName(
+      "listByPageable returns error when yearFrom is after yearTo and user is successfull authenticated and has role USER")
+  @WithUserDetails(USER)
+  void listByPageable_ReturnsError_WhenYearFromIsAfterYearTo() {
+    testClient
+        .get()
+        .uri("/animes?yearFrom=2014&yearTo=2013")
+        .exchange()
+        .expectStatus()
+        .isBadRequest();
+  }
+
+  @Test
+  @DisplayName(
+      "getStatistics returns the counts per year when user is successfull authenticated and has role USER")
+  @WithUserDetails(USER)
+  void getStatistics_ReturnsTheCountsPerYear_WhenSuccessful() {
+    testClient
+        .get()
+        .uri("/animes/stats")
+        .exchange()
+        .expectStatus()
+        .isOk()
+        .expectBody()
+        .jsonPath("$.years['2013']")
+        .isEqualTo(3)
+        .jsonPath("$.decades['1990']")
+        .exists()
+        .jsonPath("$.total")
+        .isNumber();
+  }
+
   @Test
   @DisplayName("listByPageable returns unauthorized when user isn't authenticated")
   void listByPageable_ReturnsUnauthorized_WhenUserIsNotAuthenticated() {
     testClient.get().uri("/animes?page=0&size=3").exchange().expectStatus().isUnauthorized();
   }
 
+  @Test
+  @DisplayName(
+      "listByCursor returns consecutive pages when user is successfull authenticated and has role USER")
+  @WithUserDetails(USER)
+  void listByCursor_ReturnsConsecutivePages_WhenSuccessful() {
+    var firstPage =
+        testClient
+            .get()
+            .uri("/animes?after=&size=2&sort=publicationYear")
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody(CURSOR_PAGE_TYPE)
+            .returnResult()
+            .getResponseBody();
+    assertThat(firstPage.getContent()).hasSize(2);
+    assertThat(firstPage.isLast()).isFalse();
+
+    var secondPage =
+        testClient
+            .get()
+            .uri("/animes?after={after}&size=2&sort=publicationYear", firstPage.getNext())
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody(CURSOR_PAGE_TYPE)
+            .returnResult()
+            .getResponseBody();
+    var lastOfFirstPage = firstPage.getContent().get(1);
+    assertThat(secondPage.getContent())
+        .hasSize(2)
+        .allMatch(
+            anime ->
+                anime.getPublicationYear() > lastOfFirstPage.getPublicationYear()
+                    || (anime.getPublicationYear().equals(lastOfFirstPage.getPublicationYear())
+                        && anime.getId() > lastOfFirstPage.getId()));
+  }
+
+  @Test
+  @DisplayName(
+      "listByCursor returns error when cursor is invalid and user is successfull authenticated and has role USER")
+  @WithUserDetails(USER)
+  void listByCursor_ReturnsError_WhenCursorIsInvalid() {
+    testClient
+        .get()
+        .uri("/animes?after=invalid&sort=name")
+        .exchange()
+        .expectStatus()
+        .isBadRequest()
+        .expectBody()
+        .jsonPath("$.status")
+        .isEqualTo(400)
+        .jsonPath("$.developerMessage")
+        .isEqualTo("A ResponseStatusException happened");
+  }
+
+  @Test
+  @DisplayName(
+      "search returns the matching animes when user is successfull authenticated and has role USER")
+  @WithUserDetails(USER)
+  void search_ReturnsTheMatchingAnimes_WhenSuccessful() {
+    testClient
+        .get()
+        .uri("/animes/search?q=ULTIMA missao")
+        .exchange()
+        .expectStatus()
+        .isOk()
+        .expectBody()
+        .jsonPath("$.content[0].name")
+        .isEqualTo("Hunter X Hunter: A Última Missão")
+        .jsonPath("$.totalElements")
+        .isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName(
+      "search returns error when query is blank and user is successfull authenticated and has role USER")
+  @WithUserDetails(USER)
+  void search_ReturnsError_WhenQueryIsBlank() {
+    testClient
+        .get()
+        .uri("/animes/search?q= ")
+        .exchange()
+        .expectStatus()
+        .isBadRequest()
+        .expectBody()
+        .jsonPath("$.status")
+        .isEqualTo(400);
+  }
+
   @Test
   @DisplayName("getById returns an anime when user is successfull authenticated and has role USER")
   @WithUserDetails(USER)
@@ -157,6 +462,28 @@ class AnimeControllerITests {
         .isEqualTo(FIRST_ANIME);
   }
 
+  @Test
+  @DisplayName(
+      "getById returns an anime as CBOR when it is accepted and user is successfull authenticated and has role USER")
+  @WithUserDetails(USER)
+  void getById_ReturnsAnAnimeAsCbor_WhenItIsAccepted() throws IOException {
+    var body =
+        testClient
+            .get()
+            .uri("/animes/{id}", FIRST_ANIME_ID)
+            .accept(MediaType.APPLICATION_CBOR)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .contentType(MediaType.APPLICATION_CBOR)
+            .expectBody(byte[].class)
+            .returnResult()
+            .getResponseBody();
+
+    assertThat(CBOR_MAPPER.readValue(body, Anime.class)).isEqualTo(FIRST_ANIME);
+  }
+
   @Test
   @DisplayName(
       "getById returns error when empty is returned and user is successfull authenticated and has role USER")
@@ -175,6 +502,37 @@ class AnimeControllerITests {
         .isEqualTo("A ResponseStatusException happened");
   }
 
+  @Test
+  @DisplayName(
+      "getById returns not modified when the tag is current and user is successfull authenticated and has role USER")
+  @WithUserDetails(USER)
+  void getById_ReturnsNotModified_WhenTheTagIsCurrent() {
+    var etag =
+        testClient
+            .get()
+            .uri("/animes/{id}", FIRST_ANIME_ID)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .exists(HttpHeaders.ETAG)
+            .returnResult(Anime.class)
+            .getResponseHeaders()
+            .getETag();
+
+    testClient
+        .get()
+        .uri("/animes/{id}", FIRST_ANIME_ID)
+        .ifNoneMatch(etag)
+        .exchange()
+        .expectStatus()
+        .isNotModified()
+        .expectHeader()
+        .valueEquals(HttpHeaders.ETAG, etag)
+        .expectBody()
+        .isEmpty();
+  }
+
   @Test
   @DisplayName("getById returns unauthorized when user isn't authenticated")
   void getById_ReturnsUnauthorized_WhenUserIsNotAuthenticated() {
@@ -263,7 +621,99 @@ class AnimeControllerITests {
         .expectStatus()
         .isCreated()
         .expectBodyList(Anime.class)
-        .hasSize(2);
+        .hasSize(2)
+        .value(animes -> assertThat(animes).allMatch(anime -> anime.getId() != null));
+  }
+
+  @Test
+  @DisplayName(
+      "saveBatch creates animes sent as CBOR when user is successfull authenticated and has role ADMIN")
+  @WithUserDetails(ADMIN)
+  void saveBatch_CreatesAnimesSentAsCbor_WhenSuccessful() throws IOException {
+    var animes =
+        Set.of(
+            ANIME_TO_BE_SAVED.withName("Fullmetal Alchemist"),
+            ANIME_TO_BE_SAVED.withName("Samurai Champloo"));
+    var body =
+        testClient
+            .post()
+            .uri("/animes/batch")
+            .contentType(MediaType.APPLICATION_CBOR)
+            .accept(MediaType.APPLICATION_CBOR)
+            .bodyValue(CBOR_MAPPER.writeValueAsBytes(animes))
+            .exchange()
+            .expectStatus()
+            .isCreated()
+            .expectHeader()
+            .contentType(MediaType.APPLICATION_CBOR)
+            .expectBody(byte[].class)
+            .returnResult()
+            .getResponseBody();
+
+    assertThat(CBOR_MAPPER.readValue(body, Anime[].class))
+        .hasSize(2)
+        .allMatch(anime -> anime.getId() != null)
+        .extracting(Anime::getName)
+        .containsExactlyInAnyOrder("Fullmetal Alchemist", "Samurai Champloo");
+  }
+
+  @Test
+  @DisplayName(
+      "importBatch imports NDJSON animes when user is successfull authenticated and has role ADMIN")
+  @WithUserDetails(ADMIN)
+  void importBatch_ImportsNdjsonAnimes_WhenSuccessful() {
+    var body =
+        "{\"name\":\"Dororo\",\"publicationYear\":2019}\n"
+            + "{\"name\":\"\",\"publicationYear\":2019}\n"
+            + "{\"name\":\"Naruto\",\"publicationYear\":1999}\n";
+    var results =
+        testClient
+            .post()
+            .uri("/animes/batch")
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .accept(MediaType.APPLICATION_NDJSON)
+            .bodyValue(body)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+            .returnResult(ChunkResult.class)
+            .getResponseBody();
+
+    // one chunk, which repeats a name in use, so nothing of it is inserted
+    StepVerifier.create(results)
+        .assertNext(
+            result -> {
+              assertThat(result.getSize()).isEqualTo(3);
+              assertThat(result.getIds()).isEmpty();
+              assertThat(result.getRejected())
+                  .extracting(ChunkResult.Rejection::getPosition)
+                  .containsExactly(1l);
+              assertThat(result.getError()).isNotNull();
+            })
+        .verifyComplete();
+
+    var valid = "{\"name\":\"Dororo\",\"publicationYear\":2019}\n";
+    testClient
+        .post()
+        .uri("/animes/batch")
+        .contentType(MediaType.APPLICATION_NDJSON)
+        .accept(MediaType.APPLICATION_NDJSON)
+        .bodyValue(valid)
+        .exchange()
+        .expectStatus()
+        .isOk()
+        .expectBodyList(ChunkResult.class)
+        .value(
+            chunks ->
+                assertThat(chunks)
+                    .singleElement()
+                    .satisfies(
+                        result -> {
+                          assertThat(result.getIds()).hasSize(1);
+                          assertThat(result.getError()).isNull();
+                        }));
   }
 
   @Test
@@ -402,6 +852,71 @@ class AnimeControllerITests {
         .isEqualTo("A ResponseStatusException happened");
   }
 
+  @Test
+  @DisplayName(
+      "deleteAll removes the animes when user is successfull authenticated and has role ADMIN")
+  @WithUserDetails(ADMIN)
+  void deleteAll_RemovesTheAnimes_WhenSuccessful() {
+    var ids =
+        testClient
+            .post()
+            .uri("/animes/batch")
+            .contentType(MediaType.APPLICATION_JSON)
+            .body(
+                BodyInserters.fromValue(
+                    Set.of(
+                        ANIME_TO_BE_SAVED.withName("Cowboy Bebop"),
+                        ANIME_TO_BE_SAVED.withName("Trigun"))))
+            .exchange()
+            .expectStatus()
+            .isCreated()
+            .expectBodyList(Anime.class)
+            .returnResult()
+            .getResponseBody()
+            .stream()
+            .map(Anime::getId)
+            .collect(Collectors.toList());
+
+    testClient
+        .delete()
+        .uri(uriBuilder -> uriBuilder.path("/animes").queryParam("ids", ids).build())
+        .exchange()
+        .expectStatus()
+        .isNoContent();
+
+    ids.forEach(
+        id -> testClient.get().uri("/animes/{id}", id).exchange().expectStatus().isNotFound());
+  }
+
+  @Test
+  @DisplayName(
+      "deleteAll returns bad request when more ids than a batch holds are informed and user is successfull authenticated and has role ADMIN")
+  @WithUserDetails(ADMIN)
+  void deleteAll_ReturnsBadRequest_WhenMoreIdsThanABatchHoldsAreInformed() {
+    var ids = LongStream.rangeClosed(1, 101).boxed().collect(Collectors.toList());
+    testClient
+        .delete()
+        .uri(uriBuilder -> uriBuilder.path("/animes").queryParam("ids", ids).build())
+        .exchange()
+        .expectStatus()
+        .isBadRequest();
+
+    testClient.get().uri("/animes/{id}", FIRST_ANIME_ID).exchange().expectStatus().isOk();
+  }
+
+  @Test
+  @DisplayName(
+      "deleteAll returns forbidden when user is successfull authenticated and doesn't have role ADMIN")
+  @WithUserDetails(USER)
+  void deleteAll_ReturnsForbidden_WhenUserDoesNotHaveRoleADMIN() {
+    testClient
+        .delete()
+        .uri("/animes?ids={id}", FIRST_ANIME_ID)
+        .exchange()
+        .expectStatus()
+        .isForbidden();
+  }
+
   @Test
   @DisplayName(
       "delete returns forbidden when user is successfull authenticated and doesn't have role ADMIN")
@@ -410,6 +925,52 @@ class AnimeControllerITests {
     testClient.delete().uri("/animes/{id}", FIRST_ANIME_ID).exchange().expectStatus().isForbidden();
   }
 
+  @Test
+  @DisplayName(
+      "update returns precondition failed when the tag is old and user is successfull authenticated and has role USER")
+  @WithUserDetails(USER)
+  void update_ReturnsPreconditionFailed_WhenTheTagIsOld() {
+    testClient
+        .put()
+        .uri("/animes/{id}", UPDATED_ANIME_ID)
+        .header(HttpHeaders.IF_MATCH, "\"old-0\"")
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(BodyInserters.fromValue(UPDATED_ANIME))
+        .exchange()
+        .expectStatus()
+        .isEqualTo(HttpStatus.PRECONDITION_FAILED)
+        .expectBody()
+        .jsonPath("$.status")
+        .isEqualTo(412);
+  }
+
+  @Test
+  @DisplayName(
+      "update returns precondition failed to the second update holding the same tag and user is successfull authenticated and has role USER")
+  @WithUserDetails(USER)
+  void update_ReturnsPreconditionFailed_ToTheSecondUpdateHoldingTheSameTag() {
+    var etag = getETag(MediaType.APPLICATION_JSON);
+    for (var status : List.of(HttpStatus.NO_CONTENT, HttpStatus.PRECONDITION_FAILED))
+      testClient
+          .put()
+          .uri("/animes/{id}", UPDATED_ANIME_ID)
+          .header(HttpHeaders.IF_MATCH, etag)
+          .contentType(MediaType.APPLICATION_JSON)
+          .body(BodyInserters.fromValue(UPDATED_ANIME))
+          .exchange()
+          .expectStatus()
+          .isEqualTo(status);
+  }
+
+  @Test
+  @DisplayName(
+      "getById tags JSON and CBOR differently and varies on Accept when user is successfull authenticated and has role USER")
+  @WithUserDetails(USER)
+  void getById_TagsJsonAndCborDifferently() {
+    assertThat(getETag(MediaType.APPLICATION_JSON))
+        .isNotEqualTo(getETag(MediaType.APPLICATION_CBOR));
+  }
+
   @Test
   @DisplayName("delete returns unauthorized when user isn't authenticated")
   void delete_ReturnsUnauthorized_WhenUserIsNotAuthenticated() {
@@ -488,4 +1049,140 @@ class AnimeControllerITests {
         .expectStatus()
         .isUnauthorized();
   }
+
+  @Test
+  @DisplayName(
+      "listByIds returns the animes with the given ids when user is successfull authenticated")
+  @WithUserDetails(USER)
+  void listByIds_ReturnsTheAnimesWithTheGivenIds_WhenSuccessful() {
+    testClient
+        .get()
+        .uri("/animes?ids={ids}", SECOUND_ANIME_ID + "," + INVALID_ANIME_ID + "," + FIRST_ANIME_ID)
+        .exchange()
+        .expectStatus()
+        .isOk()
+        .expectBodyList(Anime.class)
+        .isEqualTo(List.of(SECOUND_ANIME, FIRST_ANIME));
+  }
+
+  @Test
+  @DisplayName("listByIds returns bad request when an id isn't a number")
+  @WithUserDetails(USER)
+  void listByIds_ReturnsBadRequest_WhenAnIdIsNotANumber() {
+    testClient.get().uri("/animes?ids=1,x").exchange().expectStatus().isBadRequest();
+  }
+
+  @Test
+  @DisplayName("listByIds returns bad request when a cursor is informed too")
+  @WithUserDetails(USER)
+  void listByIds_ReturnsBadRequest_WhenACursorIsInformedToo() {
+    testClient
+        .get()
+        .uri("/animes?after=&ids={id}", FIRST_ANIME_ID)
+        .exchange()
+        .expectStatus()
+        .isBadRequest()
+        .expectBody()
+        .jsonPath("$.status")
+        .isEqualTo(400);
+  }
+
+  @Test
+  @DisplayName("export returns the catalog as CSV when user is successfull authenticated")
+  @WithUserDetails(USER)
+  void export_ReturnsTheCatalogAsCsv_WhenSuccessful() {
+    var csv =
+        testClient
+            .get()
+            .uri("/animes/export?format=csv")
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .contentTypeCompatibleWith("text/csv")
+            .expectHeader()
+            .valueEquals(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"animes.csv\"")
+            .expectBody(String.class)
+            .returnResult()
+            .getResponseBody();
+
+    assertThat(csv).startsWith("id,name,publication_year\r\n").contains("\r\n1,Naruto,1999\r\n");
+  }
+
+  @Test
+  @DisplayName("export gzips the NDJSON catalog when the client accepts gzip")
+  @WithUserDetails(USER)
+  void export_GzipsTheNdjsonCatalog_WhenTheClientAcceptsGzip() throws IOException {
+    var body =
+        testClient
+            .get()
+            .uri("/animes/export")
+            .header(HttpHeaders.ACCEPT_ENCODING, "gzip")
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+            .expectHeader()
+            .valueEquals(HttpHeaders.CONTENT_ENCODING, "gzip")
+            .expectBody(byte[].class)
+            .returnResult()
+            .getResponseBody();
+
+    try (var input = new GZIPInputStream(new ByteArrayInputStream(body))) {
+      var lines = new String(input.readAllBytes(), StandardCharsets.UTF_8).split("\n");
+      assertThat(new ObjectMapper().readValue(lines[0], Anime.class)).isEqualTo(FIRST_ANIME);
+    }
+  }
+
+  @Test
+  @DisplayName("export doesn't gzip the catalog when the client gives gzip a quality of 0")
+  @WithUserDetails(USER)
+  void export_DoesNotGzipTheCatalog_WhenTheClientGivesGzipAQualityOf0() throws IOException {
+    var body =
+        testClient
+            .get()
+            .uri("/animes/export")
+            .header(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, identity")
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .doesNotExist(HttpHeaders.CONTENT_ENCODING)
+            .expectBody(String.class)
+            .returnResult()
+            .getResponseBody();
+
+    var lines = body.split("\n");
+    assertThat(new ObjectMapper().readValue(lines[0], Anime.class)).isEqualTo(FIRST_ANIME);
+  }
+
+  @Test
+  @DisplayName("export returns bad request when the format is unknown")
+  @WithUserDetails(USER)
+  void export_ReturnsBadRequest_WhenTheFormatIsUnknown() {
+    testClient.get().uri("/animes/export?format=xml").exchange().expectStatus().isBadRequest();
+  }
+
+  @Test
+  @DisplayName("export returns unauthorized when user isn't authenticated")
+  void export_ReturnsUnauthorized_WhenUserIsNotAuthenticated() {
+    testClient.get().uri("/animes/export").exchange().expectStatus().isUnauthorized();
+  }
+
+  private String getETag(MediaType representation) {
+    return testClient
+        .get()
+        .uri("/animes/{id}", FIRST_ANIME_ID)
+        .accept(representation)
+        .exchange()
+        .expectStatus()
+        .isOk()
+        .expectHeader()
+        .valueEquals(HttpHeaders.VARY, HttpHeaders.ACCEPT)
+        .expectBody()
+        .returnResult()
+        .getResponseHeaders()
+        .getETag();
+  }
 }
@@ -0,0 +1,204 @@
+package br.cams7.tests.springwebfluxessentials.integration;
+
+import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.FIRST_ANIME_ID;
+import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.INVALID_ANIME_ID;
+import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.getAnimeToBeSaved;
+import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.getFirstAnime;
+import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.getSecoundAnime;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import br.cams7.tests.springwebfluxessentials.domain.Anime;
+import br.cams7.tests.springwebfluxessentials.security.TokenService;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.rsocket.exceptions.ApplicationErrorException;
+import io.rsocket.exceptions.RejectedSetupException;
+import io.rsocket.metadata.AuthMetadataCodec;
+import io.rsocket.metadata.WellKnownMimeType;
+import java.time.Duration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.rsocket.context.LocalRSocketServerPort;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.messaging.rsocket.RSocketRequester;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.util.MimeType;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(
+    properties = {
+      // its own database, so the schema and data scripts run again
+      "spring.r2dbc.url=r2dbc:h2:mem:///rsocket-tests?options=DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE"
+    })
+class AnimeRSocketITests {
+
+  private static final String USER = "user";
+  private static final String ADMIN = "admin";
+  private static final String PASSWORD = "abc12345";
+  private static final MimeType AUTHENTICATION_MIME_TYPE =
+      MimeType.valueOf(WellKnownMimeType.MESSAGE_RSOCKET_AUTHENTICATION.getString());
+
+  private static final Anime ANIME_TO_BE_SAVED = getAnimeToBeSaved();
+  private static final Anime FIRST_ANIME = getFirstAnime();
+  private static final Anime SECOUND_ANIME = getSecoundAnime();
+
+  @Autowired private RSocketRequester.Builder requesterBuilder;
+
+  @Autowired private TokenService tokenService;
+
+  @LocalRSocketServerPort private int port;
+
+  private RSocketRequester requester;
+
+  @AfterEach
+  void tearDown() {
+    if (requester != null) requester.dispose();
+  }
+
+  @Test
+  @DisplayName(
+      "animes.{id} returns an anime when user is successfull authenticated and has role USER")
+  void getById_ReturnsAnAnime_WhenSuccessful() {
+    StepVerifier.create(
+            connect(USER).route("animes.{id}", FIRST_ANIME_ID).retrieveMono(Anime.class))
+        .expectNext(FIRST_ANIME)
+        .verifyComplete();
+  }
+
+  @Test
+  @DisplayName("animes.{id} returns error when the anime doesn't exist")
+  void getById_ReturnsError_WhenEmptyIsReturned() {
+    StepVerifier.create(
+            connect(USER).route("animes.{id}", INVALID_ANIME_ID).retrieveMono(Anime.class))
+        .expectErrorSatisfies(
+            error ->
+                assertThat(error)
+                    .isInstanceOf(ApplicationErrorException.class)
+                    .hasMessageContaining("404"))
+        .verify();
+  }
+
+  @Test
+  @DisplayName("animes.all streams the catalog as it is requested")
+  void streamAll_StreamsTheCatalog_WhenSuccessful() {
+    StepVerifier.create(connect(USER).route("animes.all").retrieveFlux(Anime.class), 1)
+        .expectNext(FIRST_ANIME)
+        .thenRequest(1)
+        .expectNext(SECOUND_ANIME)
+        .thenCancel()
+        .verify();
+  }
+
+  @Test
+  @DisplayName("animes.batch creates animes when user has role ADMIN")
+  void saveBatch_CreatesAnimes_WhenSuccessful() {
+    var animes =
+        Flux.just(
+            ANIME_TO_BE_SAVED.withName("Vinland Saga"),
+            ANIME_TO_BE_SAVED.withName("Mob Psycho 100"));
+    var requester = connect(ADMIN);
+
+    var saved =
+        requester
+            .route("animes.batch")
+            .data(animes)
+            .retrieveFlux(Anime.class)
+            .collectList()
+            .block();
+    assertThat(saved)
+        .allMatch(anime -> anime.getId() != null)
+        .extracting(Anime::getName)
+        .containsExactly("Vinland Saga", "Mob Psycho 100");
+
+    StepVerifier.create(
+            requester.route("animes.{id}", saved.get(0).getId()).retrieveMono(Anime.class))
+        .expectNext(saved.get(0))
+        .verifyComplete();
+  }
+
+  @Test
+  @DisplayName("animes.batch returns error when one of animes contains empty name")
+  void saveBatch_ReturnsError_WhenOneOfAnimesContainsEmptyName() {
+    var animes = Flux.just(ANIME_TO_BE_SAVED.withName("Haikyu!!"), ANIME_TO_BE_SAVED.withName(""));
+    StepVerifier.create(connect(ADMIN).route("animes.batch").data(animes).retrieveFlux(Anime.class))
+        .expectError(ApplicationErrorException.class)
+        .verify(Duration.ofSeconds(5));
+  }
+
+  @Test
+  @DisplayName("animes.batch returns error when user doesn't have role ADMIN")
+  void saveBatch_ReturnsError_WhenUserDoesNotHaveRoleADMIN() {
+    StepVerifier.create(
+            connect(USER)
+                .route("animes.batch")
+                .data(Flux.just(ANIME_TO_BE_SAVED))
+                .retrieveFlux(Anime.class))
+        .expectErrorSatisfies(
+            error ->
+                assertThat(error)
+                    .isInstanceOf(ApplicationErrorException.class)
+                    .hasMessage("Denied"))
+        .verify(Duration.ofSeconds(5));
+  }
+
+  @Test
+  @DisplayName("animes.{id} returns an anime when the connection is opened with a token")
+  void getById_ReturnsAnAnime_WhenTheConnectionIsOpenedWithAToken() {
+    var token =
+        tokenService.issue(
+            new UsernamePasswordAuthenticationToken(
+                USER, null, AuthorityUtils.createAuthorityList("ROLE_USER")));
+    var credentials =
+        AuthMetadataCodec.encodeBearerMetadata(
+            ByteBufAllocator.DEFAULT, token.getAccessToken().toCharArray());
+    requester = connect(credentials);
+
+    StepVerifier.create(requester.route("animes.{id}", FIRST_ANIME_ID).retrieveMono(Anime.class))
+        .expectNext(FIRST_ANIME)
+        .verifyComplete();
+  }
+
+  @Test
+  @DisplayName("the connection is rejected when the password is wrong")
+  void connect_IsRejected_WhenThePasswordIsWrong() {
+    requester = connect(simpleCredentials(USER, "wrong"));
+    StepVerifier.create(requester.route("animes.{id}", FIRST_ANIME_ID).retrieveMono(Anime.class))
+        .expectError(RejectedSetupException.class)
+        .verify(Duration.ofSeconds(5));
+  }
+
+  @Test
+  @DisplayName("the connection is rejected when there are no credentials")
+  void connect_IsRejected_WhenThereAreNoCredentials() {
+    requester = requesterBuilder.tcp("localhost", port);
+    StepVerifier.create(requester.route("animes.{id}", FIRST_ANIME_ID).retrieveMono(Anime.class))
+        .expectError(RejectedSetupException.class)
+        .verify(Duration.ofSeconds(5));
+  }
+
+  private RSocketRequester connect(String username) {
+    requester = connect(simpleCredentials(username, PASSWORD));
+    return requester;
+  }
+
+  private RSocketRequester connect(ByteBuf credentials) {
+    var metadata = ByteBufUtil.getBytes(credentials);
+    credentials.release();
+    return requesterBuilder
+        .setupMetadata(metadata, AUTHENTICATION_MIME_TYPE)
+        .tcp("localhost", port);
+  }
+
+  private static ByteBuf simpleCredentials(String username, String password) {
+    return AuthMetadataCodec.encodeSimpleMetadata(
+        ByteBufAllocator.DEFAULT, username.toCharArray(), password.toCharArray());
+  }
+}
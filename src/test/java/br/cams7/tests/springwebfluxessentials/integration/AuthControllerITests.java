@@ -0,0 +1,105 @@
+package br.cams7.tests.springwebfluxessentials.integration;
+
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+import br.cams7.tests.springwebfluxessentials.domain.AccessToken;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = RANDOM_PORT)
+@AutoConfigureWebTestClient
+class AuthControllerITests {
+
+  private static final String ADMIN = "admin";
+  private static final String USER = "user";
+  private static final String PASSWORD = "abc12345";
+
+  @Autowired private WebTestClient testClient;
+
+  @Test
+  @DisplayName("createToken returns a bearer token when user is successfull authenticated")
+  void createToken_ReturnsBearerToken_WhenSuccessful() {
+    var token = createToken(USER, PASSWORD);
+
+    testClient
+        .get()
+        .uri("/animes/{id}", 1)
+        .headers(headers -> headers.setBearerAuth(token))
+        .exchange()
+        .expectStatus()
+        .isOk();
+  }
+
+  @Test
+  @DisplayName("bearer token keeps the authorities of the user it was issued for")
+  void createToken_KeepsAuthorities_WhenSuccessful() {
+    var token = createToken(USER, PASSWORD);
+
+    testClient
+        .delete()
+        .uri("/animes/{id}", 1)
+        .headers(headers -> headers.setBearerAuth(token))
+        .exchange()
+        .expectStatus()
+        .isForbidden();
+  }
+
+  @Test
+  @DisplayName("createToken returns unauthorized when the password is wrong")
+  void createToken_ReturnsUnauthorized_WhenThePasswordIsWrong() {
+    testClient
+        .post()
+        .uri("/auth/token")
+        .headers(headers -> headers.setBasicAuth(ADMIN, "wrong"))
+        .exchange()
+        .expectStatus()
+        .isUnauthorized();
+  }
+
+  @Test
+  @DisplayName("createToken returns unauthorized when only a bearer token is informed")
+  void createToken_ReturnsUnauthorized_WhenOnlyABearerTokenIsInformed() {
+    var token = createToken(ADMIN, PASSWORD);
+
+    testClient
+        .post()
+        .uri("/auth/token")
+        .headers(headers -> headers.setBearerAuth(token))
+        .exchange()
+        .expectStatus()
+        .isUnauthorized();
+  }
+
+  @Test
+  @DisplayName("bearer token returns unauthorized when the token is invalid")
+  void bearerToken_ReturnsUnauthorized_WhenTheTokenIsInvalid() {
+    testClient
+        .get()
+        .uri("/animes/{id}", 1)
+        .headers(headers -> headers.setBearerAuth("invalid.token"))
+        .exchange()
+        .expectStatus()
+        .isUnauthorized();
+  }
+
+  private String createToken(String username, String password) {
+    return testClient
+        .post()
+        .uri("/auth/token")
+        .headers(headers -> headers.setBasicAuth(username, password))
+        .exchange()
+        .expectStatus()
+        .isOk()
+        .expectBody(AccessToken.class)
+        .returnResult()
+        .getResponseBody()
+        .getAccessToken();
+  }
+}
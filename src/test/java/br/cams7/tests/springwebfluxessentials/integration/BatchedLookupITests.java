@@ -0,0 +1,89 @@
+package br.cams7.tests.springwebfluxessentials.integration;
+
+import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.FIRST_ANIME_ID;
+import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.INVALID_ANIME_ID;
+import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.SECOUND_ANIME_ID;
+import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.getFirstAnime;
+import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.getSecoundAnime;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+import br.cams7.tests.springwebfluxessentials.domain.Anime;
+import br.cams7.tests.springwebfluxessentials.query.QueryBatcher;
+import br.cams7.tests.springwebfluxessentials.service.AnimeService;
+import java.util.concurrent.CompletionException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.server.ResponseStatusException;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(
+    webEnvironment = RANDOM_PORT,
+    properties = {
+      // its own database and cache, so the ids below are always missing from the cache
+      "spring.r2dbc.url=r2dbc:h2:mem:///batched-lookup-tests?options=DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+      "animes.loader.max-wait=100ms"
+    })
+@AutoConfigureWebTestClient
+class BatchedLookupITests {
+  private static final String USER = "user";
+
+  @Autowired private WebTestClient testClient;
+
+  @Autowired private AnimeService service;
+
+  @Autowired private QueryBatcher batcher;
+
+  @Test
+  @DisplayName("findById returns the anime of every id read in one batch, and not found otherwise")
+  void findById_ReturnsTheAnimeOfEveryIdReadInOneBatch() {
+    assertThat(batcher.isEnabled()).isTrue();
+
+    // subscribed one after the other, all within the wait
+    var first = service.findById(FIRST_ANIME_ID).toFuture();
+    var invalid = service.findById(INVALID_ANIME_ID).toFuture();
+    var secound = service.findById(SECOUND_ANIME_ID).toFuture();
+
+    assertThat(first.join()).isEqualTo(getFirstAnime());
+    assertThat(secound.join()).isEqualTo(getSecoundAnime());
+    assertThatThrownBy(invalid::join)
+        .isInstanceOf(CompletionException.class)
+        .getCause()
+        .isInstanceOfSatisfying(
+            ResponseStatusException.class,
+            error -> assertThat(error.getStatus()).isEqualTo(HttpStatus.NOT_FOUND));
+  }
+
+  @Test
+  @DisplayName("getById returns the anime read by a batch of one id")
+  @WithUserDetails(USER)
+  void getById_ReturnsTheAnimeReadByABatchOfOneId() {
+    // ids no other test reads, so they miss the cache
+    var aggretsuko =
+        Anime.builder().id(5l).name("Aggretsuko").publicationYear((short) 2020).build();
+    testClient
+        .get()
+        .uri("/animes/{id}", aggretsuko.getId())
+        .exchange()
+        .expectStatus()
+        .isOk()
+        .expectBody(Anime.class)
+        .isEqualTo(aggretsuko);
+
+    testClient
+        .get()
+        .uri("/animes/{id}", INVALID_ANIME_ID + 1)
+        .exchange()
+        .expectStatus()
+        .isNotFound();
+  }
+}
@@ -0,0 +1,69 @@
+package br.cams7.tests.springwebfluxessentials.integration;
+
+import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.SECOUND_ANIME_ID;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.spi.ConnectionFactory;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(
+    webEnvironment = RANDOM_PORT,
+    properties = {
+      // its own database, so the schema and data scripts run again
+      "spring.r2dbc.url=r2dbc:h2:mem:///connection-pool-tests?options=DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+      "spring.r2dbc.pool.initial-size=1",
+      "spring.r2dbc.pool.max-size=1",
+      "spring.r2dbc.pool.max-acquire-time=200ms"
+    })
+@AutoConfigureWebTestClient
+class ConnectionPoolITests {
+
+  private static final String USER = "user";
+
+  @Autowired private WebTestClient testClient;
+
+  @Autowired private ConnectionFactory connectionFactory;
+
+  @Autowired private MeterRegistry registry;
+
+  @Test
+  @DisplayName(
+      "getById returns service unavailable when the pool is exhausted and recovers once a connection is released")
+  @WithUserDetails(USER)
+  void getById_ReturnsServiceUnavailable_WhenThePoolIsExhausted() {
+    var connection = Mono.from(connectionFactory.create()).block();
+    try {
+      testClient
+          .get()
+          .uri("/animes/{id}", SECOUND_ANIME_ID)
+          .exchange()
+          .expectStatus()
+          .isEqualTo(503)
+          .expectBody()
+          .jsonPath("$.status")
+          .isEqualTo(503)
+          .jsonPath("$.developerMessage")
+          .isEqualTo("A DataAccessResourceFailureException happened");
+    } finally {
+      Mono.from(connection.close()).block();
+    }
+
+    testClient.get().uri("/animes/{id}", SECOUND_ANIME_ID).exchange().expectStatus().isOk();
+
+    assertThat(registry.get("r2dbc.pool.acquire").tag("outcome", "failure").timer().count())
+        .isPositive();
+    assertThat(registry.get("r2dbc.pool.acquired").gauge().value()).isZero();
+  }
+}
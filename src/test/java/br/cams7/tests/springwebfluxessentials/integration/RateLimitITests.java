@@ -0,0 +1,81 @@
+package br.cams7.tests.springwebfluxessentials.integration;
+
+import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.FIRST_ANIME_ID;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(
+    webEnvironment = RANDOM_PORT,
+    properties = {
+      // its own database, so the schema and data scripts run again
+      "spring.r2dbc.url=r2dbc:h2:mem:///rate-limit-tests?options=DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+      "rate-limit.routes[0].path=/animes/{id}",
+      "rate-limit.routes[0].method=GET",
+      "rate-limit.routes[0].limits.user.capacity=2",
+      "rate-limit.routes[0].limits.user.period=1h",
+      "rate-limit.routes[0].limits.admin.capacity=100",
+      "rate-limit.routes[0].limits.admin.period=1h"
+    })
+@AutoConfigureWebTestClient
+class RateLimitITests {
+  private static final String USER = "user";
+  private static final String ADMIN = "admin";
+
+  @Autowired private WebTestClient testClient;
+
+  @Test
+  @DisplayName("findById returns too many requests when user exceeds the limit of the route")
+  @WithUserDetails(USER)
+  void findById_ReturnsTooManyRequests_WhenUserExceedsTheLimit() {
+    for (int i = 0; i < 2; i++)
+      testClient.get().uri("/animes/{id}", FIRST_ANIME_ID).exchange().expectStatus().isOk();
+
+    testClient
+        .get()
+        .uri("/animes/{id}", FIRST_ANIME_ID)
+        .exchange()
+        .expectStatus()
+        .isEqualTo(429)
+        .expectHeader()
+        .valueEquals(HttpHeaders.RETRY_AFTER, "1800")
+        .expectBody()
+        .jsonPath("$.status")
+        .isEqualTo(429)
+        .jsonPath("$.developerMessage")
+        .isEqualTo("A ResponseStatusException happened");
+
+    // other routes have their own limits
+    testClient.get().uri("/animes?page=0&size=1").exchange().expectStatus().isOk();
+  }
+
+  @Test
+  @DisplayName("findById applies the limit of the role ADMIN to admins")
+  @WithUserDetails(ADMIN)
+  void findById_AppliesTheLimitOfTheRoleADMIN_ToAdmins() {
+    for (int i = 0; i < 5; i++)
+      testClient.get().uri("/animes/{id}", FIRST_ANIME_ID).exchange().expectStatus().isOk();
+  }
+
+  @Test
+  @DisplayName("findById returns unauthorized before counting anonymous requests")
+  void findById_ReturnsUnauthorized_WhenUserIsNotAuthenticated() {
+    for (int i = 0; i < 3; i++)
+      testClient
+          .get()
+          .uri("/animes/{id}", FIRST_ANIME_ID)
+          .exchange()
+          .expectStatus()
+          .isUnauthorized();
+  }
+}
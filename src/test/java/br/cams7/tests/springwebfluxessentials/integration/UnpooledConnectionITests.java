@@ -0,0 +1,56 @@
+package br.cams7.tests.springwebfluxessentials.integration;
+
+import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.FIRST_ANIME_ID;
+import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.getFirstAnime;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+import br.cams7.tests.springwebfluxessentials.config.MeteredConnectionFactory;
+import br.cams7.tests.springwebfluxessentials.domain.Anime;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.spi.ConnectionFactory;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(
+    webEnvironment = RANDOM_PORT,
+    properties = {
+      // its own database, so the schema and data scripts run again
+      "spring.r2dbc.url=r2dbc:h2:mem:///unpooled-connection-tests?options=DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+      "spring.r2dbc.pool.enabled=false"
+    })
+@AutoConfigureWebTestClient
+class UnpooledConnectionITests {
+
+  private static final String USER = "user";
+
+  @Autowired private WebTestClient testClient;
+
+  @Autowired private ConnectionFactory connectionFactory;
+
+  @Test
+  @DisplayName("getById reads the database without a pool when the pool is disabled")
+  @WithUserDetails(USER)
+  void getById_ReadsTheDatabaseWithoutAPool_WhenThePoolIsDisabled() {
+    assertThat(connectionFactory)
+        .isNotInstanceOf(MeteredConnectionFactory.class)
+        .isNotInstanceOf(ConnectionPool.class);
+
+    testClient
+        .get()
+        .uri("/animes/{id}", FIRST_ANIME_ID)
+        .exchange()
+        .expectStatus()
+        .isOk()
+        .expectBody(Anime.class)
+        .isEqualTo(getFirstAnime());
+  }
+}
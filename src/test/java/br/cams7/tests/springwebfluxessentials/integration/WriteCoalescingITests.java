@@ -0,0 +1,117 @@
+package br.cams7.tests.springwebfluxessentials.integration;
+
+import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.FIRST_ANIME_ID;
+import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.INVALID_ANIME_ID;
+import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.getFirstAnime;
+import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.getUpdatedAnime;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+
+import br.cams7.tests.springwebfluxessentials.domain.Anime;
+import br.cams7.tests.springwebfluxessentials.service.AnimeService;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithUserDetails;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.BodyInserters;
+import reactor.core.publisher.Flux;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(
+    webEnvironment = RANDOM_PORT,
+    properties = {
+      // its own database, so the schema and data scripts run again
+      "spring.r2dbc.url=r2dbc:h2:mem:///write-coalescing-tests?options=DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+      "animes.updates.coalesce-window=50ms"
+    })
+@AutoConfigureWebTestClient
+class WriteCoalescingITests {
+  private static final String USER = "user";
+  private static final Anime UPDATED_ANIME = getUpdatedAnime();
+
+  @Autowired private WebTestClient testClient;
+
+  @Autowired private AnimeService service;
+
+  @Autowired private MeterRegistry registry;
+
+  @Test
+  @DisplayName("update writes concurrent updates of an anime once and keeps the last of them")
+  @WithUserDetails(USER)
+  void update_WritesConcurrentUpdatesOfAnAnimeOnce_AndKeepsTheLastOfThem() {
+    var written = count("written");
+    var merged = count("merged");
+    var updates =
+        IntStream.range(0, 10)
+            .mapToObj(i -> UPDATED_ANIME.withName("The Seven Deadly Sins " + i))
+            .collect(Collectors.toList());
+
+    // subscribed one after the other, all within the window
+    Flux.fromIterable(updates).flatMap(service::update).then().block(Duration.ofSeconds(5));
+
+    assertThat(count("written") - written).isEqualTo(1);
+    assertThat(count("merged") - merged).isEqualTo(9);
+    testClient
+        .get()
+        .uri("/animes/{id}", UPDATED_ANIME.getId())
+        .exchange()
+        .expectStatus()
+        .isOk()
+        .expectBody(Anime.class)
+        .isEqualTo(updates.get(9));
+  }
+
+  @Test
+  @DisplayName("update returns no content once the update is written")
+  @WithUserDetails(USER)
+  void update_ReturnsNoContent_OnceTheUpdateIsWritten() {
+    var anime = getFirstAnime().withName("Naruto Shippuden");
+    testClient
+        .put()
+        .uri("/animes/{id}", FIRST_ANIME_ID)
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(BodyInserters.fromValue(anime))
+        .exchange()
+        .expectStatus()
+        .isNoContent();
+
+    testClient
+        .get()
+        .uri("/animes/{id}", FIRST_ANIME_ID)
+        .exchange()
+        .expectStatus()
+        .isOk()
+        .expectBody(Anime.class)
+        .isEqualTo(anime);
+  }
+
+  @Test
+  @DisplayName("update returns not found when the anime doesn't exist")
+  @WithUserDetails(USER)
+  void update_ReturnsNotFound_WhenTheAnimeDoesNotExist() {
+    testClient
+        .put()
+        .uri("/animes/{id}", INVALID_ANIME_ID)
+        .contentType(MediaType.APPLICATION_JSON)
+        .body(BodyInserters.fromValue(UPDATED_ANIME.withId(INVALID_ANIME_ID)))
+        .exchange()
+        .expectStatus()
+        .isNotFound();
+  }
+
+  private double count(String outcome) {
+    var counter =
+        registry.find("anime.writes").tag("command", "update").tag("outcome", outcome).counter();
+    return counter != null ? counter.count() : 0;
+  }
+}
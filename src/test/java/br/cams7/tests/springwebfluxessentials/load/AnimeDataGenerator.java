@@ -0,0 +1,39 @@
+package br.cams7.tests.springwebfluxessentials.load;
+
+import br.cams7.tests.springwebfluxessentials.domain.Anime;
+import br.cams7.tests.springwebfluxessentials.repository.AnimeRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+
+/** Fills tb_anime with generated animes, written in multi-row INSERTs. */
+@Slf4j
+@RequiredArgsConstructor
+public class AnimeDataGenerator {
+  private static final int CHUNK_SIZE = 1_000;
+  private static final int PROGRESS_ROWS = 100_000;
+
+  private final AnimeRepository repository;
+
+  public void generate(int rows) {
+    var start = System.nanoTime();
+    Flux.range(0, rows)
+        .map(AnimeDataGenerator::createAnime)
+        .buffer(CHUNK_SIZE)
+        .concatMap(repository::insertAll)
+        .index()
+        .filter(tuple -> (tuple.getT1() + 1) % PROGRESS_ROWS == 0)
+        .doOnNext(tuple -> log.info("Generated {} of {} animes", tuple.getT1() + 1, rows))
+        .then()
+        .block();
+    log.info("Generated {} animes in {} ms", rows, (System.nanoTime() - start) / 1_000_000);
+  }
+
+  // names are unique, years spread over 1960-2019
+  static Anime createAnime(int index) {
+    return Anime.builder()
+        .name("Generated anime #" + index)
+        .publicationYear((short) (1960 + index % 60))
+        .build();
+  }
+}
@@ -0,0 +1,177 @@
+package br.cams7.tests.springwebfluxessentials.load;
+
+import br.cams7.tests.springwebfluxessentials.domain.Anime;
+import br.cams7.tests.springwebfluxessentials.load.LoadSettings.Operation;
+import java.io.PrintStream;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.RequiredArgsConstructor;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Sends the configured mix of requests and records their latencies.
+ *
+ * <p>With a fixed rate, latency is measured from when a request should have been sent, so time
+ * spent waiting for a free slot counts (no coordinated omission). Ticks arriving while {@code
+ * concurrency} requests are already in flight are dropped and reported.
+ */
+@RequiredArgsConstructor
+public class LoadGenerator {
+  private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+  private static final int PAGE_SIZE = 20;
+
+  private final WebClient client;
+  private final LoadSettings settings;
+  private final long maxId;
+
+  private final AtomicLong sequence = new AtomicLong();
+  private final Map<Operation, OperationStats> stats = new EnumMap<>(Operation.class);
+  private final LongAdder dropped = new LongAdder();
+
+  public void run() {
+    var operations = new ArrayList<Operation>();
+    settings
+        .getMix()
+        .forEach(
+            (operation, weight) -> {
+              stats.put(operation, new OperationStats());
+              for (int i = 0; i < weight; i++) operations.add(operation);
+            });
+
+    var start = System.nanoTime();
+    var measureFrom = start + settings.getWarmup().toNanos();
+    var end = measureFrom + settings.getDuration().toNanos();
+    getScheduledTimes(start)
+        .takeWhile(scheduled -> scheduled < end)
+        .flatMap(
+            scheduled -> {
+              var operation =
+                  operations.get(ThreadLocalRandom.current().nextInt(operations.size()));
+              return execute(operation)
+                  .onErrorReturn(false)
+                  .doOnNext(
+                      success -> {
+                        if (scheduled >= measureFrom)
+                          stats.get(operation).record(System.nanoTime() - scheduled, success);
+                      });
+            },
+            settings.getConcurrency())
+        .blockLast();
+  }
+
+  public void print(PrintStream out) {
+    var seconds = settings.getDuration().toMillis() / 1000d;
+    out.printf(
+        "%n%-8s %10s %8s %10s %10s %10s %10s %10s%n",
+        "", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+    var total = new Histogram(3);
+    long errors = 0;
+    for (var entry : stats.entrySet()) {
+      var operation = entry.getValue();
+      print(out, entry.getKey().getKey(), operation.latencies, operation.errors.sum(), seconds);
+      total.add(operation.latencies);
+      errors += operation.errors.sum();
+    }
+    print(out, "total", total, errors, seconds);
+    if (settings.getRate() > 0) out.printf("dropped  %10d%n", dropped.sum());
+  }
+
+  private static void print(
+      PrintStream out, String name, Histogram latencies, long errors, double seconds) {
+    out.printf(
+        "%-8s %10d %8d %10.1f %10.2f %10.2f %10.2f %10.2f%n",
+        name,
+        latencies.getTotalCount(),
+        errors,
+        latencies.getTotalCount() / seconds,
+        latencies.getValueAtPercentile(50) / 1000d,
+        latencies.getValueAtPercentile(99) / 1000d,
+        latencies.getValueAtPercentile(99.9) / 1000d,
+        latencies.getMaxValue() / 1000d);
+  }
+
+  private Flux<Long> getScheduledTimes(long start) {
+    // closed loop: a new request as soon as one finishes
+    if (settings.getRate() <= 0) return Flux.generate(sink -> sink.next(System.nanoTime()));
+
+    var period = NANOS_PER_SECOND / settings.getRate();
+    return Flux.interval(Duration.ofNanos(period))
+        .map(tick -> start + tick * period)
+        .onBackpressureDrop(scheduled -> dropped.increment());
+  }
+
+  private Mono<Boolean> execute(Operation operation) {
+    var random = ThreadLocalRandom.current();
+    switch (operation) {
+      case BY_ID:
+        return client
+            .get()
+            .uri("/animes/{id}", random.nextLong(1, maxId + 1))
+            .exchangeToMono(LoadGenerator::consume);
+      case PAGE:
+        return client
+            .get()
+            .uri(
+                "/animes?page={page}&size={size}&sort=name",
+                random.nextLong(maxId / PAGE_SIZE + 1),
+                PAGE_SIZE)
+            .exchangeToMono(LoadGenerator::consume);
+      case ALL:
+        return client.get().uri("/animes/all").exchangeToMono(LoadGenerator::consume);
+      case UPDATE:
+        return client
+            .put()
+            .uri("/animes/{id}", random.nextLong(1, maxId + 1))
+            .bodyValue(createAnime("Updated anime #"))
+            .exchangeToMono(LoadGenerator::consume);
+      default:
+        var animes = new ArrayList<Anime>(settings.getBatchSize());
+        for (int i = 0; i < settings.getBatchSize(); i++) animes.add(createAnime("Load anime #"));
+        return client
+            .post()
+            .uri("/animes/batch")
+            .bodyValue(animes)
+            .exchangeToMono(LoadGenerator::consume);
+    }
+  }
+
+  private Anime createAnime(String prefix) {
+    return Anime.builder()
+        .name(prefix + sequence.incrementAndGet())
+        .publicationYear((short) 2021)
+        .build();
+  }
+
+  // reads the whole body without decoding it, as a client would
+  private static Mono<Boolean> consume(ClientResponse response) {
+    return response
+        .bodyToFlux(DataBuffer.class)
+        .doOnNext(DataBufferUtils::release)
+        .then(Mono.fromSupplier(() -> response.statusCode().is2xxSuccessful()));
+  }
+
+  private static class OperationStats {
+    // microseconds, up to one hour
+    private final Histogram latencies = new ConcurrentHistogram(TimeUnit.HOURS.toMicros(1), 3);
+    private final LongAdder errors = new LongAdder();
+
+    void record(long nanos, boolean success) {
+      latencies.recordValue(
+          Math.min(TimeUnit.NANOSECONDS.toMicros(nanos), latencies.getHighestTrackableValue()));
+      if (!success) errors.increment();
+    }
+  }
+}
@@ -0,0 +1,85 @@
+package br.cams7.tests.springwebfluxessentials.load;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import lombok.Value;
+import org.springframework.boot.convert.DurationStyle;
+
+/**
+ * Options of a load test run, given as {@code key=value} arguments:
+ *
+ * <ul>
+ *   <li>{@code rows}: animes generated before the run (default 100000)
+ *   <li>{@code rate}: requests per second, or 0 to send as fast as {@code concurrency} allows
+ *   <li>{@code concurrency}: maximum requests in flight (default 64)
+ *   <li>{@code warmup}, {@code duration}: e.g. {@code 10s}, {@code 1m}; warmup isn't reported
+ *   <li>{@code mix}: weights of the operations, e.g. {@code byId:60,page:25,update:10,batch:5}
+ *   <li>{@code batch-size}: animes sent by each batch request (default 100)
+ * </ul>
+ */
+@Value
+public class LoadSettings {
+  int rows;
+  int rate;
+  int concurrency;
+  Duration warmup;
+  Duration duration;
+  Map<Operation, Integer> mix;
+  int batchSize;
+
+  public static LoadSettings parse(String[] args) {
+    var options = new LinkedHashMap<String, String>();
+    for (var arg : args) {
+      var index = arg.indexOf('=');
+      if (index < 0) throw new IllegalArgumentException("Expected key=value but was " + arg);
+      options.put(arg.substring(0, index), arg.substring(index + 1));
+    }
+
+    return new LoadSettings(
+        Integer.parseInt(options.getOrDefault("rows", "100000")),
+        Integer.parseInt(options.getOrDefault("rate", "0")),
+        Integer.parseInt(options.getOrDefault("concurrency", "64")),
+        DurationStyle.detectAndParse(options.getOrDefault("warmup", "10s")),
+        DurationStyle.detectAndParse(options.getOrDefault("duration", "30s")),
+        parseMix(options.getOrDefault("mix", "byId:60,page:25,update:10,batch:5")),
+        Integer.parseInt(options.getOrDefault("batch-size", "100")));
+  }
+
+  private static Map<Operation, Integer> parseMix(String mix) {
+    var weights = new LinkedHashMap<Operation, Integer>();
+    for (var entry : mix.split(",")) {
+      var parts = entry.split(":");
+      weights.put(Operation.getOperation(parts[0].trim()), Integer.parseInt(parts[1].trim()));
+    }
+    return weights;
+  }
+
+  public enum Operation {
+    /** GET /animes/{id} of a random anime. */
+    BY_ID("byId"),
+    /** GET /animes of a random page of 20 animes sorted by name, with the exact total. */
+    PAGE("page"),
+    /** GET /animes/all, the whole catalog as a JSON array. */
+    ALL("all"),
+    /** PUT /animes/{id} of a random anime. */
+    UPDATE("update"),
+    /** POST /animes/batch of {@code batch-size} new animes. */
+    BATCH("batch");
+
+    private final String key;
+
+    Operation(String key) {
+      this.key = key;
+    }
+
+    public String getKey() {
+      return key;
+    }
+
+    static Operation getOperation(String key) {
+      for (var operation : values()) if (operation.key.equalsIgnoreCase(key)) return operation;
+      throw new IllegalArgumentException("Unknown operation " + key);
+    }
+  }
+}
@@ -0,0 +1,75 @@
+package br.cams7.tests.springwebfluxessentials.load;
+
+import br.cams7.tests.springwebfluxessentials.App;
+import br.cams7.tests.springwebfluxessentials.domain.AccessToken;
+import br.cams7.tests.springwebfluxessentials.repository.AnimeRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * Starts the application over its own in-memory H2 database, fills it with generated animes and
+ * drives the HTTP endpoints, printing latency percentiles and throughput per operation.
+ *
+ * <p>{@code mvn -Pload-test test -Dload.args="rows=1000000 rate=500 duration=1m"}; see {@link
+ * LoadSettings} for the options.
+ */
+@Slf4j
+public class LoadTest {
+  private static final String USERNAME = "admin";
+  private static final String PASSWORD = "abc12345";
+
+  public static void main(String[] args) {
+    // devtools would restart the application in another thread, without these arguments
+    System.setProperty("spring.devtools.restart.enabled", "false");
+    var settings = LoadSettings.parse(args);
+    log.info("Running load test with {}", settings);
+
+    var context =
+        new SpringApplicationBuilder(App.class)
+            .run(
+                "--server.port=0",
+                "--spring.r2dbc.url=r2dbc:h2:mem:///load-test?options=DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                "--authentication.token.ttl=1d",
+                // the logging aspect would otherwise write two lines per service call
+                "--logging.level.br.cams7.tests.springwebfluxessentials.service=WARN");
+    try (context) {
+      var repository = context.getBean(AnimeRepository.class);
+      var seeded = repository.count().block();
+      new AnimeDataGenerator(repository).generate(settings.getRows());
+
+      var port = context.getEnvironment().getRequiredProperty("local.server.port");
+      var provider =
+          ConnectionProvider.builder("load-test")
+              .maxConnections(settings.getConcurrency())
+              .pendingAcquireMaxCount(-1)
+              .build();
+      var client =
+          WebClient.builder()
+              .baseUrl("http://localhost:" + port)
+              .clientConnector(new ReactorClientHttpConnector(HttpClient.create(provider)))
+              .build();
+      var token =
+          client
+              .post()
+              .uri("/auth/token")
+              .headers(headers -> headers.setBasicAuth(USERNAME, PASSWORD))
+              .retrieve()
+              .bodyToMono(AccessToken.class)
+              .block()
+              .getAccessToken();
+
+      var generator =
+          new LoadGenerator(
+              client.mutate().defaultHeaders(headers -> headers.setBearerAuth(token)).build(),
+              settings,
+              seeded + settings.getRows());
+      generator.run();
+      generator.print(System.out);
+      provider.dispose();
+    }
+  }
+}
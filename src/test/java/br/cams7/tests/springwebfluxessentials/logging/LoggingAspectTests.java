@@ -0,0 +1,68 @@
+package br.cams7.tests.springwebfluxessentials.logging;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+class LoggingAspectTests {
+  private final Logger logger = (Logger) LoggerFactory.getLogger(Target.class);
+  private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+  private Target proxy;
+
+  public static class Target {
+    @LogEntryExit
+    public Flux<Integer> range(int count) {
+      return Flux.range(1, count);
+    }
+  }
+
+  @BeforeEach
+  void setUp() {
+    appender.start();
+    logger.addAppender(appender);
+
+    var factory = new AspectJProxyFactory(new Target());
+    factory.setProxyTargetClass(true);
+    factory.addAspect(new LoggingAspect());
+    proxy = factory.getProxy();
+  }
+
+  @AfterEach
+  void tearDown() {
+    logger.detachAppender(appender);
+  }
+
+  @Test
+  @DisplayName("a finished flux logs how many elements it emitted without showing the result")
+  void finishedFlux_LogsHowManyElementsItEmitted() {
+    StepVerifier.create(proxy.range(3)).expectNextCount(3).verifyComplete();
+    assertThat(appender.list)
+        .last()
+        .extracting(ILoggingEvent::getFormattedMessage)
+        .asString()
+        .startsWith("Finished range method")
+        .endsWith(" with 3 elements");
+  }
+
+  @Test
+  @DisplayName("a cancelled flux logs how many elements it emitted before")
+  void cancelledFlux_LogsHowManyElementsItEmittedBefore() {
+    StepVerifier.create(proxy.range(10), 2).expectNextCount(2).thenCancel().verify();
+    assertThat(appender.list)
+        .last()
+        .extracting(ILoggingEvent::getFormattedMessage)
+        .asString()
+        .startsWith("Cancelled range method")
+        .endsWith(" with 2 elements");
+  }
+}
@@ -0,0 +1,132 @@
+package br.cams7.tests.springwebfluxessentials.query;
+
+import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.FIRST_ANIME_ID;
+import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.INVALID_ANIME_ID;
+import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.SECOUND_ANIME_ID;
+import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.getFirstAnime;
+import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.getSecoundAnime;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import br.cams7.tests.springwebfluxessentials.config.AnimeProperties;
+import br.cams7.tests.springwebfluxessentials.domain.Anime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+class QueryBatcherTests {
+  private static final String QUERY = "findById";
+  private static final Anime FIRST_ANIME = getFirstAnime();
+  private static final Anime SECOUND_ANIME = getSecoundAnime();
+
+  private final VirtualTimeScheduler scheduler = VirtualTimeScheduler.create();
+  private final List<Set<Long>> batches = new ArrayList<>();
+  private QueryBatcher batcher;
+
+  @BeforeEach
+  void setUp() {
+    batcher = batcher(10, Duration.ofMillis(5));
+  }
+
+  @Test
+  @DisplayName("load reads the keys requested within the wait in one batch")
+  void load_ReadsTheKeysRequestedWithinTheWaitInOneBatch() {
+    var first = load(FIRST_ANIME_ID);
+    scheduler.advanceTimeBy(Duration.ofMillis(4));
+    var secound = load(SECOUND_ANIME_ID);
+    var invalid = load(INVALID_ANIME_ID);
+    assertThat(batches).isEmpty();
+
+    scheduler.advanceTimeBy(Duration.ofMillis(1));
+    assertThat(batches).containsExactly(Set.of(FIRST_ANIME_ID, SECOUND_ANIME_ID, INVALID_ANIME_ID));
+    assertThat(first).isCompletedWithValue(FIRST_ANIME);
+    assertThat(secound).isCompletedWithValue(SECOUND_ANIME);
+    assertThat(invalid).isCompletedWithValue(null);
+  }
+
+  @Test
+  @DisplayName("load reads a batch at once when it is full")
+  void load_ReadsABatchAtOnce_WhenItIsFull() {
+    batcher = batcher(2, Duration.ofMillis(5));
+    var first = load(FIRST_ANIME_ID);
+    var secound = load(SECOUND_ANIME_ID);
+    var next = load(INVALID_ANIME_ID);
+
+    assertThat(batches).containsExactly(Set.of(FIRST_ANIME_ID, SECOUND_ANIME_ID));
+    assertThat(first).isCompletedWithValue(FIRST_ANIME);
+    assertThat(secound).isCompletedWithValue(SECOUND_ANIME);
+    assertThat(next).isNotDone();
+
+    scheduler.advanceTimeBy(Duration.ofMillis(5));
+    assertThat(batches).hasSize(2).last().isEqualTo(Set.of(INVALID_ANIME_ID));
+    assertThat(next).isCompletedWithValue(null);
+  }
+
+  @Test
+  @DisplayName("load reads a key requested twice in a batch only once")
+  void load_ReadsAKeyRequestedTwiceInABatchOnlyOnce() {
+    var first = load(FIRST_ANIME_ID);
+    var again = load(FIRST_ANIME_ID);
+    scheduler.advanceTimeBy(Duration.ofMillis(5));
+
+    assertThat(batches).containsExactly(Set.of(FIRST_ANIME_ID));
+    assertThat(first).isCompletedWithValue(FIRST_ANIME);
+    assertThat(again).isCompletedWithValue(FIRST_ANIME);
+  }
+
+  @Test
+  @DisplayName("load emits the error of the batch to all its loads")
+  void load_EmitsTheErrorOfTheBatch_ToAllItsLoads() {
+    var first =
+        batcher
+            .load(
+                QUERY,
+                FIRST_ANIME_ID,
+                ids -> Flux.<Anime>error(new IllegalStateException("Connection lost")),
+                Anime::getId)
+            .toFuture();
+    var secound =
+        batcher
+            .load(
+                QUERY,
+                SECOUND_ANIME_ID,
+                ids -> Flux.<Anime>error(new IllegalStateException("Connection lost")),
+                Anime::getId)
+            .toFuture();
+    scheduler.advanceTimeBy(Duration.ofMillis(5));
+
+    assertThat(first).isCompletedExceptionally();
+    assertThat(secound).isCompletedExceptionally();
+  }
+
+  @Test
+  @DisplayName("isEnabled returns false when there is no wait")
+  void isEnabled_ReturnsFalse_WhenThereIsNoWait() {
+    assertThat(batcher.isEnabled()).isTrue();
+    assertThat(batcher(3, Duration.ZERO).isEnabled()).isFalse();
+    assertThat(new QueryBatcher(new AnimeProperties()).isEnabled()).isFalse();
+  }
+
+  private CompletableFuture<Anime> load(Long id) {
+    return batcher.load(QUERY, id, this::findAllById, Anime::getId).toFuture();
+  }
+
+  private Flux<Anime> findAllById(Set<Long> ids) {
+    batches.add(new LinkedHashSet<>(ids));
+    return Flux.just(FIRST_ANIME, SECOUND_ANIME).filter(anime -> ids.contains(anime.getId()));
+  }
+
+  private QueryBatcher batcher(int maxBatchSize, Duration maxWait) {
+    var settings = new AnimeProperties.Loader();
+    settings.setMaxBatchSize(maxBatchSize);
+    settings.setMaxWait(maxWait);
+    return new QueryBatcher(settings, scheduler);
+  }
+}
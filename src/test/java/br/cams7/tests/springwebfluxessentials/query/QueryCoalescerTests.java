@@ -0,0 +1,143 @@
+package br.cams7.tests.springwebfluxessentials.query;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static reactor.test.StepVerifier.create;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+class QueryCoalescerTests {
+  private static final String QUERY = "findById";
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final QueryCoalescer coalescer = new QueryCoalescer(registry);
+  private final AtomicInteger executions = new AtomicInteger();
+  private final AtomicBoolean cancelled = new AtomicBoolean();
+  private Sinks.One<String> result;
+
+  @BeforeEach
+  void setUp() {
+    result = Sinks.one();
+  }
+
+  @Test
+  @DisplayName("execute runs identical queries in flight only once")
+  void execute_RunsIdenticalQueriesInFlightOnlyOnce() {
+    var first = execute(1l, 0).toFuture();
+    var second = execute(1l, 0).toFuture();
+    var other = execute(2l, 0).toFuture();
+    assertThat(executions).hasValue(2);
+
+    result.tryEmitValue("Naruto");
+    assertThat(first).isCompletedWithValue("Naruto");
+    assertThat(second).isCompletedWithValue("Naruto");
+    assertThat(other).isCompletedWithValue("Naruto");
+    assertThat(coalescer.size()).isZero();
+    assertThat(count("executed")).isEqualTo(2);
+    assertThat(count("coalesced")).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("execute runs the query again when the previous one is done")
+  void execute_RunsTheQueryAgain_WhenThePreviousOneIsDone() {
+    result.tryEmitValue("Naruto");
+    create(execute(1l, 0)).expectNext("Naruto").verifyComplete();
+    create(execute(1l, 0)).expectNext("Naruto").verifyComplete();
+    assertThat(executions).hasValue(2);
+    assertThat(count("coalesced")).isZero();
+  }
+
+  @Test
+  @DisplayName("execute doesn't join a query of another generation")
+  void execute_DoesNotJoinAQueryOfAnotherGeneration() {
+    var before = execute(1l, 0).toFuture();
+    var after = execute(1l, 1).toFuture();
+    assertThat(executions).hasValue(2);
+
+    result.tryEmitValue("Naruto");
+    assertThat(before).isCompletedWithValue("Naruto");
+    assertThat(after).isCompletedWithValue("Naruto");
+  }
+
+  @Test
+  @DisplayName("execute keeps the query running while other subscribers wait for it")
+  void execute_KeepsTheQueryRunning_WhileOtherSubscribersWaitForIt() {
+    var first = execute(1l, 0).subscribe();
+    var second = execute(1l, 0).toFuture();
+
+    first.dispose();
+    assertThat(cancelled).isFalse();
+    result.tryEmitValue("Naruto");
+    assertThat(second).isCompletedWithValue("Naruto");
+    assertThat(executions).hasValue(1);
+  }
+
+  @Test
+  @DisplayName("execute cancels the query when all its subscribers are gone")
+  void execute_CancelsTheQuery_WhenAllItsSubscribersAreGone() {
+    var first = execute(1l, 0).subscribe();
+    var second = execute(1l, 0).subscribe();
+
+    first.dispose();
+    second.dispose();
+    assertThat(cancelled).isTrue();
+    assertThat(coalescer.size()).isZero();
+
+    // a new subscriber doesn't wait for the cancelled query
+    result = Sinks.one();
+    var third = execute(1l, 0).toFuture();
+    result.tryEmitValue("Naruto");
+    assertThat(third).isCompletedWithValue("Naruto");
+    assertThat(executions).hasValue(2);
+  }
+
+  @Test
+  @DisplayName("execute emits the error of the query to all its subscribers")
+  void execute_EmitsTheErrorOfTheQuery_ToAllItsSubscribers() {
+    var first = execute(1l, 0).toFuture();
+    var second = execute(1l, 0).toFuture();
+
+    result.tryEmitError(new IllegalStateException("Connection lost"));
+    assertThat(first).isCompletedExceptionally();
+    assertThat(second).isCompletedExceptionally();
+    assertThat(coalescer.size()).isZero();
+  }
+
+  @Test
+  @DisplayName("execute completes all subscribers empty when the query finds nothing")
+  void execute_CompletesAllSubscribersEmpty_WhenTheQueryFindsNothing() {
+    var first = execute(1l, 0).toFuture();
+    var second = execute(1l, 0).toFuture();
+
+    result.tryEmitEmpty();
+    assertThat(first).isCompletedWithValue(null);
+    assertThat(second).isCompletedWithValue(null);
+  }
+
+  private Mono<String> execute(Long id, long generation) {
+    var sink = result;
+    return coalescer.execute(
+        QUERY,
+        id,
+        generation,
+        () ->
+            sink.asMono()
+                .doOnSubscribe(subscription -> executions.incrementAndGet())
+                .doOnCancel(() -> cancelled.set(true)));
+  }
+
+  private double count(String outcome) {
+    return registry
+        .get("anime.queries")
+        .tag("query", QUERY)
+        .tag("outcome", outcome)
+        .counter()
+        .count();
+  }
+}
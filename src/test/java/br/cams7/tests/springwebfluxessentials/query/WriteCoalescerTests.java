@@ -0,0 +1,213 @@
+package br.cams7.tests.springwebfluxessentials.query;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import br.cams7.tests.springwebfluxessentials.config.AnimeProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.scheduler.VirtualTimeScheduler;
+
+class WriteCoalescerTests {
+  private static final String COMMAND = "update";
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final VirtualTimeScheduler scheduler = VirtualTimeScheduler.create();
+  private final WriteCoalescer coalescer =
+      new WriteCoalescer(Duration.ofMillis(5), scheduler, registry);
+  private final Map<Long, String> rows = new ConcurrentHashMap<>();
+  private final List<String> writes = new ArrayList<>();
+
+  @Test
+  @DisplayName("write applies only the last of the writes of a row within the window")
+  void write_AppliesOnlyTheLastOfTheWritesOfARowWithinTheWindow() {
+    var first = write(1l, "Naruto").toFuture();
+    scheduler.advanceTimeBy(Duration.ofMillis(4));
+    var second = write(1l, "Naruto Shippuden").toFuture();
+    var other = write(2l, "One Piece").toFuture();
+    assertThat(writes).isEmpty();
+
+    scheduler.advanceTimeBy(Duration.ofMillis(1));
+    assertThat(writes).containsExactly("Naruto Shippuden");
+    assertThat(first).isCompletedWithValue("Naruto Shippuden");
+    assertThat(second).isCompletedWithValue("Naruto Shippuden");
+    assertThat(other).isNotDone();
+
+    scheduler.advanceTimeBy(Duration.ofMillis(4));
+    assertThat(other).isCompletedWithValue("One Piece");
+    assertThat(rows).containsEntry(1l, "Naruto Shippuden").containsEntry(2l, "One Piece");
+    assertThat(coalescer.size()).isZero();
+    assertThat(count("written")).isEqualTo(2);
+    assertThat(count("merged")).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("write completes only after the merged write is applied")
+  void write_CompletesOnlyAfterTheMergedWriteIsApplied() {
+    Sinks.One<String> applied = Sinks.one();
+    var first = coalescer.write(COMMAND, 1l, applied::asMono).toFuture();
+    var second = coalescer.write(COMMAND, 1l, applied::asMono).toFuture();
+
+    scheduler.advanceTimeBy(Duration.ofMillis(5));
+    assertThat(first).isNotDone();
+    assertThat(second).isNotDone();
+
+    applied.tryEmitValue("Naruto");
+    assertThat(first).isCompletedWithValue("Naruto");
+    assertThat(second).isCompletedWithValue("Naruto");
+  }
+
+  @Test
+  @DisplayName("write applies the writes of a row arriving while one runs only after it")
+  void write_AppliesTheWritesOfARowArrivingWhileOneRuns_OnlyAfterIt() {
+    Sinks.One<String> running = Sinks.one();
+    var first = coalescer.write(COMMAND, 1l, running::asMono).toFuture();
+    scheduler.advanceTimeBy(Duration.ofMillis(5));
+
+    var second = write(1l, "Naruto").toFuture();
+    var third = write(1l, "Naruto Shippuden").toFuture();
+    scheduler.advanceTimeBy(Duration.ofMillis(10));
+    assertThat(writes).isEmpty();
+
+    running.tryEmitValue("Boruto");
+    assertThat(first).isCompletedWithValue("Boruto");
+    assertThat(writes).containsExactly("Naruto Shippuden");
+    assertThat(second).isCompletedWithValue("Naruto Shippuden");
+    assertThat(third).isCompletedWithValue("Naruto Shippuden");
+    assertThat(coalescer.size()).isZero();
+  }
+
+  @Test
+  @DisplayName("write is done with the row before completing its writes")
+  void write_IsDoneWithTheRow_BeforeCompletingItsWrites() {
+    var rowsOnCompletion = new AtomicInteger(-1);
+    var first =
+        write(1l, "Naruto").doOnNext(value -> rowsOnCompletion.set(coalescer.size())).toFuture();
+    scheduler.advanceTimeBy(Duration.ofMillis(5));
+
+    assertThat(first).isCompletedWithValue("Naruto");
+    assertThat(rowsOnCompletion).hasValue(0);
+  }
+
+  @Test
+  @DisplayName("write applies a write of a row made once the previous one completes")
+  void write_AppliesAWriteOfARowMadeOnceThePreviousOneCompletes() {
+    var next = write(1l, "Naruto").flatMap(value -> write(1l, "Boruto")).toFuture();
+    scheduler.advanceTimeBy(Duration.ofMillis(5));
+    assertThat(next).isNotDone();
+
+    scheduler.advanceTimeBy(Duration.ofMillis(5));
+    assertThat(next).isCompletedWithValue("Boruto");
+    assertThat(writes).containsExactly("Naruto", "Boruto");
+    assertThat(coalescer.size()).isZero();
+  }
+
+  @Test
+  @DisplayName("write emits the error of the merged write to all its writes")
+  void write_EmitsTheErrorOfTheMergedWrite_ToAllItsWrites() {
+    var first = write(1l, "Naruto").toFuture();
+    var second =
+        coalescer
+            .write(COMMAND, 1l, () -> Mono.<String>error(new IllegalStateException("Lost")))
+            .toFuture();
+    scheduler.advanceTimeBy(Duration.ofMillis(5));
+
+    assertThat(first).isCompletedExceptionally();
+    assertThat(second).isCompletedExceptionally();
+    assertThat(writes).isEmpty();
+    assertThat(coalescer.size()).isZero();
+  }
+
+  @Test
+  @DisplayName("write loses no write of concurrent writers")
+  void write_LosesNoWriteOfConcurrentWriters() throws Exception {
+    var coalescer = new WriteCoalescer(Duration.ofMillis(1), Schedulers.parallel(), registry);
+    var running = new AtomicInteger();
+    var overlaps = new AtomicInteger();
+    var writers = 4;
+    var writesPerWriter = 100;
+
+    var tasks = new ArrayList<Callable<String>>();
+    for (int writer = 0; writer < writers; writer++) {
+      var name = "writer-" + writer;
+      tasks.add(
+          () -> {
+            String value = null;
+            for (int i = 0; i < writesPerWriter; i++) {
+              var written = name + "-" + i;
+              value =
+                  coalescer
+                      .write(
+                          COMMAND,
+                          1l,
+                          () ->
+                              Mono.fromSupplier(
+                                  () -> {
+                                    if (running.incrementAndGet() > 1) overlaps.incrementAndGet();
+                                    rows.put(1l, written);
+                                    running.decrementAndGet();
+                                    return written;
+                                  }))
+                      .block(Duration.ofSeconds(5));
+              // merged only into later writes, and this writer's earlier ones are all done
+              if (value.startsWith(name + "-")) assertThat(value).isEqualTo(written);
+            }
+            return value;
+          });
+    }
+
+    var executor = Executors.newFixedThreadPool(writers);
+    try {
+      var lastWrites = new ArrayList<String>();
+      for (var result : executor.invokeAll(tasks)) lastWrites.add(result.get());
+
+      // the last write applied is the last one of some writer, never one it wrote over
+      assertThat(lastWrites).contains(rows.get(1l));
+      assertThat(overlaps).hasValue(0);
+      assertThat(coalescer.size()).isZero();
+      assertThat(count("written") + count("merged")).isEqualTo(writers * writesPerWriter);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  @DisplayName("isEnabled returns false when there is no window")
+  void isEnabled_ReturnsFalse_WhenThereIsNoWindow() {
+    assertThat(coalescer.isEnabled()).isTrue();
+    assertThat(new WriteCoalescer(new AnimeProperties(), registry).isEnabled()).isFalse();
+  }
+
+  private Mono<String> write(Long id, String name) {
+    return coalescer.write(
+        COMMAND,
+        id,
+        () ->
+            Mono.fromSupplier(
+                () -> {
+                  writes.add(name);
+                  rows.put(id, name);
+                  return name;
+                }));
+  }
+
+  private double count(String outcome) {
+    return registry
+        .get("anime.writes")
+        .tag("command", COMMAND)
+        .tag("outcome", outcome)
+        .counter()
+        .count();
+  }
+}
@@ -0,0 +1,170 @@
+package br.cams7.tests.springwebfluxessentials.ratelimit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import br.cams7.tests.springwebfluxessentials.config.RateLimitProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.server.PathContainer;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+class RateLimiterTests {
+  private static final List<GrantedAuthority> USER =
+      AuthorityUtils.createAuthorityList("ROLE_USER");
+  private static final List<GrantedAuthority> ADMIN =
+      AuthorityUtils.createAuthorityList("ROLE_USER", "ROLE_ADMIN");
+
+  private final AtomicLong clock = new AtomicLong(-TimeUnit.HOURS.toNanos(1));
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private RateLimiter rateLimiter;
+
+  @BeforeEach
+  void setUp() {
+    var properties = new RateLimitProperties();
+    properties.getRoutes().add(route("/animes/all", HttpMethod.GET, 2, 3));
+    properties.getRoutes().add(route("/animes/**", null, 4, 8));
+    rateLimiter = new RateLimiter(properties, registry, clock::get);
+  }
+
+  @Test
+  @DisplayName("getRoute returns the first route matching the request")
+  void getRoute_ReturnsTheFirstMatchingRoute() {
+    var all = rateLimiter.getRoute(HttpMethod.GET, PathContainer.parsePath("/animes/all"));
+    var animes = rateLimiter.getRoute(HttpMethod.POST, PathContainer.parsePath("/animes/all"));
+    assertThat(all).isNotNull().isNotSameAs(animes);
+    assertThat(rateLimiter.getRoute(HttpMethod.GET, PathContainer.parsePath("/animes/1")))
+        .isSameAs(animes);
+    assertThat(rateLimiter.getRoute(HttpMethod.GET, PathContainer.parsePath("/auth/token")))
+        .isNull();
+  }
+
+  @Test
+  @DisplayName("acquire admits a burst of the capacity and then one request per interval")
+  void acquire_AdmitsABurstAndThenOneRequestPerInterval() {
+    var route = rateLimiter.getRoute(HttpMethod.GET, PathContainer.parsePath("/animes/all"));
+
+    assertThat(route.acquire("user", USER)).isZero();
+    assertThat(route.acquire("user", USER)).isZero();
+    assertThat(route.acquire("user", USER)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(500));
+
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(499));
+    assertThat(route.acquire("user", USER)).isEqualTo(TimeUnit.MILLISECONDS.toNanos(1));
+    clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+    assertThat(route.acquire("user", USER)).isZero();
+    assertThat(route.acquire("user", USER)).isPositive();
+
+    assertThat(
+            registry.get("rate.limit.rejections").tag("route", "GET /animes/all").counter().count())
+        .isEqualTo(3);
+  }
+
+  @Test
+  @DisplayName("acquire refills an idle bucket up to its capacity only")
+  void acquire_RefillsAnIdleBucketUpToItsCapacityOnly() {
+    var route = rateLimiter.getRoute(HttpMethod.GET, PathContainer.parsePath("/animes/all"));
+    assertThat(route.acquire("user", USER)).isZero();
+    assertThat(route.acquire("user", USER)).isZero();
+
+    clock.addAndGet(TimeUnit.HOURS.toNanos(1));
+    assertThat(route.acquire("user", USER)).isZero();
+    assertThat(route.acquire("user", USER)).isZero();
+    assertThat(route.acquire("user", USER)).isPositive();
+  }
+
+  @Test
+  @DisplayName("acquire counts every user and route apart")
+  void acquire_CountsEveryUserAndRouteApart() {
+    var all = rateLimiter.getRoute(HttpMethod.GET, PathContainer.parsePath("/animes/all"));
+    var animes = rateLimiter.getRoute(HttpMethod.GET, PathContainer.parsePath("/animes/1"));
+    all.acquire("user", USER);
+    all.acquire("user", USER);
+
+    assertThat(all.acquire("user", USER)).isPositive();
+    assertThat(all.acquire("other", USER)).isZero();
+    assertThat(animes.acquire("user", USER)).isZero();
+    assertThat(rateLimiter.size()).isEqualTo(3);
+  }
+
+  @Test
+  @DisplayName("acquire applies the highest limit among the roles of the user")
+  void acquire_AppliesTheHighestLimitAmongTheRoles() {
+    var route = rateLimiter.getRoute(HttpMethod.GET, PathContainer.parsePath("/animes/all"));
+    for (int i = 0; i < 3; i++) assertThat(route.acquire("admin", ADMIN)).isZero();
+    assertThat(route.acquire("admin", ADMIN)).isPositive();
+  }
+
+  @Test
+  @DisplayName("acquire doesn't limit users without a limited role")
+  void acquire_DoesNotLimitUsersWithoutALimitedRole() {
+    var route = rateLimiter.getRoute(HttpMethod.GET, PathContainer.parsePath("/animes/all"));
+    var guest = AuthorityUtils.createAuthorityList("ROLE_GUEST");
+    for (int i = 0; i < 10; i++) assertThat(route.acquire("guest", guest)).isZero();
+    assertThat(rateLimiter.size()).isZero();
+  }
+
+  @Test
+  @DisplayName("acquire admits exactly the capacity when many threads race for it")
+  void acquire_AdmitsExactlyTheCapacity_WhenManyThreadsRace() throws InterruptedException {
+    var properties = new RateLimitProperties();
+    var limit = new RateLimitProperties.Limit();
+    limit.setCapacity(1_000);
+    limit.setPeriod(Duration.ofDays(1));
+    var config = new RateLimitProperties.Route();
+    config.setPath("/animes/**");
+    config.getLimits().put("user", limit);
+    properties.getRoutes().add(config);
+    var route =
+        new RateLimiter(properties, registry, clock::get)
+            .getRoute(HttpMethod.GET, PathContainer.parsePath("/animes/all"));
+
+    var admitted = new AtomicInteger();
+    var start = new CountDownLatch(1);
+    var executor = Executors.newFixedThreadPool(8);
+    var tasks = new ArrayList<Runnable>();
+    for (int thread = 0; thread < 8; thread++)
+      tasks.add(
+          () -> {
+            try {
+              start.await();
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+            for (int i = 0; i < 500; i++)
+              if (route.acquire("user", USER) == 0) admitted.incrementAndGet();
+          });
+    tasks.forEach(executor::execute);
+    start.countDown();
+    executor.shutdown();
+    assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+    assertThat(admitted).hasValue(1_000);
+  }
+
+  private static RateLimitProperties.Route route(
+      String path, HttpMethod method, long userCapacity, long adminCapacity) {
+    var route = new RateLimitProperties.Route();
+    route.setPath(path);
+    route.setMethod(method);
+    route.getLimits().put("user", limit(userCapacity));
+    route.getLimits().put("ADMIN", limit(adminCapacity));
+    return route;
+  }
+
+  private static RateLimitProperties.Limit limit(long capacity) {
+    var limit = new RateLimitProperties.Limit();
+    limit.setCapacity(capacity);
+    return limit;
+  }
+}
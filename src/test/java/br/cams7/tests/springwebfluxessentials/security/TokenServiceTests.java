@@ -0,0 +1,81 @@
+package br.cams7.tests.springwebfluxessentials.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import br.cams7.tests.springwebfluxessentials.config.AuthenticationProperties;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.CredentialsExpiredException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+
+class TokenServiceTests {
+
+  private static final Instant NOW = Instant.parse("2021-11-20T10:00:00Z");
+  private static final Authentication ADMIN =
+      new UsernamePasswordAuthenticationToken(
+          "admin", null, AuthorityUtils.createAuthorityList("ROLE_USER", "ROLE_ADMIN"));
+
+  private AuthenticationProperties properties;
+  private TokenService service;
+
+  @BeforeEach
+  void setUp() {
+    properties = new AuthenticationProperties();
+    properties.getToken().setSecret("abc12345");
+    service = new TokenService(properties, Clock.fixed(NOW, ZoneOffset.UTC));
+  }
+
+  @Test
+  @DisplayName("verify returns the authentication the token was issued for when successfull")
+  void verify_ReturnsAuthentication_WhenSuccessful() {
+    var token = service.issue(ADMIN);
+    assertThat(token.getTokenType()).isEqualTo("Bearer");
+    assertThat(token.getExpiresIn()).isEqualTo(Duration.ofMinutes(15).toSeconds());
+
+    var authentication = service.verify(token.getAccessToken());
+    assertThat(authentication.isAuthenticated()).isTrue();
+    assertThat(authentication.getName()).isEqualTo("admin");
+    assertThat(authentication.getAuthorities()).isEqualTo(ADMIN.getAuthorities());
+  }
+
+  @Test
+  @DisplayName("verify returns error when the token was tampered with")
+  void verify_ReturnsError_WhenTheTokenWasTamperedWith() {
+    var token = service.issue(ADMIN).getAccessToken();
+    var forged = new TokenService(properties).issue(ADMIN).getAccessToken();
+    var payload = forged.substring(0, forged.indexOf('.'));
+    var signature = token.substring(token.indexOf('.'));
+    // a later expiry with the original signature
+    assertThatThrownBy(() -> service.verify(payload + signature))
+        .isInstanceOf(BadCredentialsException.class);
+    assertThatThrownBy(() -> service.verify("invalid")).isInstanceOf(BadCredentialsException.class);
+  }
+
+  @Test
+  @DisplayName("verify returns error when the token was signed with another secret")
+  void verify_ReturnsError_WhenTheTokenWasSignedWithAnotherSecret() {
+    var other = new AuthenticationProperties();
+    other.getToken().setSecret("another secret");
+    var token = new TokenService(other, Clock.fixed(NOW, ZoneOffset.UTC)).issue(ADMIN);
+    assertThatThrownBy(() -> service.verify(token.getAccessToken()))
+        .isInstanceOf(BadCredentialsException.class);
+  }
+
+  @Test
+  @DisplayName("verify returns error when the token has expired")
+  void verify_ReturnsError_WhenTheTokenHasExpired() {
+    var token = service.issue(ADMIN).getAccessToken();
+    var later =
+        new TokenService(properties, Clock.fixed(NOW.plus(Duration.ofMinutes(15)), ZoneOffset.UTC));
+    assertThatThrownBy(() -> later.verify(token)).isInstanceOf(CredentialsExpiredException.class);
+  }
+}
@@ -2,33 +2,81 @@ package br.cams7.tests.springwebfluxessentials.service;
 
 import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.DELETED_ANIME_ID;
 import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.FIRST_ANIME_ID;
+import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.INVALID_ANIME_ID;
 import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.SECOUND_ANIME_ID;
 import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.getAnimeToBeSaved;
 import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.getFirstAnime;
 import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.getSecoundAnime;
 import static br.cams7.tests.springwebfluxessentials.utils.AnimeCreator.getUpdatedAnime;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
-import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.ArgumentMatchers.anyShort;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.BDDMockito.when;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.http.MediaType.APPLICATION_CBOR;
+import static org.springframework.http.MediaType.APPLICATION_JSON;
 import static reactor.test.StepVerifier.create;
 
+import br.cams7.tests.springwebfluxessentials.cache.AnimeCache;
+import br.cams7.tests.springwebfluxessentials.cache.CatalogVersion;
+import br.cams7.tests.springwebfluxessentials.config.AnimeProperties;
 import br.cams7.tests.springwebfluxessentials.domain.Anime;
+import br.cams7.tests.springwebfluxessentials.domain.ChunkResult;
+import br.cams7.tests.springwebfluxessentials.index.AnimeSearchIndex;
+import br.cams7.tests.springwebfluxessentials.index.PublicationYearHistogram;
+import br.cams7.tests.springwebfluxessentials.query.QueryBatcher;
+import br.cams7.tests.springwebfluxessentials.query.QueryCoalescer;
+import br.cams7.tests.springwebfluxessentials.query.WriteCoalescer;
 import br.cams7.tests.springwebfluxessentials.repository.AnimeRepository;
+import br.cams7.tests.springwebfluxessentials.utils.CountStrategy;
+import br.cams7.tests.springwebfluxessentials.utils.Cursor;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import javax.validation.Validation;
+import javax.validation.Validator;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.web.server.ResponseStatusException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
 import reactor.test.StepVerifier;
+import reactor.test.scheduler.VirtualTimeScheduler;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
 
 @ExtendWith(SpringExtension.class)
 class AnimeServiceTests {
@@ -37,6 +85,28 @@ class AnimeServiceTests {
 
   @Mock private AnimeRepository repository;
 
+  @Spy private AnimeProperties properties = new AnimeProperties();
+
+  @Spy private AnimeCache cache = new AnimeCache(properties, new SimpleMeterRegistry());
+
+  @Spy private AnimeSearchIndex searchIndex = new AnimeSearchIndex();
+
+  @Spy private PublicationYearHistogram histogram = new PublicationYearHistogram();
+
+  @Spy private Validator validator = Validation.buildDefaultValidatorFactory().getValidator();
+
+  @Spy private QueryCoalescer coalescer = new QueryCoalescer(new SimpleMeterRegistry());
+
+  @Spy private QueryBatcher batcher = new QueryBatcher(new AnimeProperties());
+
+  @Spy private CatalogVersion version = new CatalogVersion();
+
+  private final VirtualTimeScheduler scheduler = VirtualTimeScheduler.create();
+
+  @Spy
+  private WriteCoalescer writeCoalescer =
+      new WriteCoalescer(Duration.ofMillis(5), scheduler, new SimpleMeterRegistry());
+
   private static final Anime ANIME_TO_BE_SAVED = getAnimeToBeSaved();
   private static final Anime FIRST_ANIME = getFirstAnime();
   private static final Anime SECOUND_ANIME = getSecoundAnime();
@@ -44,19 +114,31 @@ class AnimeServiceTests {
 
   @BeforeEach
   void setUp() {
+    // only enabled by the tests of merged updates
+    when(writeCoalescer.isEnabled()).thenReturn(false);
     when(repository.findAll()).thenReturn(Flux.just(FIRST_ANIME, SECOUND_ANIME));
     when(repository.findById(anyLong())).thenReturn(Mono.just(FIRST_ANIME));
     when(repository.save(any(Anime.class)))
         .thenReturn(Mono.just(ANIME_TO_BE_SAVED.withId(FIRST_ANIME_ID)));
-    when(repository.saveAll(anySet()))
+    when(repository.insertAll(anyList()))
         .thenReturn(
             Flux.just(
                 ANIME_TO_BE_SAVED.withId(FIRST_ANIME_ID),
                 ANIME_TO_BE_SAVED.withId(SECOUND_ANIME_ID).withName("Death Note")));
-    when(repository.delete(any(Anime.class))).thenReturn(Mono.empty());
+    when(repository.removeById(anyLong())).thenReturn(Mono.just(1));
+    when(repository.removeAllById(anyCollection())).thenReturn(Mono.just(2));
+    when(repository.updateById(anyLong(), anyString(), any())).thenReturn(Mono.just(1));
     when(repository.findAllBy(any(Pageable.class)))
         .thenReturn(Flux.just(FIRST_ANIME, SECOUND_ANIME));
     when(repository.count()).thenReturn(Mono.just(2l));
+    when(repository.estimateCount()).thenReturn(Mono.just(2l));
+    when(repository.streamAll(anyInt())).thenReturn(Flux.just(FIRST_ANIME, SECOUND_ANIME));
+    when(repository.findAllBy(any(Pageable.class), anyInt()))
+        .thenReturn(Flux.just(FIRST_ANIME, SECOUND_ANIME));
+    when(repository.findAllByPublicationYear(anyShort(), anyShort(), any(Pageable.class), anyInt()))
+        .thenReturn(Flux.just(FIRST_ANIME, SECOUND_ANIME));
+    when(repository.countByPublicationYearBetween(anyShort(), anyShort()))
+        .thenReturn(Mono.just(3l));
   }
 
   @Test
@@ -69,6 +151,25 @@ class AnimeServiceTests {
         .verifyComplete();
   }
 
+  @Test
+  @DisplayName("streamAll emits all animes when successfull")
+  void streamAll_EmitsAllAnimes_WhenSuccessful() {
+    create(service.streamAll(), 1)
+        .expectSubscription()
+        .expectNext(FIRST_ANIME)
+        .thenRequest(1)
+        .expectNext(SECOUND_ANIME)
+        .verifyComplete();
+    verify(repository).streamAll(properties.getStreaming().getFetchSize());
+  }
+
+  @Test
+  @DisplayName("exportAll reads all animes with the export fetch size")
+  void exportAll_ReadsAllAnimesWithTheExportFetchSize() {
+    create(service.exportAll()).expectNext(FIRST_ANIME, SECOUND_ANIME).verifyComplete();
+    verify(repository).streamAll(properties.getExport().getFetchSize());
+  }
+
   @Test
   @DisplayName("findByPageable returns all animes when successfull")
   void findByPageable_ReturnsAllAnimes_WhenSuccessful() {
@@ -78,6 +179,122 @@ class AnimeServiceTests {
         .verifyComplete();
   }
 
+  @Test
+  @DisplayName("findByPageable doesn't count the animes when the page is the last one")
+  void findByPageable_DoesNotCountTheAnimes_WhenThePageIsTheLastOne() {
+    create(service.findByPageable(PageRequest.of(3, 5)))
+        .expectSubscription()
+        .assertNext(slice -> assertThat(((Page<Anime>) slice).getTotalElements()).isEqualTo(17))
+        .verifyComplete();
+    verify(repository, never()).count();
+  }
+
+  @Test
+  @DisplayName("findByPageable returns a page with the estimated total when successfull")
+  void findByPageable_ReturnsEstimatedTotal_WhenSuccessful() {
+    create(service.findByPageable(PageRequest.of(0, 1), CountStrategy.ESTIMATED))
+        .expectSubscription()
+        .expectNextMatches(slice -> ((Page<Anime>) slice).getTotalElements() == 2)
+        .verifyComplete();
+    verify(repository, never()).count();
+  }
+
+  @Test
+  @DisplayName("findByPageable reuses the cached total until the catalog changes")
+  void findByPageable_ReusesCachedTotal_UntilTheCatalogChanges() {
+    var pageable = PageRequest.of(0, 1);
+    create(service.findByPageable(pageable, CountStrategy.CACHED))
+        .expectNextCount(1)
+        .verifyComplete();
+    create(service.findByPageable(pageable, CountStrategy.CACHED))
+        .expectNextCount(1)
+        .verifyComplete();
+    verify(repository, times(1)).count();
+
+    create(service.save(ANIME_TO_BE_SAVED)).expectNextCount(1).verifyComplete();
+    create(service.findByPageable(pageable, CountStrategy.CACHED))
+        .expectNextCount(1)
+        .verifyComplete();
+    verify(repository, times(2)).count();
+  }
+
+  @Test
+  @DisplayName("findByPageable runs identical queries in flight only once")
+  void findByPageable_RunsIdenticalQueriesInFlightOnlyOnce() {
+    var release = Sinks.empty();
+    when(repository.findAllBy(any(Pageable.class)))
+        .thenReturn(Flux.just(FIRST_ANIME).delaySubscription(release.asMono()));
+    var pageable = PageRequest.of(0, 5);
+
+    var first = service.findByPageable(pageable).toFuture();
+    var second = service.findByPageable(pageable).toFuture();
+    // a write started, so later reads don't get a page read before it
+    create(service.delete(SECOUND_ANIME_ID)).verifyComplete();
+    var third = service.findByPageable(pageable).toFuture();
+    release.tryEmitEmpty();
+
+    assertThat(first.join().getContent()).containsExactly(FIRST_ANIME);
+    assertThat(second.join()).isSameAs(first.join());
+    assertThat(third.join()).isNotSameAs(first.join());
+    verify(repository, times(2)).findAllBy(pageable);
+  }
+
+  @Test
+  @DisplayName("findByPageable returns a slice without total when count strategy is none")
+  void findByPageable_ReturnsSliceWithoutTotal_WhenCountStrategyIsNone() {
+    create(service.findByPageable(PageRequest.of(0, 1), CountStrategy.NONE))
+        .expectSubscription()
+        .expectNextMatches(
+            slice ->
+                !(slice instanceof Page)
+                    && slice.getContent().equals(List.of(FIRST_ANIME))
+                    && slice.hasNext())
+        .verifyComplete();
+    verify(repository, never()).count();
+  }
+
+  @Test
+  @DisplayName("findByCursor returns the first page and the next cursor when successfull")
+  void findByCursor_ReturnsFirstPage_WhenSuccessful() {
+    var sort = Sort.by("name").ascending();
+    create(service.findByCursor(sort, "", 1))
+        .expectSubscription()
+        .expectNextMatches(
+            page ->
+                page.getContent().equals(List.of(FIRST_ANIME))
+                    && !page.isLast()
+                    && Cursor.decode(page.getNext(), sort.iterator().next()).getId()
+                        == FIRST_ANIME_ID)
+        .verifyComplete();
+  }
+
+  @Test
+  @DisplayName("findByCursor seeks after the cursor when successfull")
+  void findByCursor_SeeksAfterTheCursor_WhenSuccessful() {
+    var sort = Sort.by("name").ascending();
+    var after = Cursor.of(sort.iterator().next(), FIRST_ANIME_ID, FIRST_ANIME.getName()).encode();
+    when(repository.seekByNameAsc(anyString(), anyLong(), anyInt()))
+        .thenReturn(Flux.just(SECOUND_ANIME));
+    create(service.findByCursor(sort, after, 1))
+        .expectSubscription()
+        .expectNextMatches(
+            page ->
+                page.getContent().equals(List.of(SECOUND_ANIME))
+                    && page.isLast()
+                    && page.getNext() == null)
+        .verifyComplete();
+  }
+
+  @Test
+  @DisplayName("findByCursor returns error when the cursor doesn't match the sort")
+  void findByCursor_ReturnsError_WhenCursorDoesNotMatchTheSort() {
+    var after = Cursor.of(Sort.Order.asc("id"), FIRST_ANIME_ID, FIRST_ANIME_ID).encode();
+    create(service.findByCursor(Sort.by("name").ascending(), after, 1))
+        .expectSubscription()
+        .expectError(ResponseStatusException.class)
+        .verify();
+  }
+
   @Test
   @DisplayName("findById returns an anime when successfull")
   void findById_ReturnsAnAnime_WhenSuccessful() {
@@ -97,6 +314,80 @@ class AnimeServiceTests {
         .verify();
   }
 
+  @Test
+  @DisplayName("findById reads the database once when the anime is requested again")
+  void findById_ReadsTheDatabaseOnce_WhenTheAnimeIsRequestedAgain() {
+    create(service.findById(FIRST_ANIME_ID)).expectNext(FIRST_ANIME).verifyComplete();
+    create(service.findById(FIRST_ANIME_ID)).expectNext(FIRST_ANIME).verifyComplete();
+    verify(repository, times(1)).findById(FIRST_ANIME_ID);
+    assertThat(cache.stats().hitCount()).isEqualTo(1);
+    assertThat(cache.stats().missCount()).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("findById reads the database once when the anime is requested concurrently")
+  void findById_ReadsTheDatabaseOnce_WhenTheAnimeIsRequestedConcurrently() {
+    var read = Sinks.<Anime>one();
+    when(repository.findById(anyLong())).thenReturn(read.asMono());
+
+    var first = service.findById(FIRST_ANIME_ID).toFuture();
+    var second = service.findById(FIRST_ANIME_ID).toFuture();
+    read.tryEmitValue(FIRST_ANIME);
+
+    assertThat(first.join()).isEqualTo(FIRST_ANIME);
+    assertThat(second.join()).isEqualTo(FIRST_ANIME);
+    verify(repository, times(1)).findById(FIRST_ANIME_ID);
+  }
+
+  @Test
+  @DisplayName("findById caches unknown ids when empty is returned")
+  void findById_CachesUnknownIds_WhenEmptyIsReturned() {
+    when(repository.findById(anyLong())).thenReturn(Mono.empty());
+    create(service.findById(FIRST_ANIME_ID)).expectError(ResponseStatusException.class).verify();
+    create(service.findById(FIRST_ANIME_ID)).expectError(ResponseStatusException.class).verify();
+    verify(repository, times(1)).findById(FIRST_ANIME_ID);
+  }
+
+  @Test
+  @DisplayName("findById reads the database again after the anime is updated")
+  void findById_ReadsTheDatabaseAgain_AfterTheAnimeIsUpdated() {
+    create(service.findById(UPDATED_ANIME.getId())).expectNextCount(1).verifyComplete();
+    create(service.update(UPDATED_ANIME)).verifyComplete();
+    when(repository.findById(anyLong())).thenReturn(Mono.just(UPDATED_ANIME));
+    create(service.findById(UPDATED_ANIME.getId())).expectNext(UPDATED_ANIME).verifyComplete();
+  }
+
+  @Test
+  @DisplayName("findById never pairs the tag of an update with the anime before it")
+  void findById_NeverPairsTheTagOfAnUpdateWithTheAnimeBeforeIt() {
+    var before = UPDATED_ANIME.withName("Nanatsu no Taizai");
+    when(repository.findById(anyLong())).thenReturn(Mono.just(before));
+    create(service.findById(UPDATED_ANIME.getId())).expectNext(before).verifyComplete();
+    when(repository.findById(anyLong())).thenReturn(Mono.just(UPDATED_ANIME));
+
+    // a request served on another thread as soon as the update bumps the version
+    var reads = new ArrayList<Tuple2<String, Anime>>();
+    doAnswer(
+            invocation -> {
+              var bumped = invocation.callRealMethod();
+              reads.add(
+                  CompletableFuture.supplyAsync(
+                          () ->
+                              Tuples.of(
+                                  version.getETag(APPLICATION_JSON),
+                                  service.findById(UPDATED_ANIME.getId()).block()))
+                      .join());
+              return bumped;
+            })
+        .when(version)
+        .increment();
+
+    create(service.update(UPDATED_ANIME)).verifyComplete();
+    assertThat(reads).hasSize(1);
+    assertThat(reads.get(0).getT1()).isEqualTo(version.getETag(APPLICATION_JSON));
+    assertThat(reads.get(0).getT2()).isEqualTo(UPDATED_ANIME);
+  }
+
   @Test
   @DisplayName("save creates an anime when successfull")
   void save_CreatesAnAnime_WhenSuccessful() {
@@ -117,36 +408,460 @@ class AnimeServiceTests {
         .verifyComplete();
   }
 
+  @Test
+  @DisplayName("saveAll inserts animes in chunks when there are more animes than the chunk size")
+  void saveAll_InsertsAnimesInChunks_WhenThereAreMoreAnimesThanTheChunkSize() {
+    properties.getBatch().setChunkSize(1);
+    create(service.saveAll(Set.of(ANIME_TO_BE_SAVED, ANIME_TO_BE_SAVED.withName("Death Note"))))
+        .expectSubscription()
+        .expectNextCount(4)
+        .verifyComplete();
+    verify(repository, times(2)).insertAll(anyList());
+  }
+
+  @Test
+  @DisplayName("ingest requests one chunk ahead of the one being inserted")
+  void ingest_RequestsOneChunkAhead_WhenAnimesArrive() {
+    properties.getBatch().setChunkSize(2);
+    var requested = new AtomicLong();
+    var animes =
+        Flux.range(0, 100)
+            .map(i -> ANIME_TO_BE_SAVED.withName("Anime #" + i))
+            .doOnRequest(requested::addAndGet);
+
+    create(service.ingest(animes), 1)
+        .expectSubscription()
+        .expectNext(ANIME_TO_BE_SAVED.withId(FIRST_ANIME_ID))
+        .then(() -> assertThat(requested).hasValueLessThanOrEqualTo(4))
+        .thenCancel()
+        .verify();
+    verify(repository).insertAll(anyList());
+  }
+
+  @Test
+  @DisplayName("ingest inserts every chunk when the animes are consumed")
+  void ingest_InsertsEveryChunk_WhenTheAnimesAreConsumed() {
+    properties.getBatch().setChunkSize(2);
+    create(service.ingest(Flux.just(ANIME_TO_BE_SAVED, ANIME_TO_BE_SAVED, ANIME_TO_BE_SAVED)))
+        .expectSubscription()
+        .expectNextCount(4)
+        .verifyComplete();
+    verify(repository, times(2)).insertAll(anyList());
+  }
+
+  @Test
+  @DisplayName("importAll reports the inserted and the invalid animes of every chunk")
+  void importAll_ReportsTheInsertedAndTheInvalidAnimesOfEveryChunk() {
+    properties.getBatch().setChunkSize(3);
+    var animes =
+        Flux.just(
+            ANIME_TO_BE_SAVED,
+            ANIME_TO_BE_SAVED.withName(" "),
+            ANIME_TO_BE_SAVED.withName("Death Note"),
+            ANIME_TO_BE_SAVED.withName("Bleach").withPublicationYear(null));
+
+    create(service.importAll(animes))
+        .expectSubscription()
+        .assertNext(
+            result -> {
+              assertThat(result.getChunk()).isZero();
+              assertThat(result.getOffset()).isZero();
+              assertThat(result.getSize()).isEqualTo(3);
+              assertThat(result.getIds()).containsExactly(FIRST_ANIME_ID, SECOUND_ANIME_ID);
+              assertThat(result.getRejected())
+                  .containsExactly(
+                      new ChunkResult.Rejection(1, "name: The name of this anime cannot be empty"));
+              assertThat(result.getError()).isNull();
+            })
+        .assertNext(
+            result -> {
+              assertThat(result.getChunk()).isOne();
+              assertThat(result.getOffset()).isEqualTo(3);
+              assertThat(result.getIds()).isEmpty();
+              assertThat(result.getRejected())
+                  .extracting(ChunkResult.Rejection::getPosition)
+                  .containsExactly(3l);
+            })
+        .verifyComplete();
+    verify(repository)
+        .insertAll(List.of(ANIME_TO_BE_SAVED, ANIME_TO_BE_SAVED.withName("Death Note")));
+    verify(repository, times(1)).insertAll(anyList());
+  }
+
+  @Test
+  @DisplayName("importAll reports the chunk and goes on when a name is already in use")
+  void importAll_ReportsTheChunkAndGoesOn_WhenANameIsAlreadyInUse() {
+    properties.getBatch().setChunkSize(1);
+    when(repository.insertAll(List.of(FIRST_ANIME)))
+        .thenReturn(Flux.error(new DataIntegrityViolationException("Unique index violated")));
+
+    create(service.importAll(Flux.just(FIRST_ANIME, ANIME_TO_BE_SAVED)))
+        .expectSubscription()
+        .assertNext(
+            result -> {
+              assertThat(result.getIds()).isEmpty();
+              assertThat(result.getError()).isNotNull();
+            })
+        .assertNext(result -> assertThat(result.getError()).isNull())
+        .verifyComplete();
+  }
+
+  @Test
+  @DisplayName("search finds the animes written through the service when successfull")
+  void search_FindsWrittenAnimes_WhenSuccessful() {
+    create(service.save(ANIME_TO_BE_SAVED)).expectNextCount(1).verifyComplete();
+    service.loadIndexes();
+    create(service.search("bizarre", PageRequest.of(0, 10)))
+        .expectSubscription()
+        .assertNext(
+            page ->
+                assertThat(page.getContent())
+                    .containsExactly(ANIME_TO_BE_SAVED.withId(FIRST_ANIME_ID)))
+        .verifyComplete();
+
+    create(service.delete(FIRST_ANIME_ID)).verifyComplete();
+    create(service.search("bizarre", PageRequest.of(0, 10)))
+        .expectSubscription()
+        .assertNext(page -> assertThat(page).isEmpty())
+        .verifyComplete();
+  }
+
+  @Test
+  @DisplayName("search returns error when the query is blank")
+  void search_ReturnsError_WhenTheQueryIsBlank() {
+    create(service.search(" ", PageRequest.of(0, 10)))
+        .expectSubscription()
+        .expectError(ResponseStatusException.class)
+        .verify();
+  }
+
+  @Test
+  @DisplayName("loadIndexes indexes the animes in the database")
+  void loadIndexes_IndexesTheAnimesInTheDatabase() {
+    service.loadIndexes();
+    assertThat(searchIndex.size()).isEqualTo(2);
+    assertThat(histogram.getStatistics().getTotal()).isEqualTo(2);
+  }
+
+  @Test
+  @DisplayName("loadIndexes indexes the animes a fetch at a time")
+  void loadIndexes_IndexesTheAnimesAFetchAtATime() {
+    var animes = Sinks.many().unicast().<Anime>onBackpressureBuffer();
+    when(repository.streamAll(anyInt())).thenReturn(animes.asFlux());
+
+    service.loadIndexes();
+    var fetchSize = properties.getStreaming().getFetchSize();
+    for (long id = 1; id < fetchSize; id++) animes.tryEmitNext(FIRST_ANIME.withId(id));
+    assertThat(searchIndex.size()).isZero();
+
+    animes.tryEmitNext(FIRST_ANIME.withId((long) fetchSize));
+    assertThat(searchIndex.size()).isEqualTo(fetchSize);
+  }
+
+  @Test
+  @DisplayName("loadIndexes doesn't index an anime deleted after being read")
+  void loadIndexes_DoesNotIndexAnAnimeDeletedAfterBeingRead() {
+    var animes = Sinks.many().unicast().<Anime>onBackpressureBuffer();
+    when(repository.streamAll(anyInt())).thenReturn(animes.asFlux());
+    service.loadIndexes();
+
+    animes.tryEmitNext(FIRST_ANIME);
+    create(service.delete(FIRST_ANIME_ID)).verifyComplete();
+    animes.tryEmitNext(SECOUND_ANIME);
+    animes.tryEmitComplete();
+
+    assertThat(searchIndex.size()).isEqualTo(1);
+    assertThat(histogram.getStatistics().getTotal()).isEqualTo(1);
+    create(service.search("naruto", PageRequest.of(0, 10)))
+        .assertNext(page -> assertThat(page).isEmpty())
+        .verifyComplete();
+  }
+
+  @Test
+  @DisplayName("search and getStatistics wait until the indexes are loaded")
+  void searchAndGetStatistics_WaitUntilTheIndexesAreLoaded() {
+    var animes = Sinks.many().unicast().<Anime>onBackpressureBuffer();
+    when(repository.streamAll(anyInt())).thenReturn(animes.asFlux());
+    service.loadIndexes();
+
+    var page = service.search("naruto", PageRequest.of(0, 10)).toFuture();
+    var statistics = service.getStatistics().toFuture();
+    animes.tryEmitNext(FIRST_ANIME);
+    assertThat(page).isNotDone();
+    assertThat(statistics).isNotDone();
+
+    animes.tryEmitComplete();
+    assertThat(page.join().getContent()).containsExactly(FIRST_ANIME);
+    assertThat(statistics.join().getTotal()).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("findByPublicationYear returns a page counted by the histogram when successfull")
+  void findByPublicationYear_ReturnsAPageCountedByTheHistogram_WhenSuccessful() {
+    service.loadIndexes();
+    create(
+            service.findByPublicationYear(
+                (short) 1990, null, PageRequest.of(0, 2), CountStrategy.CACHED))
+        .expectSubscription()
+        .assertNext(
+            slice -> {
+              assertThat(slice.getContent()).containsExactly(FIRST_ANIME, SECOUND_ANIME);
+              assertThat(((Page<Anime>) slice).getTotalElements()).isEqualTo(2);
+            })
+        .verifyComplete();
+    verify(repository)
+        .findAllByPublicationYear((short) 1990, Short.MAX_VALUE, PageRequest.of(0, 2), 2);
+    verify(repository, never()).countByPublicationYearBetween(anyShort(), anyShort());
+  }
+
+  @Test
+  @DisplayName("findByPublicationYear counts the animes in the database when the strategy is exact")
+  void findByPublicationYear_CountsTheAnimesInTheDatabase_WhenCountStrategyIsExact() {
+    create(
+            service.findByPublicationYear(
+                null, (short) 2000, PageRequest.of(0, 2), CountStrategy.EXACT))
+        .expectSubscription()
+        .assertNext(slice -> assertThat(((Page<Anime>) slice).getTotalElements()).isEqualTo(3))
+        .verifyComplete();
+    verify(repository).countByPublicationYearBetween(Short.MIN_VALUE, (short) 2000);
+  }
+
+  @Test
+  @DisplayName("findByPublicationYear returns a slice when the count strategy is none")
+  void findByPublicationYear_ReturnsASlice_WhenCountStrategyIsNone() {
+    create(
+            service.findByPublicationYear(
+                (short) 1990, (short) 2000, PageRequest.of(0, 1), CountStrategy.NONE))
+        .expectSubscription()
+        .assertNext(
+            slice -> {
+              assertThat(slice).isNotInstanceOf(Page.class);
+              assertThat(slice.getContent()).containsExactly(FIRST_ANIME);
+              assertThat(slice.hasNext()).isTrue();
+            })
+        .verifyComplete();
+  }
+
+  @Test
+  @DisplayName("findByPublicationYear returns error when yearFrom is after yearTo")
+  void findByPublicationYear_ReturnsError_WhenYearFromIsAfterYearTo() {
+    create(
+            service.findByPublicationYear(
+                (short) 2000, (short) 1990, PageRequest.of(0, 2), CountStrategy.EXACT))
+        .expectSubscription()
+        .expectError(ResponseStatusException.class)
+        .verify();
+  }
+
+  @Test
+  @DisplayName("getStatistics follows the writes made through the service")
+  void getStatistics_FollowsTheWrites() {
+    service.loadIndexes();
+    create(service.update(FIRST_ANIME.withPublicationYear((short) 2012))).verifyComplete();
+    create(service.delete(SECOUND_ANIME_ID)).verifyComplete();
+    create(service.save(ANIME_TO_BE_SAVED)).expectNextCount(1).verifyComplete();
+
+    create(service.getStatistics())
+        .expectSubscription()
+        .assertNext(
+            statistics -> {
+              assertThat(statistics.getTotal()).isEqualTo(1);
+              assertThat(statistics.getYears()).containsOnlyKeys((short) 2012);
+              assertThat(statistics.getDecades()).containsOnlyKeys(2010);
+            })
+        .verifyComplete();
+  }
+
+  @Test
+  @DisplayName("getETag changes with every write")
+  void getETag_ChangesWithEveryWrite() {
+    var etag = version.getETag(APPLICATION_JSON);
+    assertThat(version.getETag(APPLICATION_JSON)).isEqualTo(etag).startsWith("\"").endsWith("\"");
+    assertThat(version.getETag(APPLICATION_CBOR)).isNotEqualTo(etag);
+
+    create(service.update(UPDATED_ANIME)).verifyComplete();
+    var updated = version.getETag(APPLICATION_JSON);
+    assertThat(updated).isNotEqualTo(etag);
+
+    create(service.delete(DELETED_ANIME_ID)).verifyComplete();
+    assertThat(version.getETag(APPLICATION_JSON)).isNotIn(etag, updated);
+  }
+
+  @Test
+  @DisplayName("update returns error when the tag is old")
+  void update_ReturnsError_WhenTheTagIsOld() {
+    var ifMatch = List.of(version.getETag(APPLICATION_JSON));
+    create(service.delete(DELETED_ANIME_ID)).verifyComplete();
+
+    create(service.update(UPDATED_ANIME, ifMatch))
+        .expectErrorSatisfies(
+            error ->
+                assertThat(((ResponseStatusException) error).getStatus())
+                    .isEqualTo(HttpStatus.PRECONDITION_FAILED))
+        .verify();
+    verify(repository, never()).updateById(anyLong(), anyString(), any());
+  }
+
+  @Test
+  @DisplayName("update writes only one of the concurrent updates holding the same tag")
+  void update_WritesOnlyOneOfTheConcurrentUpdatesHoldingTheSameTag() throws Exception {
+    var ifMatch = List.of(version.getETag(APPLICATION_CBOR));
+    var writers = 8;
+    var start = new CountDownLatch(1);
+    var executor = Executors.newFixedThreadPool(writers);
+    try {
+      var results = new ArrayList<Future<HttpStatus>>();
+      for (int i = 0; i < writers; i++)
+        results.add(
+            executor.submit(
+                () -> {
+                  start.await();
+                  return service
+                      .update(UPDATED_ANIME, ifMatch)
+                      .thenReturn(HttpStatus.NO_CONTENT)
+                      .onErrorResume(
+                          ResponseStatusException.class, error -> Mono.just(error.getStatus()))
+                      .block();
+                }));
+      start.countDown();
+
+      var statuses = new ArrayList<HttpStatus>();
+      for (var result : results) statuses.add(result.get(5, TimeUnit.SECONDS));
+      assertThat(statuses).containsOnlyOnce(HttpStatus.NO_CONTENT);
+      assertThat(Collections.frequency(statuses, HttpStatus.PRECONDITION_FAILED))
+          .isEqualTo(writers - 1);
+      verify(repository, times(1)).updateById(anyLong(), anyString(), any());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
   @Test
   @DisplayName("delete removes the anime when successfull")
   void delete_RemovesTheAnime_WhenSuccessful() {
     create(service.delete(DELETED_ANIME_ID)).expectSubscription().verifyComplete();
+    verify(repository, never()).findById(anyLong());
   }
 
   @Test
-  @DisplayName("delete returns error when empty is returned")
-  void delete_ReturnsError_WhenEmptyIsReturned() {
-    when(repository.findById(anyLong())).thenReturn(Mono.empty());
+  @DisplayName("delete returns error when no row is deleted")
+  void delete_ReturnsError_WhenNoRowIsDeleted() {
+    when(repository.removeById(anyLong())).thenReturn(Mono.just(0));
     create(service.delete(DELETED_ANIME_ID))
         .expectSubscription()
         .expectError(ResponseStatusException.class)
         .verify();
   }
 
+  @Test
+  @DisplayName("findAllById returns the animes in the order of their ids when successfull")
+  void findAllById_ReturnsTheAnimesInTheOrderOfTheirIds_WhenSuccessful() {
+    when(repository.findAllById(anyIterable())).thenReturn(Flux.just(FIRST_ANIME, SECOUND_ANIME));
+    create(
+            service.findAllById(
+                List.of(SECOUND_ANIME_ID, INVALID_ANIME_ID, FIRST_ANIME_ID, SECOUND_ANIME_ID)))
+        .expectNext(SECOUND_ANIME, FIRST_ANIME)
+        .verifyComplete();
+    verify(repository).findAllById(Set.of(SECOUND_ANIME_ID, INVALID_ANIME_ID, FIRST_ANIME_ID));
+  }
+
+  @Test
+  @DisplayName("findAllById returns error when no id is informed")
+  void findAllById_ReturnsError_WhenNoIdIsInformed() {
+    create(service.findAllById(List.of())).expectError(ResponseStatusException.class).verify();
+    verify(repository, never()).findAllById(anyIterable());
+  }
+
+  @Test
+  @DisplayName("findAllById returns error when more ids than a batch holds are informed")
+  void findAllById_ReturnsError_WhenMoreIdsThanABatchHoldsAreInformed() {
+    var ids = LongStream.rangeClosed(1, 101).boxed().collect(Collectors.toList());
+    create(service.findAllById(ids)).expectError(ResponseStatusException.class).verify();
+    verify(repository, never()).findAllById(anyIterable());
+  }
+
+  @Test
+  @DisplayName("deleteAll removes the animes in a single statement when successfull")
+  void deleteAll_RemovesTheAnimes_WhenSuccessful() {
+    create(service.deleteAll(Set.of(FIRST_ANIME_ID, DELETED_ANIME_ID)))
+        .expectSubscription()
+        .expectNext(2)
+        .verifyComplete();
+    verify(repository).removeAllById(Set.of(FIRST_ANIME_ID, DELETED_ANIME_ID));
+  }
+
+  @Test
+  @DisplayName("deleteAll returns error when no id is informed")
+  void deleteAll_ReturnsError_WhenNoIdIsInformed() {
+    create(service.deleteAll(Set.of()))
+        .expectSubscription()
+        .expectError(ResponseStatusException.class)
+        .verify();
+    verify(repository, never()).removeAllById(anyCollection());
+  }
+
+  @Test
+  @DisplayName("deleteAll returns error when more ids than a batch holds are informed")
+  void deleteAll_ReturnsError_WhenMoreIdsThanABatchHoldsAreInformed() {
+    var ids = LongStream.rangeClosed(1, 101).boxed().collect(Collectors.toSet());
+    create(service.deleteAll(ids)).expectError(ResponseStatusException.class).verify();
+    verify(repository, never()).removeAllById(anyCollection());
+  }
+
   @Test
   @DisplayName("update saves updated anime when successfull")
   void update_SavesUpdatedAnime_WhenSuccessful() {
-    when(repository.save(any(Anime.class))).thenReturn(Mono.just(UPDATED_ANIME));
     StepVerifier.create(service.update(UPDATED_ANIME)).expectSubscription().verifyComplete();
+    verify(repository)
+        .updateById(
+            UPDATED_ANIME.getId(), UPDATED_ANIME.getName(), UPDATED_ANIME.getPublicationYear());
+    verify(repository, never()).findById(anyLong());
   }
 
   @Test
-  @DisplayName("update returns error when empty is returned")
-  void update_ReturnsError_WhenEmptyIsReturned() {
-    when(repository.findById(anyLong())).thenReturn(Mono.empty());
+  @DisplayName("update returns error when no row is updated")
+  void update_ReturnsError_WhenNoRowIsUpdated() {
+    when(repository.updateById(anyLong(), anyString(), any())).thenReturn(Mono.just(0));
     StepVerifier.create(service.update(UPDATED_ANIME))
         .expectSubscription()
         .expectError(ResponseStatusException.class)
         .verify();
   }
+
+  @Test
+  @DisplayName("update writes only the last of the updates merged by the write coalescer")
+  void update_WritesOnlyTheLastOfTheUpdatesMergedByTheWriteCoalescer() {
+    when(writeCoalescer.isEnabled()).thenReturn(true);
+    var renamed = UPDATED_ANIME.withName("Naruto Shippuden");
+    var etag = version.getETag(APPLICATION_JSON);
+
+    var first = service.update(UPDATED_ANIME).toFuture();
+    var last = service.update(renamed).toFuture();
+    assertThat(first).isNotDone();
+    assertThat(last).isNotDone();
+
+    scheduler.advanceTimeBy(Duration.ofMillis(5));
+    assertThat(first).isCompleted();
+    assertThat(last).isCompleted();
+    verify(repository, times(1)).updateById(anyLong(), anyString(), any());
+    verify(repository).updateById(renamed.getId(), renamed.getName(), renamed.getPublicationYear());
+    verify(searchIndex).put(renamed);
+    assertThat(version.getETag(APPLICATION_JSON)).isNotEqualTo(etag);
+  }
+
+  @Test
+  @DisplayName("update returns error to all merged updates when no row is updated")
+  void update_ReturnsErrorToAllMergedUpdates_WhenNoRowIsUpdated() {
+    when(writeCoalescer.isEnabled()).thenReturn(true);
+    when(repository.updateById(anyLong(), anyString(), any())).thenReturn(Mono.just(0));
+
+    var first = service.update(UPDATED_ANIME).toFuture();
+    var last = service.update(UPDATED_ANIME).toFuture();
+    scheduler.advanceTimeBy(Duration.ofMillis(5));
+
+    assertThat(first).isCompletedExceptionally();
+    assertThat(last).isCompletedExceptionally();
+    verify(repository, times(1)).updateById(anyLong(), anyString(), any());
+    verify(searchIndex, never()).put(any(Anime.class));
+  }
 }
@@ -0,0 +1,92 @@
+package br.cams7.tests.springwebfluxessentials.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.BDDMockito.when;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static reactor.test.StepVerifier.create;
+
+import br.cams7.tests.springwebfluxessentials.config.AuthenticationProperties;
+import br.cams7.tests.springwebfluxessentials.domain.User;
+import br.cams7.tests.springwebfluxessentials.repository.UserRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import reactor.core.publisher.Mono;
+
+@ExtendWith(SpringExtension.class)
+class UserDetailsServiceTests {
+
+  private static final String ADMIN = "admin";
+  private static final String UNKNOWN = "unknown";
+
+  private static final User ADMIN_USER =
+      new User(2l, "Administrator", ADMIN, "{noop}abc12345", "ROLE_USER, ROLE_ADMIN");
+
+  @Mock private UserRepository repository;
+
+  private UserDetailsService service;
+
+  @BeforeEach
+  void setUp() {
+    service =
+        new UserDetailsService(
+            repository, new AuthenticationProperties(), new SimpleMeterRegistry());
+    when(repository.findByUsername(anyString())).thenReturn(Mono.empty());
+    when(repository.findByUsername(ADMIN)).thenReturn(Mono.just(ADMIN_USER));
+  }
+
+  @Test
+  @DisplayName("findByUsername returns the user with parsed authorities when successfull")
+  void findByUsername_ReturnsUser_WhenSuccessful() {
+    create(service.findByUsername(ADMIN))
+        .assertNext(
+            user -> {
+              assertThat(user.getUsername()).isEqualTo(ADMIN);
+              assertThat(user.getPassword()).isEqualTo(ADMIN_USER.getPassword());
+              assertThat(
+                      user.getAuthorities().stream()
+                          .map(GrantedAuthority::getAuthority)
+                          .collect(Collectors.toSet()))
+                  .containsExactlyInAnyOrder("ROLE_USER", "ROLE_ADMIN");
+            })
+        .verifyComplete();
+  }
+
+  @Test
+  @DisplayName("findByUsername reads the user from the cache when it was already found")
+  void findByUsername_ReadsTheUserFromTheCache_WhenItWasAlreadyFound() {
+    create(service.findByUsername(ADMIN)).expectNextCount(1).verifyComplete();
+    create(service.findByUsername(ADMIN)).expectNextCount(1).verifyComplete();
+    verify(repository, times(1)).findByUsername(ADMIN);
+    assertThat(service.stats().hitCount()).isEqualTo(1);
+  }
+
+  @Test
+  @DisplayName("findByUsername caches unknown usernames as empty")
+  void findByUsername_CachesUnknownUsernames_WhenTheUserDoesNotExist() {
+    create(service.findByUsername(UNKNOWN)).verifyComplete();
+    create(service.findByUsername(UNKNOWN)).verifyComplete();
+    verify(repository, times(1)).findByUsername(UNKNOWN);
+  }
+
+  @Test
+  @DisplayName("findByUsername reads the database again once the cached user expires")
+  void findByUsername_ReadsTheDatabaseAgain_OnceTheCachedUserExpires() {
+    var properties = new AuthenticationProperties();
+    properties.getCache().setTtl(Duration.ofNanos(1));
+    service = new UserDetailsService(repository, properties, new SimpleMeterRegistry());
+
+    create(service.findByUsername(ADMIN)).expectNextCount(1).verifyComplete();
+    create(service.findByUsername(ADMIN)).expectNextCount(1).verifyComplete();
+    verify(repository, times(2)).findByUsername(ADMIN);
+  }
+}
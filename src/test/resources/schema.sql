@@ -3,6 +3,7 @@ CREATE TABLE tb_anime (
     name VARCHAR NOT NULL UNIQUE,
     publication_year SMALLINT NOT NULL
 );
+CREATE INDEX idx_anime_publication_year ON tb_anime (publication_year, id_anime);
 CREATE TABLE tb_user ( 
     id_user IDENTITY NOT NULL PRIMARY KEY,
     name VARCHAR NOT NULL,